@@ -28,6 +28,10 @@ public final class PdfEventTypes {
     public static final String PDF_EDIT_COMPLETED = "pdf.edit.completed.v1";
     public static final String PDF_EDIT_FAILED = "pdf.edit.failed.v1";
 
+    // PDF Batch Events
+    public static final String PDF_BATCH_COMPLETED = "pdf.batch.completed.v1";
+    public static final String PDF_BATCH_FAILED = "pdf.batch.failed.v1";
+
     // PDF Split Events
     public static final String PDF_SPLIT_REQUESTED = "pdf.split.requested.v1";
     public static final String PDF_SPLIT_COMPLETED = "pdf.split.completed.v1";
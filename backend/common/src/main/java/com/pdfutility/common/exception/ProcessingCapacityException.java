@@ -0,0 +1,39 @@
+package com.pdfutility.common.exception;
+
+import java.time.Duration;
+
+/**
+ * Exception thrown when processing capacity is exhausted and work is rejected instead of queued.
+ */
+public class ProcessingCapacityException extends PdfUtilityException {
+
+    /**
+     * A per-operation concurrency limit was reached; the caller should slow down.
+     */
+    public static final String OPERATION_LIMIT_EXCEEDED = "OPERATION_LIMIT_EXCEEDED";
+
+    /**
+     * The processing executor and its queue are full; the node is overloaded.
+     */
+    public static final String PROCESSING_SATURATED = "PROCESSING_SATURATED";
+
+    /**
+     * The node's memory budget cannot take the job's estimated working set in time.
+     */
+    public static final String MEMORY_EXHAUSTED = "MEMORY_EXHAUSTED";
+
+    private final Duration retryAfter;
+
+    public ProcessingCapacityException(String message, String errorCode, Duration retryAfter) {
+        super(message, errorCode);
+        this.retryAfter = retryAfter;
+    }
+
+    public Duration getRetryAfter() {
+        return retryAfter;
+    }
+
+    public boolean isOperationLimit() {
+        return OPERATION_LIMIT_EXCEEDED.equals(getErrorCode());
+    }
+}
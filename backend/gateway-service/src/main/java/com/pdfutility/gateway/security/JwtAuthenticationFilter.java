@@ -32,6 +32,8 @@ import java.util.stream.Collectors;
 public class JwtAuthenticationFilter implements WebFilter {
 
     private static final String BEARER_PREFIX = "Bearer ";
+    private static final String USER_ID_HEADER = "X-User-Id";
+    private static final String USER_ROLES_HEADER = "X-User-Roles";
     
     private final SecretKey secretKey;
 
@@ -41,6 +43,19 @@ public class JwtAuthenticationFilter implements WebFilter {
 
     @Override
     public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
+        // Identity headers are only trusted downstream when set here from a verified token
+        if (exchange.getRequest().getHeaders().containsKey(USER_ID_HEADER)
+                || exchange.getRequest().getHeaders().containsKey(USER_ROLES_HEADER)) {
+            exchange = exchange.mutate()
+                    .request(exchange.getRequest().mutate()
+                            .headers(headers -> {
+                                headers.remove(USER_ID_HEADER);
+                                headers.remove(USER_ROLES_HEADER);
+                            })
+                            .build())
+                    .build();
+        }
+
         String path = exchange.getRequest().getPath().value();
         
         // Skip authentication for public paths
@@ -74,8 +89,8 @@ public class JwtAuthenticationFilter implements WebFilter {
 
             // Add user ID header for downstream services
             ServerHttpRequest modifiedRequest = exchange.getRequest().mutate()
-                    .header("X-User-Id", userId)
-                    .header("X-User-Roles", String.join(",", roles != null ? roles : List.of()))
+                    .header(USER_ID_HEADER, userId)
+                    .header(USER_ROLES_HEADER, String.join(",", roles != null ? roles : List.of()))
                     .build();
 
             ServerWebExchange modifiedExchange = exchange.mutate()
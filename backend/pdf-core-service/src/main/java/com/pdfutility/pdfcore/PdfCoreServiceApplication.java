@@ -2,6 +2,7 @@ package com.pdfutility.pdfcore;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.context.properties.ConfigurationPropertiesScan;
 
 /**
  * PDF Core Service - Main Application
@@ -14,6 +15,7 @@ import org.springframework.boot.autoconfigure.SpringBootApplication;
  * - Convert PDFs
  */
 @SpringBootApplication
+@ConfigurationPropertiesScan
 public class PdfCoreServiceApplication {
 
     public static void main(String[] args) {
@@ -3,9 +3,11 @@ package com.pdfutility.pdfcore.config;
 import com.pdfutility.common.dto.ApiResponse;
 import com.pdfutility.common.exception.PdfProcessingException;
 import com.pdfutility.common.exception.PdfUtilityException;
+import com.pdfutility.common.exception.ProcessingCapacityException;
 import com.pdfutility.common.exception.ResourceNotFoundException;
 import com.pdfutility.common.exception.StorageException;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.ExceptionHandler;
@@ -37,6 +39,15 @@ public class GlobalExceptionHandler {
                 .body(ApiResponse.error(ex.getMessage(), ex.getErrorCode())));
     }
 
+    @ExceptionHandler(ProcessingCapacityException.class)
+    public Mono<ResponseEntity<ApiResponse<Void>>> handleCapacity(ProcessingCapacityException ex) {
+        log.warn("Processing capacity exceeded: {}", ex.getMessage());
+        HttpStatus status = ex.isOperationLimit() ? HttpStatus.TOO_MANY_REQUESTS : HttpStatus.SERVICE_UNAVAILABLE;
+        return Mono.just(ResponseEntity.status(status)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(Math.max(1, ex.getRetryAfter().toSeconds())))
+                .body(ApiResponse.error(ex.getMessage(), ex.getErrorCode())));
+    }
+
     @ExceptionHandler(StorageException.class)
     public Mono<ResponseEntity<ApiResponse<Void>>> handleStorage(StorageException ex) {
         log.error("Storage error: {}", ex.getMessage(), ex);
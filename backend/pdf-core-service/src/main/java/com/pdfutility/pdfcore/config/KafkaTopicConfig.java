@@ -0,0 +1,34 @@
+package com.pdfutility.pdfcore.config;
+
+import com.pdfutility.common.event.PdfEventTypes;
+import org.apache.kafka.clients.admin.NewTopic;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.kafka.config.TopicBuilder;
+import org.springframework.kafka.core.KafkaAdmin;
+
+import java.util.stream.Stream;
+
+/**
+ * Job event topics, created on startup when jobs are dispatched through Kafka.
+ * The partition count caps how many pdf-core replicas can share the dispatch load.
+ */
+@Configuration
+@ConditionalOnProperty(name = "pdf.worker.dispatch", havingValue = "kafka")
+public class KafkaTopicConfig {
+
+    @Bean
+    public KafkaAdmin.NewTopics pdfJobTopics(
+            @Value("${pdf.worker.kafka.partitions:12}") int partitions,
+            @Value("${pdf.worker.kafka.replicas:1}") int replicas) {
+        return new KafkaAdmin.NewTopics(Stream.of(
+                        PdfEventTypes.PDF_MERGE_REQUESTED, PdfEventTypes.PDF_MERGE_COMPLETED, PdfEventTypes.PDF_MERGE_FAILED,
+                        PdfEventTypes.PDF_COMPRESS_REQUESTED, PdfEventTypes.PDF_COMPRESS_COMPLETED, PdfEventTypes.PDF_COMPRESS_FAILED,
+                        PdfEventTypes.PDF_EDIT_REQUESTED, PdfEventTypes.PDF_EDIT_COMPLETED, PdfEventTypes.PDF_EDIT_FAILED,
+                        PdfEventTypes.PDF_BATCH_COMPLETED, PdfEventTypes.PDF_BATCH_FAILED)
+                .map(topic -> TopicBuilder.name(topic).partitions(partitions).replicas(replicas).build())
+                .toArray(NewTopic[]::new));
+    }
+}
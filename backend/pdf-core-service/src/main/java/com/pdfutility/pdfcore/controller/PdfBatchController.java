@@ -0,0 +1,120 @@
+package com.pdfutility.pdfcore.controller;
+
+import com.pdfutility.common.dto.ApiResponse;
+import com.pdfutility.pdfcore.dto.PdfOperationRequests.BatchRequest;
+import com.pdfutility.pdfcore.dto.PdfOperationResponses.BatchStatusResponse;
+import com.pdfutility.pdfcore.dto.PdfOperationResponses.JobCreatedResponse;
+import com.pdfutility.pdfcore.model.JobStatus;
+import com.pdfutility.pdfcore.model.JobType;
+import com.pdfutility.pdfcore.service.PdfBatchService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.validation.Valid;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+
+/**
+ * PDF Batch Controller - Reactive REST API.
+ */
+@Slf4j
+@RestController
+@RequestMapping("/api/v1/pdf/batch")
+@RequiredArgsConstructor
+@Tag(name = "PDF Batch", description = "Apply an operation to many PDFs")
+public class PdfBatchController {
+
+    private static final MediaType APPLICATION_ZIP = MediaType.parseMediaType("application/zip");
+
+    private final PdfBatchService batchService;
+
+    /**
+     * Create a batch with one job per file.
+     */
+    @PostMapping
+    @Operation(summary = "Create batch", description = "Apply the same operations to each of many PDF files")
+    public Mono<ResponseEntity<ApiResponse<JobCreatedResponse>>> createBatch(
+            @Valid @RequestBody BatchRequest request,
+            @RequestHeader("X-User-Id") String userId) {
+
+        return batchService.createBatch(request.getFileIds(), request.getOperations(), userId)
+                .map(batchId -> JobCreatedResponse.builder()
+                        .jobId(batchId)
+                        .jobType(JobType.BATCH)
+                        .status(JobStatus.PROCESSING)
+                        .message("Batch of " + request.getFileIds().size() + " files created successfully")
+                        .createdAt(LocalDateTime.now())
+                        .trackingUrl("/api/v1/pdf/batch/" + batchId)
+                        .build())
+                .map(response -> ResponseEntity.status(HttpStatus.ACCEPTED)
+                        .body(ApiResponse.success(response, "Batch submitted")))
+                .timeout(Duration.ofSeconds(30))
+                .onErrorReturn(e -> !(e instanceof IllegalArgumentException),
+                        ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                                .body(ApiResponse.error("Failed to create batch")));
+    }
+
+    /**
+     * Get batch progress and outputs.
+     */
+    @GetMapping("/{batchId}")
+    @Operation(summary = "Get batch", description = "Get the progress of a batch and the output of each file")
+    public Mono<ResponseEntity<ApiResponse<BatchStatusResponse>>> getBatch(
+            @PathVariable String batchId,
+            @RequestHeader("X-User-Id") String userId) {
+
+        return batchService.getBatch(batchId, userId)
+                .map(response -> ResponseEntity.ok(ApiResponse.success(response)))
+                .defaultIfEmpty(ResponseEntity.notFound().build())
+                .timeout(Duration.ofSeconds(10));
+    }
+
+    /**
+     * Download the outputs of a finished batch as one ZIP archive.
+     */
+    @GetMapping(value = "/{batchId}/zip", produces = "application/zip")
+    @Operation(summary = "Download batch", description = "Stream the outputs of a completed batch as a ZIP archive")
+    public Mono<ResponseEntity<Flux<DataBuffer>>> downloadBatch(
+            @PathVariable String batchId,
+            @RequestHeader("X-User-Id") String userId) {
+
+        return batchService.getBatch(batchId, userId)
+                .map(batch -> batch.getStatus() != JobStatus.COMPLETED
+                        ? ResponseEntity.status(HttpStatus.CONFLICT).<Flux<DataBuffer>>build()
+                        : ResponseEntity.ok()
+                                .contentType(APPLICATION_ZIP)
+                                .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment()
+                                        .filename("batch_" + batchId + ".zip")
+                                        .build()
+                                        .toString())
+                                .body(batchService.zipOutputs(batch)))
+                .defaultIfEmpty(ResponseEntity.notFound().build());
+    }
+
+    /**
+     * Cancel the files of a batch that have not started yet.
+     */
+    @PostMapping("/{batchId}/cancel")
+    @Operation(summary = "Cancel batch", description = "Cancel the pending files of a running batch")
+    public Mono<ResponseEntity<ApiResponse<Void>>> cancelBatch(
+            @PathVariable String batchId,
+            @RequestHeader("X-User-Id") String userId) {
+
+        return batchService.cancelBatch(batchId, userId)
+                .map(cancelled -> ResponseEntity.ok(ApiResponse.<Void>success(null,
+                        cancelled + " pending files cancelled")))
+                .defaultIfEmpty(ResponseEntity.badRequest()
+                        .body(ApiResponse.error("Batch cannot be cancelled")));
+    }
+}
@@ -5,6 +5,7 @@ import com.pdfutility.pdfcore.dto.PdfOperationRequests.CompressRequest;
 import com.pdfutility.pdfcore.dto.PdfOperationResponses.CompressionResultResponse;
 import com.pdfutility.pdfcore.dto.PdfOperationResponses.JobCreatedResponse;
 import com.pdfutility.pdfcore.model.CompressionLevel;
+import com.pdfutility.pdfcore.model.JobLane;
 import com.pdfutility.pdfcore.model.JobStatus;
 import com.pdfutility.pdfcore.model.JobType;
 import com.pdfutility.pdfcore.repository.PdfJobRepository;
@@ -42,7 +43,8 @@ public class PdfCompressController {
     @Operation(summary = "Compress PDF", description = "Compress a PDF file to reduce size")
     public Mono<ResponseEntity<ApiResponse<JobCreatedResponse>>> compressPdf(
             @Valid @RequestBody CompressRequest request,
-            @RequestHeader("X-User-Id") String userId) {
+            @RequestHeader("X-User-Id") String userId,
+            @RequestHeader(value = "X-User-Roles", required = false) String roles) {
 
         CompressionLevel level = request.getCompressionLevel() != null 
                 ? request.getCompressionLevel() 
@@ -50,7 +52,8 @@ public class PdfCompressController {
         boolean removeMetadata = request.getRemoveMetadata() != null && request.getRemoveMetadata();
         boolean optimizeImages = request.getOptimizeImages() != null && request.getOptimizeImages();
 
-        return compressService.compressPdfAsync(request.getFileId(), level, removeMetadata, optimizeImages, userId)
+        return compressService.compressPdfAsync(request.getFileId(), level, removeMetadata, optimizeImages, userId,
+                        JobLane.forCaller(roles))
                 .map(jobId -> JobCreatedResponse.builder()
                         .jobId(jobId)
                         .jobType(JobType.COMPRESS)
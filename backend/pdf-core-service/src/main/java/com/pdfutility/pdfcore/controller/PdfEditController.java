@@ -1,13 +1,13 @@
 package com.pdfutility.pdfcore.controller;
 
 import com.pdfutility.common.dto.ApiResponse;
+import com.pdfutility.common.exception.ProcessingCapacityException;
 import com.pdfutility.pdfcore.dto.PdfOperationRequests.*;
 import com.pdfutility.pdfcore.dto.PdfOperationResponses.JobCreatedResponse;
 import com.pdfutility.pdfcore.dto.PdfOperationResponses.PdfInfoResponse;
 import com.pdfutility.pdfcore.model.JobStatus;
 import com.pdfutility.pdfcore.model.JobType;
 import com.pdfutility.pdfcore.service.PdfEditService;
-import com.pdfutility.pdfcore.service.StorageClient;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
@@ -20,7 +20,6 @@ import reactor.core.publisher.Mono;
 
 import java.time.Duration;
 import java.time.LocalDateTime;
-import java.util.UUID;
 
 /**
  * PDF Edit Controller - Reactive REST API.
@@ -34,7 +33,6 @@ import java.util.UUID;
 public class PdfEditController {
 
     private final PdfEditService editService;
-    private final StorageClient storageClient;
 
     /**
      * Add watermark to PDF.
@@ -48,10 +46,7 @@ public class PdfEditController {
         float opacity = request.getOpacity() != null ? request.getOpacity() : 0.5f;
         int rotation = request.getRotation() != null ? request.getRotation() : 45;
 
-        return storageClient.downloadFile(request.getFileId())
-                .flatMap(content -> editService.addWatermark(content, request.getWatermarkText(), opacity, rotation))
-                .flatMap(result -> storageClient.uploadFile(result, 
-                        "watermarked_" + UUID.randomUUID() + ".pdf", "application/pdf"))
+        return editService.addWatermark(request.getFileId(), request.getWatermarkText(), opacity, rotation, userId)
                 .map(outputFileId -> JobCreatedResponse.builder()
                         .jobId(outputFileId)
                         .jobType(JobType.WATERMARK)
@@ -63,8 +58,9 @@ public class PdfEditController {
                 .map(response -> ResponseEntity.status(HttpStatus.CREATED)
                         .body(ApiResponse.success(response)))
                 .timeout(Duration.ofMinutes(2))
-                .onErrorReturn(ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
-                        .body(ApiResponse.error("Failed to add watermark")));
+                .onErrorReturn(e -> !(e instanceof ProcessingCapacityException),
+                        ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                                .body(ApiResponse.error("Failed to add watermark")));
     }
 
     /**
@@ -76,10 +72,7 @@ public class PdfEditController {
             @Valid @RequestBody RotateRequest request,
             @RequestHeader("X-User-Id") String userId) {
 
-        return storageClient.downloadFile(request.getFileId())
-                .flatMap(content -> editService.rotatePages(content, request.getAngle(), request.getPageNumbers()))
-                .flatMap(result -> storageClient.uploadFile(result, 
-                        "rotated_" + UUID.randomUUID() + ".pdf", "application/pdf"))
+        return editService.rotatePages(request.getFileId(), request.getAngle(), request.getPageNumbers(), userId)
                 .map(outputFileId -> JobCreatedResponse.builder()
                         .jobId(outputFileId)
                         .jobType(JobType.ROTATE)
@@ -91,8 +84,9 @@ public class PdfEditController {
                 .map(response -> ResponseEntity.status(HttpStatus.CREATED)
                         .body(ApiResponse.success(response)))
                 .timeout(Duration.ofMinutes(2))
-                .onErrorReturn(ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
-                        .body(ApiResponse.error("Failed to rotate pages")));
+                .onErrorReturn(e -> !(e instanceof ProcessingCapacityException),
+                        ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                                .body(ApiResponse.error("Failed to rotate pages")));
     }
 
     /**
@@ -107,10 +101,7 @@ public class PdfEditController {
         int fromPage = request.getFromPage() != null ? request.getFromPage() : 1;
         int toPage = request.getToPage() != null ? request.getToPage() : Integer.MAX_VALUE;
 
-        return storageClient.downloadFile(request.getFileId())
-                .flatMap(content -> editService.extractPages(content, fromPage, toPage))
-                .flatMap(result -> storageClient.uploadFile(result, 
-                        "extracted_" + UUID.randomUUID() + ".pdf", "application/pdf"))
+        return editService.extractPages(request.getFileId(), fromPage, toPage, userId)
                 .map(outputFileId -> JobCreatedResponse.builder()
                         .jobId(outputFileId)
                         .jobType(JobType.SPLIT)
@@ -122,8 +113,9 @@ public class PdfEditController {
                 .map(response -> ResponseEntity.status(HttpStatus.CREATED)
                         .body(ApiResponse.success(response)))
                 .timeout(Duration.ofMinutes(2))
-                .onErrorReturn(ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
-                        .body(ApiResponse.error("Failed to split PDF")));
+                .onErrorReturn(e -> !(e instanceof ProcessingCapacityException),
+                        ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                                .body(ApiResponse.error("Failed to split PDF")));
     }
 
     /**
@@ -138,11 +130,8 @@ public class PdfEditController {
         boolean allowPrinting = request.getAllowPrinting() != null && request.getAllowPrinting();
         boolean allowCopying = request.getAllowCopying() != null && request.getAllowCopying();
 
-        return storageClient.downloadFile(request.getFileId())
-                .flatMap(content -> editService.protectPdf(content, request.getPassword(), 
-                        request.getOwnerPassword(), allowPrinting, allowCopying))
-                .flatMap(result -> storageClient.uploadFile(result, 
-                        "protected_" + UUID.randomUUID() + ".pdf", "application/pdf"))
+        return editService.protectPdf(request.getFileId(), request.getPassword(),
+                        request.getOwnerPassword(), allowPrinting, allowCopying, userId)
                 .map(outputFileId -> JobCreatedResponse.builder()
                         .jobId(outputFileId)
                         .jobType(JobType.PROTECT)
@@ -154,8 +143,9 @@ public class PdfEditController {
                 .map(response -> ResponseEntity.status(HttpStatus.CREATED)
                         .body(ApiResponse.success(response)))
                 .timeout(Duration.ofMinutes(2))
-                .onErrorReturn(ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
-                        .body(ApiResponse.error("Failed to protect PDF")));
+                .onErrorReturn(e -> !(e instanceof ProcessingCapacityException),
+                        ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                                .body(ApiResponse.error("Failed to protect PDF")));
     }
 
     /**
@@ -167,10 +157,7 @@ public class PdfEditController {
             @Valid @RequestBody UnlockRequest request,
             @RequestHeader("X-User-Id") String userId) {
 
-        return storageClient.downloadFile(request.getFileId())
-                .flatMap(content -> editService.unlockPdf(content, request.getPassword()))
-                .flatMap(result -> storageClient.uploadFile(result, 
-                        "unlocked_" + UUID.randomUUID() + ".pdf", "application/pdf"))
+        return editService.unlockPdf(request.getFileId(), request.getPassword(), userId)
                 .map(outputFileId -> JobCreatedResponse.builder()
                         .jobId(outputFileId)
                         .jobType(JobType.UNLOCK)
@@ -182,8 +169,9 @@ public class PdfEditController {
                 .map(response -> ResponseEntity.status(HttpStatus.CREATED)
                         .body(ApiResponse.success(response)))
                 .timeout(Duration.ofMinutes(2))
-                .onErrorReturn(ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
-                        .body(ApiResponse.error("Failed to unlock PDF")));
+                .onErrorReturn(e -> !(e instanceof ProcessingCapacityException),
+                        ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                                .body(ApiResponse.error("Failed to unlock PDF")));
     }
 
     /**
@@ -194,12 +182,12 @@ public class PdfEditController {
     public Mono<ResponseEntity<ApiResponse<PdfInfoResponse>>> getPdfInfo(
             @PathVariable String fileId) {
 
-        return storageClient.downloadFile(fileId)
-                .flatMap(editService::getPdfInfo)
+        return editService.getPdfInfo(fileId)
                 .map(response -> ResponseEntity.ok(ApiResponse.success(response)))
                 .timeout(Duration.ofSeconds(30))
-                .onErrorResume(e -> Mono.just(ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
-                        .body(ApiResponse.error("Failed to get PDF info"))));
+                .onErrorResume(e -> !(e instanceof ProcessingCapacityException),
+                        e -> Mono.just(ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                                .body(ApiResponse.error("Failed to get PDF info"))));
     }
 
     /**
@@ -218,10 +206,8 @@ public class PdfEditController {
         String fontName = request.getFontName() != null ? request.getFontName() : "Helvetica";
         String color = request.getColor() != null ? request.getColor() : "#000000";
 
-        return storageClient.downloadFile(request.getFileId())
-                .flatMap(content -> editService.addText(content, request.getText(), page, x, y, fontSize, fontName, color))
-                .flatMap(result -> storageClient.uploadFile(result, 
-                        "text_added_" + UUID.randomUUID() + ".pdf", "application/pdf"))
+        return editService.addText(request.getFileId(), request.getText(), page, x, y, fontSize, fontName, color,
+                        userId)
                 .map(outputFileId -> JobCreatedResponse.builder()
                         .jobId(outputFileId)
                         .jobType(JobType.EDIT)
@@ -233,7 +219,36 @@ public class PdfEditController {
                 .map(response -> ResponseEntity.status(HttpStatus.CREATED)
                         .body(ApiResponse.success(response)))
                 .timeout(Duration.ofMinutes(2))
-                .onErrorReturn(ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
-                        .body(ApiResponse.error("Failed to add text")));
+                .onErrorReturn(e -> !(e instanceof ProcessingCapacityException),
+                        ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                                .body(ApiResponse.error("Failed to add text")));
+    }
+
+    /**
+     * Apply a chain of operations with a single download, load, save and upload.
+     */
+    @PostMapping("/pipeline")
+    @Operation(summary = "Apply operations",
+            description = "Apply an ordered list of edit and compress operations to a PDF in one pass")
+    public Mono<ResponseEntity<ApiResponse<JobCreatedResponse>>> applyOperations(
+            @Valid @RequestBody PipelineRequest request,
+            @RequestHeader("X-User-Id") String userId) {
+
+        return editService.applyOperations(request.getFileId(), request.getOperations(),
+                        request.getOutputFileName(), userId)
+                .map(outputFileId -> JobCreatedResponse.builder()
+                        .jobId(outputFileId)
+                        .jobType(JobType.EDIT)
+                        .status(JobStatus.COMPLETED)
+                        .message(request.getOperations().size() + " operations applied successfully")
+                        .createdAt(LocalDateTime.now())
+                        .trackingUrl("/api/v1/files/" + outputFileId)
+                        .build())
+                .map(response -> ResponseEntity.status(HttpStatus.CREATED)
+                        .body(ApiResponse.success(response)))
+                .timeout(Duration.ofMinutes(5))
+                .onErrorReturn(e -> !(e instanceof ProcessingCapacityException || e instanceof IllegalArgumentException),
+                        ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                                .body(ApiResponse.error("Failed to apply operations")));
     }
 }
@@ -109,6 +109,8 @@ public class PdfJobController {
 
         return jobRepository.findById(jobId)
                 .filter(job -> job.userId().equals(userId))
+                // Batches are cancelled through the batch API, which cancels their files
+                .filter(job -> job.jobType() != JobType.BATCH)
                 .filter(job -> job.status() == JobStatus.PENDING || job.status() == JobStatus.PROCESSING)
                 .flatMap(job -> jobRepository.updateStatus(jobId, JobStatus.CANCELLED, LocalDateTime.now()))
                 .map(updated -> ResponseEntity.ok(ApiResponse.<Void>success(null, "Job cancelled successfully")))
@@ -147,7 +149,7 @@ public class PdfJobController {
 
         return jobRepository.findById(jobId)
                 .filter(job -> job.userId().equals(userId))
-                .filter(job -> job.status() == JobStatus.FAILED)
+                .filter(job -> job.status() == JobStatus.FAILED && job.jobType() != JobType.BATCH)
                 .flatMap(job -> {
                     PdfJob retriedJob = job.withStatus(JobStatus.PENDING)
                             .withProgress(0)
@@ -5,6 +5,7 @@ import com.pdfutility.pdfcore.dto.PdfOperationRequests.MergeRequest;
 import com.pdfutility.pdfcore.dto.PdfOperationResponses.JobCreatedResponse;
 import com.pdfutility.pdfcore.dto.PdfOperationResponses.JobStatusResponse;
 import com.pdfutility.pdfcore.dto.PdfOperationResponses.MergeResultResponse;
+import com.pdfutility.pdfcore.model.JobLane;
 import com.pdfutility.pdfcore.model.JobStatus;
 import com.pdfutility.pdfcore.model.PdfJob;
 import com.pdfutility.pdfcore.repository.PdfJobRepository;
@@ -43,11 +44,14 @@ public class PdfMergeController {
     @Operation(summary = "Merge PDFs", description = "Merge multiple PDF files into one")
     public Mono<ResponseEntity<ApiResponse<JobCreatedResponse>>> mergePdfs(
             @Valid @RequestBody MergeRequest request,
-            @RequestHeader("X-User-Id") String userId) {
+            @RequestHeader("X-User-Id") String userId,
+            @RequestHeader(value = "X-User-Roles", required = false) String roles) {
 
         boolean preserveBookmarks = request.getPreserveBookmarks() != null && request.getPreserveBookmarks();
+        boolean deduplicateResources = request.getDeduplicateResources() == null || request.getDeduplicateResources();
 
-        return mergeService.mergePdfsAsync(request.getFileIds(), preserveBookmarks, userId)
+        return mergeService.mergePdfsAsync(request.getFileIds(), preserveBookmarks, deduplicateResources, userId,
+                        JobLane.forCaller(roles))
                 .map(jobId -> JobCreatedResponse.builder()
                         .jobId(jobId)
                         .jobType(com.pdfutility.pdfcore.model.JobType.MERGE)
@@ -1,6 +1,7 @@
 package com.pdfutility.pdfcore.dto;
 
 import com.pdfutility.pdfcore.model.CompressionLevel;
+import jakarta.validation.Valid;
 import jakarta.validation.constraints.NotEmpty;
 import jakarta.validation.constraints.NotNull;
 import lombok.Builder;
@@ -28,6 +29,8 @@ public final class PdfOperationRequests {
         String outputFileName;
         
         Boolean preserveBookmarks;
+        
+        Boolean deduplicateResources; // store identical fonts/images once, default true
     }
 
     /**
@@ -158,6 +161,88 @@ public final class PdfOperationRequests {
         String color;
     }
 
+    /**
+     * Request to apply a chain of operations to a PDF with a single load and save.
+     */
+    @Value
+    @Builder
+    public static class PipelineRequest {
+        @NotNull(message = "File ID is required")
+        String fileId;
+
+        @NotEmpty(message = "At least one operation is required")
+        List<@Valid PipelineOperation> operations; // applied in order
+
+        String outputFileName;
+    }
+
+    /**
+     * One step of a pipeline. Only the fields of the step's type are used; they take the same
+     * defaults as the corresponding single operation.
+     */
+    @Value
+    @Builder
+    public static class PipelineOperation {
+        @NotNull(message = "Operation type is required")
+        PipelineOperationType type;
+
+        // ADD_TEXT
+        String text;
+        Integer pageNumber;
+        Float x;
+        Float y;
+        String fontName;
+        Integer fontSize;
+        String color;
+
+        // WATERMARK
+        String watermarkText;
+        Float opacity;
+        Integer rotation;
+
+        // ROTATE
+        Integer angle;
+        List<Integer> pageNumbers;
+
+        // EXTRACT_PAGES
+        Integer fromPage;
+        Integer toPage;
+
+        // COMPRESS
+        CompressionLevel compressionLevel;
+        Boolean removeMetadata;
+        Boolean optimizeImages;
+
+        // PROTECT (last step only) and UNLOCK (first step only)
+        String password;
+        String ownerPassword;
+        Boolean allowPrinting;
+        Boolean allowCopying;
+    }
+
+    /**
+     * Request to apply the same operation, or chain of operations, to many PDFs.
+     */
+    @Value
+    @Builder
+    public static class BatchRequest {
+        @NotEmpty(message = "At least one file ID is required")
+        List<String> fileIds; // one job per file
+
+        @NotEmpty(message = "At least one operation is required")
+        List<@Valid PipelineOperation> operations; // applied to every file, as in a pipeline
+    }
+
+    public enum PipelineOperationType {
+        ADD_TEXT,
+        WATERMARK,
+        ROTATE,
+        EXTRACT_PAGES,
+        COMPRESS,
+        PROTECT,
+        UNLOCK
+    }
+
     public enum SplitMode {
         EXTRACT_PAGES,    // Extract specific pages
         SPLIT_BY_RANGE,   // Split by page range
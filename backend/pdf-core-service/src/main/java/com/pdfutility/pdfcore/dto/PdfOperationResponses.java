@@ -133,4 +133,37 @@ public final class PdfOperationResponses {
         Integer pageCount;
         List<Integer> pageNumbers;
     }
+
+    /**
+     * Response for batch status query.
+     */
+    @Value
+    @Builder
+    public static class BatchStatusResponse {
+        String batchId;
+        JobStatus status;
+        Integer progress;
+        Integer totalFiles;
+        Integer completedFiles;
+        Integer failedFiles;
+        List<String> outputFileIds; // in the order of the inputs, completed files only
+        List<BatchItemResponse> items;
+        String errorMessage;
+        String zipUrl;
+        LocalDateTime createdAt;
+        LocalDateTime completedAt;
+    }
+
+    /**
+     * Status of one file of a batch.
+     */
+    @Value
+    @Builder
+    public static class BatchItemResponse {
+        String jobId;
+        String inputFileId;
+        JobStatus status;
+        String outputFileId;
+        String errorMessage;
+    }
 }
@@ -0,0 +1,34 @@
+package com.pdfutility.pdfcore.model;
+
+import java.util.Arrays;
+
+/**
+ * Priority lanes of the job queue. Lanes share the workers by weight, so a busy lane slows
+ * the others down but never starves them.
+ */
+public enum JobLane {
+    /** Jobs submitted by an interactive user who is waiting for the result. */
+    INTERACTIVE,
+    /** Bulk submissions, run with whatever capacity the other lanes leave. */
+    BATCH,
+    /** Jobs submitted by a caller holding the enterprise role. */
+    ENTERPRISE;
+
+    private static final String ENTERPRISE_ROLE = "ENTERPRISE";
+
+    /**
+     * Lane of a single job submitted through the API.
+     * Roles come from the X-User-Roles header, which the gateway sets from the verified token and strips
+     * from every other request, so callers cannot pick the lane themselves.
+     *
+     * @param roles The caller's comma-separated roles, if any
+     */
+    public static JobLane forCaller(String roles) {
+        if (roles == null) {
+            return INTERACTIVE;
+        }
+        return Arrays.stream(roles.split(","))
+                .map(String::trim)
+                .anyMatch(ENTERPRISE_ROLE::equals) ? ENTERPRISE : INTERACTIVE;
+    }
+}
@@ -13,5 +13,6 @@ public enum JobType {
     PROTECT,
     UNLOCK,
     OCR,
-    WATERMARK
+    WATERMARK,
+    BATCH
 }
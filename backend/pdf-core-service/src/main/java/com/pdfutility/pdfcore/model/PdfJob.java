@@ -26,6 +26,12 @@ public record PdfJob(
         @Column("job_type")
         JobType jobType,
 
+        @Column("lane")
+        JobLane lane,
+
+        @Column("parent_id")
+        String parentId,
+
         @Column("status")
         JobStatus status,
 
@@ -51,23 +57,62 @@ public record PdfJob(
         LocalDateTime updatedAt,
 
         @Column("completed_at")
-        LocalDateTime completedAt
+        LocalDateTime completedAt,
+
+        @Column("attempts")
+        Integer attempts,
+
+        @Column("max_attempts")
+        Integer maxAttempts,
+
+        @Column("worker_id")
+        String workerId,
+
+        @Column("heartbeat_at")
+        LocalDateTime heartbeatAt
 ) {
+    public static final int DEFAULT_MAX_ATTEMPTS = 3;
+
     public static PdfJob createNew(String id, String userId, JobType jobType, List<String> inputFileIds, String parameters) {
+        return createNew(id, userId, jobType, JobLane.INTERACTIVE, inputFileIds, parameters);
+    }
+
+    public static PdfJob createNew(String id, String userId, JobType jobType, JobLane lane,
+                                   List<String> inputFileIds, String parameters) {
         LocalDateTime now = LocalDateTime.now();
         return PdfJob.builder()
                 .id(id)
                 .userId(userId)
                 .jobType(jobType)
+                .lane(lane)
                 .status(JobStatus.PENDING)
                 .inputFileIds(inputFileIds)
                 .parameters(parameters)
                 .progress(0)
+                .attempts(0)
+                .maxAttempts(DEFAULT_MAX_ATTEMPTS)
                 .createdAt(now)
                 .updatedAt(now)
                 .build();
     }
 
+    /**
+     * Parent of a batch. It is never claimed by a worker: it is in progress from the start and
+     * finishes when its last child does.
+     */
+    public static PdfJob createBatch(String id, String userId, List<String> inputFileIds, String parameters) {
+        return createNew(id, userId, JobType.BATCH, JobLane.BATCH, inputFileIds, parameters)
+                .withStatus(JobStatus.PROCESSING);
+    }
+
+    /**
+     * Child of a batch, processing one of its inputs.
+     */
+    public static PdfJob createChild(String id, PdfJob batch, JobType jobType, String inputFileId, String parameters) {
+        return createNew(id, batch.userId(), jobType, JobLane.BATCH, List.of(inputFileId), parameters)
+                .withParentId(batch.id());
+    }
+
     public PdfJob markProcessing() {
         return this.withStatus(JobStatus.PROCESSING)
                 .withUpdatedAt(LocalDateTime.now());
@@ -0,0 +1,44 @@
+package com.pdfutility.pdfcore.processing;
+
+import com.pdfutility.pdfcore.model.CompressionLevel;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Image optimization settings per compression level.
+ *
+ * @param defaultLevel Level used when a request does not name one
+ * @param levels Target resolution and JPEG quality for each level
+ */
+@ConfigurationProperties(prefix = "pdf.processing.compression")
+public record CompressionProperties(
+        CompressionLevel defaultLevel,
+        Map<CompressionLevel, Level> levels
+) {
+    public CompressionProperties {
+        if (defaultLevel == null) {
+            defaultLevel = CompressionLevel.MEDIUM;
+        }
+        Map<CompressionLevel, Level> resolved = new EnumMap<>(CompressionLevel.class);
+        resolved.put(CompressionLevel.LOW, new Level(0.9f, 150));
+        resolved.put(CompressionLevel.MEDIUM, new Level(0.7f, 100));
+        resolved.put(CompressionLevel.HIGH, new Level(0.5f, 72));
+        if (levels != null) {
+            resolved.putAll(levels);
+        }
+        levels = resolved;
+    }
+
+    public Level level(CompressionLevel level) {
+        return levels.get(level != null ? level : defaultLevel);
+    }
+
+    /**
+     * @param imageQuality JPEG quality between 0 and 1
+     * @param dpi Images placed at a higher effective resolution are downsampled to this
+     */
+    public record Level(float imageQuality, int dpi) {
+    }
+}
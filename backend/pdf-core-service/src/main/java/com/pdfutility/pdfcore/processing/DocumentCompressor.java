@@ -0,0 +1,132 @@
+package com.pdfutility.pdfcore.processing;
+
+import com.pdfutility.pdfcore.model.CompressionLevel;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.pdfbox.pdfwriter.compress.CompressParameters;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDDocumentInformation;
+import org.springframework.stereotype.Component;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Compression of a loaded document: metadata removal, image optimization and the structural passes,
+ * followed by a compressed save. Used on its own by the compress operation and as one step of an edit chain.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class DocumentCompressor {
+
+    private final ImageOptimizer imageOptimizer;
+    private final StructuralOptimizer structuralOptimizer;
+    private final MeterRegistry meterRegistry;
+
+    /**
+     * Bytes saved by the passes run before the document is saved.
+     */
+    public record Report(long imageBytes, StructuralOptimizer.Report structural) {
+    }
+
+    /**
+     * Optimize the document in place.
+     */
+    public Report optimize(PDDocument document, CompressionLevel level,
+                           boolean removeMetadata, boolean optimizeImages) throws IOException {
+        if (removeMetadata) {
+            PDDocumentInformation info = document.getDocumentInformation();
+            info.setAuthor(null);
+            info.setTitle(null);
+            info.setSubject(null);
+            info.setKeywords(null);
+            info.setCreator(null);
+            info.setProducer(null);
+        }
+
+        // Downsample and recompress images if requested
+        long imageBytes = optimizeImages ? imageOptimizer.optimize(document, level) : 0;
+
+        // Drop unused resources, share duplicate fonts and re-deflate streams
+        return new Report(imageBytes, structuralOptimizer.optimize(document));
+    }
+
+    /**
+     * Full save with object streams and a compressed xref stream; unreachable objects are not written.
+     *
+     * @return Bytes written
+     */
+    public long save(PDDocument document, OutputStream output) throws IOException {
+        CountingOutputStream counted = new CountingOutputStream(output);
+        document.save(counted, CompressParameters.DEFAULT_COMPRESSION);
+        return counted.count;
+    }
+
+    /**
+     * Record what the compression saved. The passes measure their own savings; the rest of the size difference,
+     * from object streams, xref compression and dropped objects, is only estimated as the residual and is
+     * tagged as such.
+     */
+    public void record(long originalSize, long compressedSize, Report report) {
+        StructuralOptimizer.Report structural = report.structural();
+        long residualBytes = originalSize - compressedSize - report.imageBytes() - structural.totalBytes();
+
+        recordSavings("images", report.imageBytes(), false);
+        recordSavings("unused_resources", structural.removedResourceBytes(), false);
+        recordSavings("duplicate_fonts", structural.duplicateFontBytes(), false);
+        recordSavings("stream_recompression", structural.recompressionBytes(), false);
+        recordSavings("object_streams", residualBytes, true);
+
+        if (originalSize > 0) {
+            double ratio = 1.0 - ((double) compressedSize / originalSize);
+            log.info("Compression complete. Original: {} bytes, Compressed: {} bytes, Ratio: {}%",
+                    originalSize, compressedSize, String.format("%.2f", ratio * 100));
+        } else {
+            log.info("Compression complete. Original: empty, Compressed: {} bytes", compressedSize);
+        }
+        log.info("Bytes saved - images: {}, unused resources: {} ({} entries), duplicate fonts: {} ({}), "
+                        + "stream recompression: {} ({} streams), object streams/xref (estimated): {}",
+                report.imageBytes(), structural.removedResourceBytes(), structural.removedResources(),
+                structural.duplicateFontBytes(), structural.duplicateFonts(),
+                structural.recompressionBytes(), structural.recompressedStreams(), residualBytes);
+        if (residualBytes < 0) {
+            // The save itself added bytes (e.g. a fresh xref or re-serialized objects), so nothing is recorded for it
+            log.debug("Save overhead of {} bytes offsets part of the measured savings", -residualBytes);
+        }
+    }
+
+    private void recordSavings(String category, long bytes, boolean estimated) {
+        if (bytes > 0) {
+            meterRegistry.counter("pdf.compression.saved.bytes",
+                            "category", category, "estimated", String.valueOf(estimated))
+                    .increment(bytes);
+        }
+    }
+
+    /**
+     * Counts the bytes written through it, so the compressed size is known without buffering the output.
+     */
+    private static final class CountingOutputStream extends FilterOutputStream {
+
+        private long count;
+
+        CountingOutputStream(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            count += len;
+        }
+    }
+}
@@ -0,0 +1,215 @@
+package com.pdfutility.pdfcore.processing;
+
+import com.pdfutility.common.exception.PdfProcessingException;
+import com.pdfutility.pdfcore.model.JobType;
+import com.pdfutility.pdfcore.service.StorageClient;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Runs document operations from storage to storage.
+ * In the file-backed pipeline (the default) inputs are spooled to temp files and parsed from disk, and the
+ * output is written to a temp file and streamed to storage from there, so per-job heap stays small whatever
+ * the document size. Otherwise inputs are held on the heap within the prefetch budget and the output is buffered.
+ * Temp files are removed once the operation completes, fails or is cancelled.
+ * Operations run with their parameters are looked up in the {@link ResultCache} first, and identical
+ * operations running at the same time are coalesced by {@link SingleFlight}.
+ * Outputs that are incremental updates of their input are uploaded by sending only the appended bytes.
+ */
+@Slf4j
+@Component
+public class DocumentPipeline {
+
+    private static final String PDF_CONTENT_TYPE = "application/pdf";
+    private static final int OUTPUT_BUFFER_SIZE = 64 * 1024;
+
+    private final InputPrefetcher inputPrefetcher;
+    private final PdfProcessingExecutor processingExecutor;
+    private final StorageClient storageClient;
+    private final ResultCache resultCache;
+    private final SingleFlight singleFlight;
+    private final IncrementalSaveProperties incrementalSave;
+    private final Path tempDirectory;
+    private final boolean fileBacked;
+
+    public DocumentPipeline(InputPrefetcher inputPrefetcher,
+                            PdfProcessingExecutor processingExecutor,
+                            StorageClient storageClient,
+                            ResultCache resultCache,
+                            SingleFlight singleFlight,
+                            IncrementalSaveProperties incrementalSave,
+                            @Value("${pdf.processing.temp-directory:${java.io.tmpdir}}") String tempDirectory,
+                            @Value("${pdf.processing.pipeline.file-backed:true}") boolean fileBacked) {
+        this.inputPrefetcher = inputPrefetcher;
+        this.processingExecutor = processingExecutor;
+        this.storageClient = storageClient;
+        this.resultCache = resultCache;
+        this.singleFlight = singleFlight;
+        this.incrementalSave = incrementalSave;
+        this.tempDirectory = Paths.get(tempDirectory);
+        this.fileBacked = fileBacked;
+    }
+
+    /**
+     * Download the inputs, apply the operation on the processing executor and upload its output.
+     *
+     * @param operation Operation type, used for executor admission
+     * @param fileIds Input files, passed to the operation in this order
+     * @param outputName File name of the result
+     * @param userId Owner of the result
+     * @param transform Writes the result for the given inputs
+     * @return File ID of the result
+     */
+    public Mono<String> transform(JobType operation, List<String> fileIds, String outputName, String userId,
+                                  Transform transform) {
+        return inputPrefetcher.fetchAll(fileIds)
+                .flatMap(inputs -> (fileBacked
+                        ? transformToFile(operation, inputs, outputName, transform,
+                                file -> storageClient.uploadFile(file, outputName, PDF_CONTENT_TYPE, userId))
+                        : transformInMemory(operation, inputs, outputName, userId, transform))
+                        .doFinally(signal -> inputs.forEach(PdfInput::close)));
+    }
+
+    /**
+     * Like {@link #transform(JobType, List, String, String, Transform)}, but an earlier output of the same
+     * operation with the same parameters on the same input content is returned as is, without downloading
+     * or processing anything, and an identical operation already running is waited for rather than repeated.
+     *
+     * @param parameters Everything besides the inputs that affects the output
+     */
+    public Mono<String> transform(JobType operation, List<String> fileIds, Map<String, ?> parameters,
+                                  String outputName, String userId, Transform transform) {
+        return reuse(operation, fileIds, parameters, outputName, userId,
+                transform(operation, fileIds, outputName, userId, transform));
+    }
+
+    /**
+     * Like {@link #transform(JobType, List, Map, String, String, Transform)} for a single input, where the
+     * transform writes the input unchanged followed by an incremental update. In the file-backed pipeline
+     * only the update is sent to storage, which appends it to its copy of the input; should that fail,
+     * the whole output is uploaded instead.
+     */
+    public Mono<String> update(JobType operation, String fileId, Map<String, ?> parameters,
+                               String outputName, String userId, Transform transform) {
+        Mono<String> run = inputPrefetcher.fetch(fileId)
+                .flatMap(input -> (fileBacked
+                        ? transformToFile(operation, List.of(input), outputName, transform,
+                                file -> uploadUpdate(fileId, input.sizeBytes(), file, outputName, userId))
+                        : transformInMemory(operation, List.of(input), outputName, userId, transform))
+                        .doFinally(signal -> input.close()));
+        return reuse(operation, List.of(fileId), parameters, outputName, userId, run);
+    }
+
+    /**
+     * Return an earlier output of the operation if there is one, or join an identical run in progress,
+     * and only otherwise run it.
+     */
+    private Mono<String> reuse(JobType operation, List<String> fileIds, Map<String, ?> parameters,
+                               String outputName, String userId, Mono<String> run) {
+        if (!resultCache.isEnabled() && !singleFlight.isEnabled()) {
+            return run;
+        }
+        return resultCache.fingerprint(operation, parameters, fileIds)
+                .flatMap(fingerprint -> {
+                    String key = resultCache.key(fingerprint, userId);
+                    return resultCache.get(key)
+                            .switchIfEmpty(Mono.defer(() -> singleFlight.execute(fingerprint, userId, outputName, run)
+                                    .flatMap(fileId -> resultCache.put(key, fileId).thenReturn(fileId))));
+                })
+                .switchIfEmpty(Mono.defer(() -> run));
+    }
+
+    /**
+     * Download a single input and read from it on the processing executor.
+     */
+    public <T> Mono<T> read(JobType operation, String fileId, Read<T> read) {
+        return Mono.usingWhen(inputPrefetcher.fetch(fileId),
+                input -> processingExecutor.execute(operation, () -> read.apply(input)),
+                input -> Mono.fromRunnable(input::close));
+    }
+
+    private Mono<String> transformToFile(JobType operation, List<PdfInput> inputs, String outputName,
+                                         Transform transform, Function<Path, Mono<String>> upload) {
+        return Mono.usingWhen(
+                Mono.fromCallable(this::createOutputFile).subscribeOn(Schedulers.boundedElastic()),
+                output -> processingExecutor.execute(operation, () -> {
+                            try (OutputStream stream = new BufferedOutputStream(
+                                    Files.newOutputStream(output), OUTPUT_BUFFER_SIZE)) {
+                                transform.apply(inputs, stream);
+                            }
+                            return output;
+                        })
+                        .onErrorMap(IOException.class, e -> new PdfProcessingException(
+                                "Failed to write " + outputName + ": " + e.getMessage(), e))
+                        .flatMap(upload),
+                output -> Mono.fromRunnable(() -> delete(output)).subscribeOn(Schedulers.boundedElastic()));
+    }
+
+    private Mono<String> transformInMemory(JobType operation, List<PdfInput> inputs, String outputName,
+                                           String userId, Transform transform) {
+        return processingExecutor.execute(operation, () -> {
+                    ByteArrayOutputStream output = new ByteArrayOutputStream();
+                    transform.apply(inputs, output);
+                    return ByteBuffer.wrap(output.toByteArray());
+                })
+                .onErrorMap(IOException.class, e -> new PdfProcessingException(
+                        "Failed to write " + outputName + ": " + e.getMessage(), e))
+                .flatMap(content -> storageClient.uploadFile(content, outputName, PDF_CONTENT_TYPE, userId));
+    }
+
+    private Mono<String> uploadUpdate(String baseFileId, long baseSize, Path file, String outputName, String userId) {
+        Mono<String> whole = storageClient.uploadFile(file, outputName, PDF_CONTENT_TYPE, userId);
+        if (!incrementalSave.appendUpload()) {
+            return whole;
+        }
+        return storageClient.appendFile(baseFileId, baseSize, file, outputName, userId)
+                .onErrorResume(e -> {
+                    log.warn("Appending {} to file {} failed, uploading it whole: {}", outputName, baseFileId, e.getMessage());
+                    return whole;
+                });
+    }
+
+    private Path createOutputFile() throws IOException {
+        Files.createDirectories(tempDirectory);
+        return Files.createTempFile(tempDirectory, "output-", ".pdf");
+    }
+
+    private void delete(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            log.warn("Failed to delete temp output {}", file, e);
+        }
+    }
+
+    /**
+     * A document operation writing its result to a stream. Inputs are owned by the pipeline.
+     */
+    @FunctionalInterface
+    public interface Transform {
+        void apply(List<PdfInput> inputs, OutputStream output) throws IOException;
+    }
+
+    /**
+     * A read-only document operation.
+     */
+    @FunctionalInterface
+    public interface Read<T> {
+        T apply(PdfInput input) throws IOException;
+    }
+}
@@ -0,0 +1,378 @@
+package com.pdfutility.pdfcore.processing;
+
+import com.pdfutility.pdfcore.model.CompressionLevel;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.pdfbox.contentstream.PDFStreamEngine;
+import org.apache.pdfbox.contentstream.operator.Operator;
+import org.apache.pdfbox.contentstream.operator.OperatorName;
+import org.apache.pdfbox.contentstream.operator.state.Concatenate;
+import org.apache.pdfbox.contentstream.operator.state.Restore;
+import org.apache.pdfbox.contentstream.operator.state.Save;
+import org.apache.pdfbox.contentstream.operator.state.SetMatrix;
+import org.apache.pdfbox.cos.COSArray;
+import org.apache.pdfbox.cos.COSBase;
+import org.apache.pdfbox.cos.COSName;
+import org.apache.pdfbox.cos.COSStream;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.graphics.PDXObject;
+import org.apache.pdfbox.pdmodel.graphics.color.PDColorSpace;
+import org.apache.pdfbox.pdmodel.graphics.color.PDDeviceGray;
+import org.apache.pdfbox.pdmodel.graphics.color.PDIndexed;
+import org.apache.pdfbox.pdmodel.graphics.form.PDFormXObject;
+import org.apache.pdfbox.pdmodel.graphics.image.PDImageXObject;
+import org.apache.pdfbox.util.Matrix;
+import org.springframework.stereotype.Component;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferByte;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.zip.DeflaterOutputStream;
+
+/**
+ * Downsamples and recompresses the images of a document.
+ * The effective resolution of every image is measured from where it is drawn on the pages; images placed
+ * above the level's target DPI are resampled and re-encoded as JPEG, or as Flate for black and white line art.
+ * Other 1-bit images, such as two-colour palettes, are left as they are.
+ * An image is only replaced when the new encoding is smaller.
+ * PDFBox documents are not thread-safe, so images are decoded and written back on the calling thread,
+ * while resampling and encoding are forked onto idle threads of the {@link PdfProcessingExecutor}.
+ */
+@Slf4j
+@Component
+public class ImageOptimizer {
+
+    /** Images within this factor of the target resolution are left alone. */
+    private static final float DPI_TOLERANCE = 1.1f;
+    private static final int MIN_IMAGE_SIZE = 32;
+    private static final COSName SMASK_IN_DATA = COSName.getPDFName("SMaskInData");
+
+    private final CompressionProperties properties;
+    private final PdfProcessingExecutor processingExecutor;
+
+    public ImageOptimizer(CompressionProperties properties, PdfProcessingExecutor processingExecutor) {
+        this.properties = properties;
+        this.processingExecutor = processingExecutor;
+    }
+
+    /**
+     * Optimize the images of a document in place.
+     *
+     * @return Encoded bytes saved across all replaced images
+     */
+    public long optimize(PDDocument document, CompressionLevel level) throws IOException {
+        CompressionProperties.Level settings = properties.level(level);
+        Map<COSStream, Placement> placements = collectPlacements(document);
+
+        // Bound decoded images held in memory to what the processing threads can work on at once
+        int window = processingExecutor.threads();
+        Deque<Future<Encoded>> pending = new ArrayDeque<>(window);
+        int replaced = 0;
+        long savedBytes = 0;
+        try {
+            for (Placement placement : placements.values()) {
+                if (!isCandidate(placement, settings.dpi())) {
+                    continue;
+                }
+                BufferedImage decoded = decode(placement, settings.dpi());
+                if (decoded == null) {
+                    continue;
+                }
+                if (pending.size() >= window) {
+                    long saved = writeIfSmaller(processingExecutor.join(pending.poll()));
+                    replaced += saved > 0 ? 1 : 0;
+                    savedBytes += saved;
+                }
+                Resize resize = resize(placement, settings.dpi());
+                COSStream stream = placement.image().getCOSObject();
+                pending.add(processingExecutor.fork(() -> encode(stream, resize, decoded, settings)));
+            }
+            while (!pending.isEmpty()) {
+                long saved = writeIfSmaller(processingExecutor.join(pending.poll()));
+                replaced += saved > 0 ? 1 : 0;
+                savedBytes += saved;
+            }
+            log.debug("Optimized {} of {} images at {} dpi, saved {} bytes",
+                    replaced, placements.size(), settings.dpi(), savedBytes);
+            return savedBytes;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            pending.forEach(future -> future.cancel(true));
+            throw new InterruptedIOException("Image optimization interrupted");
+        } catch (ExecutionException e) {
+            pending.forEach(future -> future.cancel(true));
+            throw new IOException("Image optimization failed", e.getCause());
+        }
+    }
+
+    /**
+     * Walk every page's content, including nested forms, and record the highest resolution
+     * each distinct image is drawn at.
+     */
+    private Map<COSStream, Placement> collectPlacements(PDDocument document) {
+        PlacementCollector collector = new PlacementCollector();
+        for (PDPage page : document.getPages()) {
+            try {
+                collector.processPage(page);
+            } catch (IOException e) {
+                log.warn("Could not measure images on a page, they are left unchanged", e);
+            }
+        }
+        return collector.placements;
+    }
+
+    private boolean isCandidate(Placement placement, int targetDpi) {
+        PDImageXObject image = placement.image();
+        return !image.isStencil()
+                && image.getWidth() >= MIN_IMAGE_SIZE
+                && image.getHeight() >= MIN_IMAGE_SIZE
+                // Colour-key masks refer to exact sample values, which lossy re-encoding does not preserve
+                && !(image.getCOSObject().getDictionaryObject(COSName.MASK) instanceof COSArray)
+                // 1-bit images are rewritten as DeviceGray, which would lose the colours of any other palette
+                && (image.getBitsPerComponent() != 1 || isBlackAndWhite(image))
+                && placement.maxDpi() > targetDpi * DPI_TOLERANCE;
+    }
+
+    private static boolean isBlackAndWhite(PDImageXObject image) {
+        try {
+            PDColorSpace colorSpace = image.getColorSpace();
+            if (colorSpace instanceof PDDeviceGray) {
+                return true;
+            }
+            if (colorSpace instanceof PDIndexed indexed) {
+                for (int index = 0; index < 2; index++) {
+                    float[] rgb = indexed.toRGB(new float[]{index});
+                    boolean black = rgb[0] == 0 && rgb[1] == 0 && rgb[2] == 0;
+                    boolean white = rgb[0] == 1 && rgb[1] == 1 && rgb[2] == 1;
+                    if (!black && !white) {
+                        return false;
+                    }
+                }
+                return true;
+            }
+            return false;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Decode on the calling thread, letting PDFBox subsample while decoding where the reduction allows it.
+     */
+    private BufferedImage decode(Placement placement, int targetDpi) {
+        int subsampling = Math.max(1, (int) (placement.maxDpi() / targetDpi));
+        try {
+            return placement.image().getImage(null, subsampling);
+        } catch (IOException | RuntimeException e) {
+            log.debug("Skipping image that could not be decoded: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Read what encoding needs from the image on the calling thread, so the forked part never touches PDFBox.
+     */
+    private Resize resize(Placement placement, int targetDpi) {
+        PDImageXObject image = placement.image();
+        double scale = targetDpi / placement.maxDpi();
+        return new Resize(
+                Math.max(1, (int) Math.round(image.getWidth() * scale)),
+                Math.max(1, (int) Math.round(image.getHeight() * scale)),
+                image.getBitsPerComponent(),
+                image.getCOSObject().getLength());
+    }
+
+    private Encoded encode(COSStream stream, Resize resize, BufferedImage decoded,
+                           CompressionProperties.Level settings) throws IOException {
+        int width = resize.width();
+        int height = resize.height();
+        long originalLength = resize.originalLength();
+
+        if (resize.bitsPerComponent() == 1) {
+            BufferedImage lineArt = resample(decoded, width, height, BufferedImage.TYPE_BYTE_BINARY);
+            return new Encoded(stream, deflate(lineArt), width, height,
+                    COSName.FLATE_DECODE, 1, COSName.DEVICEGRAY, originalLength);
+        }
+
+        boolean gray = decoded.getColorModel().getNumColorComponents() == 1;
+        BufferedImage resampled = resample(decoded, width, height,
+                gray ? BufferedImage.TYPE_BYTE_GRAY : BufferedImage.TYPE_INT_RGB);
+        return new Encoded(stream, writeJpeg(resampled, settings.imageQuality()), width, height,
+                COSName.DCT_DECODE, 8, gray ? COSName.DEVICEGRAY : COSName.DEVICERGB, originalLength);
+    }
+
+    /**
+     * Replace the image if the new encoding is smaller.
+     *
+     * @return Bytes saved, 0 if the image was kept
+     */
+    private long writeIfSmaller(Encoded encoded) throws IOException {
+        if (encoded.data().length >= encoded.originalLength()) {
+            return 0;
+        }
+        write(encoded);
+        return encoded.originalLength() - encoded.data().length;
+    }
+
+    /**
+     * Replace the image stream's data and encoding in place, so every page and form that references it
+     * picks up the new version. Soft masks are separate streams and stay as they are.
+     */
+    private void write(Encoded encoded) throws IOException {
+        COSStream stream = encoded.stream();
+        for (COSName key : List.of(COSName.FILTER, COSName.DECODE_PARMS, COSName.DECODE, COSName.COLORSPACE,
+                COSName.BITS_PER_COMPONENT, SMASK_IN_DATA)) {
+            stream.removeItem(key);
+        }
+        try (OutputStream out = stream.createRawOutputStream()) {
+            out.write(encoded.data());
+        }
+        stream.setItem(COSName.FILTER, encoded.filter());
+        stream.setInt(COSName.WIDTH, encoded.width());
+        stream.setInt(COSName.HEIGHT, encoded.height());
+        stream.setInt(COSName.BITS_PER_COMPONENT, encoded.bitsPerComponent());
+        stream.setItem(COSName.COLORSPACE, encoded.colorSpace());
+    }
+
+    /**
+     * Resample to the target size, halving first on large reductions so bilinear filtering
+     * still takes every source pixel into account.
+     */
+    private static BufferedImage resample(BufferedImage source, int width, int height, int type) {
+        int intermediateType = type == BufferedImage.TYPE_BYTE_BINARY ? BufferedImage.TYPE_BYTE_GRAY : type;
+        BufferedImage current = source;
+        int currentWidth = source.getWidth();
+        int currentHeight = source.getHeight();
+        while (currentWidth / 2 >= width && currentHeight / 2 >= height) {
+            currentWidth /= 2;
+            currentHeight /= 2;
+            current = draw(current, currentWidth, currentHeight, intermediateType);
+        }
+        return draw(current, width, height, type);
+    }
+
+    private static BufferedImage draw(BufferedImage source, int width, int height, int type) {
+        BufferedImage target = new BufferedImage(width, height, type);
+        // Alpha is carried by the image's soft mask; keep the colour samples unblended
+        BufferedImage opaque = source.getColorModel().hasAlpha() ? dropAlpha(source) : source;
+        Graphics2D graphics = target.createGraphics();
+        try {
+            graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            graphics.drawImage(opaque, 0, 0, width, height, null);
+        } finally {
+            graphics.dispose();
+        }
+        return target;
+    }
+
+    private static BufferedImage dropAlpha(BufferedImage source) {
+        int width = source.getWidth();
+        BufferedImage opaque = new BufferedImage(width, source.getHeight(), BufferedImage.TYPE_INT_RGB);
+        int[] row = new int[width];
+        for (int y = 0; y < source.getHeight(); y++) {
+            source.getRGB(0, y, width, 1, row, 0, width);
+            opaque.setRGB(0, y, width, 1, row, 0, width);
+        }
+        return opaque;
+    }
+
+    private static byte[] writeJpeg(BufferedImage image, float quality) throws IOException {
+        ImageWriter writer = ImageIO.getImageWritersByFormatName("jpeg").next();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (ImageOutputStream output = ImageIO.createImageOutputStream(out)) {
+            writer.setOutput(output);
+            ImageWriteParam param = writer.getDefaultWriteParam();
+            param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+            param.setCompressionQuality(quality);
+            writer.write(null, new IIOImage(image, null, null), param);
+        } finally {
+            writer.dispose();
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * Only black and white images get here, so nothing is lost by writing them as DeviceGray.
+     * A freshly created TYPE_BYTE_BINARY raster is packed exactly like a 1-bit DeviceGray PDF image:
+     * rows padded to whole bytes, most significant bit first, 0 = black.
+     */
+    private static byte[] deflate(BufferedImage lineArt) throws IOException {
+        byte[] samples = ((DataBufferByte) lineArt.getRaster().getDataBuffer()).getData();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (DeflaterOutputStream deflater = new DeflaterOutputStream(out)) {
+            deflater.write(samples);
+        }
+        return out.toByteArray();
+    }
+
+    private record Placement(PDImageXObject image, float maxDpi) {
+    }
+
+    private record Resize(int width, int height, int bitsPerComponent, long originalLength) {
+    }
+
+    private record Encoded(COSStream stream, byte[] data, int width, int height,
+                           COSName filter, int bitsPerComponent, COSName colorSpace, long originalLength) {
+    }
+
+    /**
+     * Content stream engine that only tracks the transformation matrix and image draws.
+     */
+    private static final class PlacementCollector extends PDFStreamEngine {
+
+        private final Map<COSStream, Placement> placements = new LinkedHashMap<>();
+
+        PlacementCollector() {
+            addOperator(new Concatenate(this));
+            addOperator(new Save(this));
+            addOperator(new Restore(this));
+            addOperator(new SetMatrix(this));
+        }
+
+        @Override
+        protected void processOperator(Operator operator, List<COSBase> operands) throws IOException {
+            if (OperatorName.DRAW_OBJECT.equals(operator.getName())
+                    && !operands.isEmpty() && operands.get(0) instanceof COSName name) {
+                PDXObject xObject = getResources().getXObject(name);
+                if (xObject instanceof PDImageXObject image) {
+                    record(image);
+                } else if (xObject instanceof PDFormXObject form) {
+                    showForm(form);
+                }
+                return;
+            }
+            super.processOperator(operator, operands);
+        }
+
+        private void record(PDImageXObject image) {
+            // An image covers the unit square, so the CTM scale is its size on the page in points
+            Matrix ctm = getGraphicsState().getCurrentTransformationMatrix();
+            float widthInches = Math.abs(ctm.getScalingFactorX()) / 72f;
+            float heightInches = Math.abs(ctm.getScalingFactorY()) / 72f;
+            if (widthInches <= 0 || heightInches <= 0) {
+                return;
+            }
+            float dpi = Math.max(image.getWidth() / widthInches, image.getHeight() / heightInches);
+            placements.merge(image.getCOSObject(), new Placement(image, dpi),
+                    (existing, added) -> existing.maxDpi() >= added.maxDpi() ? existing : added);
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package com.pdfutility.pdfcore.processing;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Incremental saving of small edits.
+ *
+ * @param enabled Whether adding text and rotating pages append an incremental update to the original
+ *                bytes instead of rewriting the whole document
+ * @param appendUpload Whether only the appended update is sent to storage, which adds it to the stored original
+ */
+@ConfigurationProperties(prefix = "pdf.processing.incremental-save")
+public record IncrementalSaveProperties(
+        Boolean enabled,
+        Boolean appendUpload
+) {
+    public IncrementalSaveProperties {
+        if (enabled == null) {
+            enabled = true;
+        }
+        if (appendUpload == null) {
+            appendUpload = true;
+        }
+    }
+}
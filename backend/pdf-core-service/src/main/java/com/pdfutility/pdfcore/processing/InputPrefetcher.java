@@ -0,0 +1,226 @@
+package com.pdfutility.pdfcore.processing;
+
+import com.pdfutility.common.exception.StorageException;
+import com.pdfutility.pdfcore.service.StorageClient;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Downloads the inputs of a job with bounded concurrency, keeping them in request order.
+ * A download is held on the heap when the node-wide memory budget can reserve its full size, as announced
+ * by storage, up front; the buffer is allocated at exactly that size and handed over without a copy, so the
+ * budget bounds what is actually allocated. Downloads of unknown size, or that do not fit the budget or their
+ * announced size, go to a temp file, so a job with many or large inputs cannot exhaust the heap before
+ * processing has even started.
+ * In the file-backed pipeline every download goes straight to a temp file.
+ */
+@Slf4j
+@Component
+public class InputPrefetcher {
+
+    /** Largest array the JVM reliably allocates. */
+    private static final long MAX_BUFFER_SIZE = Integer.MAX_VALUE - 8;
+
+    private final StorageClient storageClient;
+    private final int concurrency;
+    private final long memoryBudget;
+    private final Path tempDirectory;
+    private final boolean fileBacked;
+    private final boolean memoryMapped;
+    private final AtomicLong reservedBytes = new AtomicLong();
+
+    public InputPrefetcher(StorageClient storageClient,
+                           @Value("${pdf.processing.prefetch.concurrency:4}") int concurrency,
+                           @Value("${pdf.processing.prefetch.memory-budget:256MB}") DataSize memoryBudget,
+                           @Value("${pdf.processing.temp-directory:${java.io.tmpdir}}") String tempDirectory,
+                           @Value("${pdf.processing.pipeline.file-backed:true}") boolean fileBacked,
+                           @Value("${pdf.processing.pipeline.memory-mapped:true}") boolean memoryMapped) {
+        this.storageClient = storageClient;
+        this.concurrency = Math.max(1, concurrency);
+        this.memoryBudget = fileBacked ? 0 : memoryBudget.toBytes();
+        this.tempDirectory = Paths.get(tempDirectory);
+        this.fileBacked = fileBacked;
+        this.memoryMapped = memoryMapped;
+    }
+
+    /**
+     * Fetch all files, in the order given. The caller owns the returned inputs and must close them;
+     * on error or cancellation inputs fetched so far are closed here.
+     */
+    public Mono<List<PdfInput>> fetchAll(List<String> fileIds) {
+        return Flux.fromIterable(fileIds)
+                .flatMapSequential(this::fetch, concurrency, 1)
+                .collectList()
+                .doOnDiscard(PdfInput.class, PdfInput::close);
+    }
+
+    /**
+     * Bytes of downloaded inputs currently held on the heap.
+     */
+    public long heldBytes() {
+        return reservedBytes.get();
+    }
+
+    /**
+     * Fetch a single file. The caller owns the returned input and must close it.
+     */
+    public Mono<PdfInput> fetch(String fileId) {
+        return expectedSize(fileId).flatMap(expectedSize -> Mono.using(() -> new Spool(fileId, expectedSize),
+                spool -> storageClient.downloadFileContent(fileId)
+                        // Writes may go to disk, keep them off the event loop
+                        .publishOn(Schedulers.boundedElastic())
+                        .doOnNext(buffer -> {
+                            try {
+                                spool.write(buffer);
+                            } finally {
+                                DataBufferUtils.release(buffer);
+                            }
+                        })
+                        .then(Mono.fromCallable(spool::finish))
+                        .doOnDiscard(DataBuffer.class, DataBufferUtils::release)
+                        .onErrorMap(e -> e instanceof IOException || e instanceof UncheckedIOException,
+                                e -> new StorageException("Failed to buffer file " + fileId,
+                                        e instanceof UncheckedIOException unchecked ? unchecked.getCause() : e)),
+                Spool::abort));
+    }
+
+    /**
+     * Size of the file as known to storage, 0 if unknown or if nothing is held in memory anyway.
+     */
+    private Mono<Long> expectedSize(String fileId) {
+        if (memoryBudget == 0) {
+            return Mono.just(0L);
+        }
+        return storageClient.getFileMetadata(fileId)
+                .map(StorageClient.FileMetadata::size)
+                .onErrorResume(e -> {
+                    log.debug("Size of file {} unknown, spooling it to disk", fileId);
+                    return Mono.empty();
+                })
+                .defaultIfEmpty(0L);
+    }
+
+    private boolean reserve(long bytes) {
+        long current;
+        do {
+            current = reservedBytes.get();
+            if (current + bytes > memoryBudget) {
+                return false;
+            }
+        } while (!reservedBytes.compareAndSet(current, current + bytes));
+        return true;
+    }
+
+    private void release(long bytes) {
+        if (bytes > 0) {
+            reservedBytes.addAndGet(-bytes);
+        }
+    }
+
+    /**
+     * A single download, in a buffer of its announced size if the budget reserved it, on disk otherwise
+     * or once it outgrows that size. Only used from one thread at a time.
+     */
+    private final class Spool {
+
+        private final String fileId;
+        private byte[] memory;
+        private long reserved;
+        private Path file;
+        private OutputStream fileOutput;
+        private long size;
+        private boolean finished;
+
+        Spool(String fileId, long expectedSize) {
+            this.fileId = fileId;
+            if (expectedSize > 0 && expectedSize <= MAX_BUFFER_SIZE && reserve(expectedSize)) {
+                memory = new byte[(int) expectedSize];
+                reserved = expectedSize;
+            }
+        }
+
+        void write(DataBuffer buffer) {
+            int length = buffer.readableByteCount();
+            try {
+                if (file == null && memory != null && size + length <= memory.length) {
+                    buffer.read(memory, (int) size, length);
+                } else {
+                    if (file == null) {
+                        spill();
+                    }
+                    buffer.asInputStream().transferTo(fileOutput);
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            size += length;
+        }
+
+        PdfInput finish() throws IOException {
+            if (file == null) {
+                long held = reserved;
+                reserved = 0;
+                finished = true;
+                if (memory == null) {
+                    return PdfInput.of(new byte[0]);
+                }
+                // Only shorter than announced if storage's size was off; the reservation covers the copy's source
+                byte[] content = size == memory.length ? memory : Arrays.copyOf(memory, (int) size);
+                return PdfInput.of(content, () -> release(held));
+            }
+            fileOutput.close();
+            finished = true;
+            return PdfInput.ofTempFile(file, size, memoryMapped);
+        }
+
+        void abort() {
+            if (finished) {
+                return;
+            }
+            release(reserved);
+            reserved = 0;
+            if (file != null) {
+                try {
+                    if (fileOutput != null) {
+                        fileOutput.close();
+                    }
+                    Files.deleteIfExists(file);
+                } catch (IOException e) {
+                    log.warn("Failed to delete spooled input {}", file, e);
+                }
+            }
+        }
+
+        private void spill() throws IOException {
+            Files.createDirectories(tempDirectory);
+            file = Files.createTempFile(tempDirectory, "input-", ".pdf");
+            fileOutput = Files.newOutputStream(file);
+            if (memory != null) {
+                fileOutput.write(memory, 0, (int) size);
+                memory = null;
+            }
+            release(reserved);
+            reserved = 0;
+            if (!fileBacked) {
+                log.debug("File {} does not fit the memory budget or its announced size, spooling it to disk", fileId);
+            }
+        }
+    }
+}
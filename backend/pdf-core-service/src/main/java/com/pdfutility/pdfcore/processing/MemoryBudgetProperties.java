@@ -0,0 +1,56 @@
+package com.pdfutility.pdfcore.processing;
+
+import com.pdfutility.pdfcore.model.JobType;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Heap PDFBox may use for the stream data of a single document before spilling to scratch files.
+ * The budget of a document is the operation's budget, capped by the first size class its input fits in.
+ *
+ * @param defaultBudget Budget for operations not listed
+ * @param operationBudgets Budget per operation
+ * @param sizeClasses Caps by input size; inputs larger than every class are only limited by the operation budget
+ */
+@ConfigurationProperties(prefix = "pdf.processing.memory")
+public record MemoryBudgetProperties(
+        DataSize defaultBudget,
+        Map<JobType, DataSize> operationBudgets,
+        List<SizeClass> sizeClasses
+) {
+    public MemoryBudgetProperties {
+        if (defaultBudget == null) {
+            defaultBudget = DataSize.ofMegabytes(64);
+        }
+        if (operationBudgets == null) {
+            operationBudgets = Map.of();
+        }
+        sizeClasses = sizeClasses == null ? List.of() : sizeClasses.stream()
+                .sorted(Comparator.comparing(SizeClass::maxInputSize))
+                .toList();
+    }
+
+    /**
+     * Budget in bytes for a document of the given operation and input size.
+     */
+    public long budget(JobType operation, long inputBytes) {
+        long budget = operationBudgets.getOrDefault(operation, defaultBudget).toBytes();
+        for (SizeClass sizeClass : sizeClasses) {
+            if (inputBytes <= sizeClass.maxInputSize().toBytes()) {
+                return Math.min(budget, sizeClass.budget().toBytes());
+            }
+        }
+        return budget;
+    }
+
+    /**
+     * @param maxInputSize Largest input in this class
+     * @param budget Budget cap for inputs in this class
+     */
+    public record SizeClass(DataSize maxInputSize, DataSize budget) {
+    }
+}
@@ -0,0 +1,61 @@
+package com.pdfutility.pdfcore.processing;
+
+import com.pdfutility.pdfcore.model.JobType;
+import org.apache.pdfbox.io.MemoryUsageSetting;
+import org.apache.pdfbox.io.RandomAccessStreamCache.StreamCacheCreateFunction;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+
+/**
+ * Creates the PDFBox stream caches documents are opened and built with.
+ * Stream data is kept on the heap up to the document's budget and spills to scratch files in the
+ * temp directory beyond it, so concurrent heavy operations do not grow the heap without limit.
+ */
+@Component
+public class MemoryBudgets {
+
+    private final MemoryBudgetProperties properties;
+    private final File tempDirectory;
+
+    public MemoryBudgets(MemoryBudgetProperties properties,
+                         @Value("${pdf.processing.temp-directory:${java.io.tmpdir}}") String tempDirectory) {
+        this.properties = properties;
+        this.tempDirectory = Paths.get(tempDirectory).toFile();
+        try {
+            // Scratch files are only created in an existing directory
+            Files.createDirectories(this.tempDirectory.toPath());
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot create temp directory " + tempDirectory, e);
+        }
+    }
+
+    /**
+     * Stream cache for one document of the given operation.
+     *
+     * @param operation Operation the document belongs to
+     * @param inputBytes Size of the input, used to pick the size class
+     */
+    public StreamCacheCreateFunction streamCache(JobType operation, long inputBytes) {
+        return streamCache(properties.budget(operation, inputBytes));
+    }
+
+    /**
+     * Stream cache for an operation that only writes, e.g. a document being assembled.
+     */
+    public StreamCacheCreateFunction streamCache(JobType operation) {
+        return streamCache(operation, Long.MAX_VALUE);
+    }
+
+    private StreamCacheCreateFunction streamCache(long budget) {
+        MemoryUsageSetting setting = budget > 0
+                ? MemoryUsageSetting.setupMixed(budget)
+                : MemoryUsageSetting.setupTempFileOnly();
+        return setting.setTempDir(tempDirectory).streamCache;
+    }
+}
@@ -0,0 +1,114 @@
+package com.pdfutility.pdfcore.processing;
+
+import lombok.extern.slf4j.Slf4j;
+import org.apache.pdfbox.Loader;
+import org.apache.pdfbox.io.IOUtils;
+import org.apache.pdfbox.io.RandomAccessRead;
+import org.apache.pdfbox.io.RandomAccessReadBufferedFile;
+import org.apache.pdfbox.io.RandomAccessReadMemoryMappedFile;
+import org.apache.pdfbox.io.RandomAccessStreamCache.StreamCacheCreateFunction;
+import org.apache.pdfbox.pdmodel.PDDocument;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * A PDF waiting to be processed, held either on the heap or in a temp file.
+ * File-backed inputs are parsed straight from disk, memory-mapped or through a small read buffer,
+ * so they never occupy heap as a whole. Closing releases the input: the heap reservation is
+ * returned or the temp file deleted.
+ */
+@Slf4j
+public final class PdfInput implements Closeable {
+
+    private final byte[] bytes;
+    private final Path file;
+    private final long sizeBytes;
+    private final boolean memoryMapped;
+    private final Runnable onClose;
+    private final AtomicBoolean closed = new AtomicBoolean();
+
+    private PdfInput(byte[] bytes, Path file, long sizeBytes, boolean memoryMapped, Runnable onClose) {
+        this.bytes = bytes;
+        this.file = file;
+        this.sizeBytes = sizeBytes;
+        this.memoryMapped = memoryMapped;
+        this.onClose = onClose;
+    }
+
+    public static PdfInput of(byte[] bytes) {
+        return new PdfInput(bytes, null, bytes.length, false, () -> { });
+    }
+
+    /**
+     * In-memory input whose heap reservation is returned on close.
+     */
+    public static PdfInput of(byte[] bytes, Runnable release) {
+        return new PdfInput(bytes, null, bytes.length, false, release);
+    }
+
+    /**
+     * Temp file input read through a buffer; the file is deleted on close.
+     */
+    public static PdfInput ofTempFile(Path file, long sizeBytes) {
+        return ofTempFile(file, sizeBytes, false);
+    }
+
+    /**
+     * Temp file input; the file is deleted on close. Files too large for a single mapping
+     * are read through a buffer instead.
+     */
+    public static PdfInput ofTempFile(Path file, long sizeBytes, boolean memoryMapped) {
+        return new PdfInput(null, file, sizeBytes, memoryMapped && sizeBytes <= Integer.MAX_VALUE, () -> {
+            try {
+                Files.deleteIfExists(file);
+            } catch (IOException e) {
+                log.warn("Failed to delete temp input {}", file, e);
+            }
+        });
+    }
+
+    /**
+     * Parse the input. The document's own scratch buffers use the given stream cache.
+     */
+    public PDDocument load(StreamCacheCreateFunction streamCache) throws IOException {
+        return load("", streamCache);
+    }
+
+    /**
+     * Parse an encrypted input.
+     */
+    public PDDocument load(String password, StreamCacheCreateFunction streamCache) throws IOException {
+        if (bytes != null) {
+            return Loader.loadPDF(bytes, password, null, null, streamCache);
+        }
+        // The document owns the source once parsed and closes it with itself
+        RandomAccessRead source = memoryMapped
+                ? new RandomAccessReadMemoryMappedFile(file)
+                : new RandomAccessReadBufferedFile(file);
+        try {
+            return Loader.loadPDF(source, password, null, null, streamCache);
+        } catch (IOException | RuntimeException e) {
+            IOUtils.closeQuietly(source);
+            throw e;
+        }
+    }
+
+    public long sizeBytes() {
+        return sizeBytes;
+    }
+
+    public boolean isFileBacked() {
+        return file != null;
+    }
+
+    @Override
+    public void close() {
+        if (closed.compareAndSet(false, true)) {
+            onClose.run();
+        }
+    }
+}
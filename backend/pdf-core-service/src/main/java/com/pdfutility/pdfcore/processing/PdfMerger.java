@@ -0,0 +1,190 @@
+package com.pdfutility.pdfcore.processing;
+
+import com.pdfutility.pdfcore.model.JobType;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.pdfbox.multipdf.PDFMergerUtility;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Merges PDF documents, in parallel for large inputs.
+ * Below the parallel threshold sources are appended one by one. Above it the inputs are split into
+ * contiguous partitions that are merged into intermediate files, forked onto idle threads of the
+ * {@link PdfProcessingExecutor}, and the intermediates are then appended in order, so page and bookmark
+ * order are the same as a sequential merge.
+ */
+@Slf4j
+@Component
+public class PdfMerger {
+
+    private final int parallelThreshold;
+    private final Path tempDirectory;
+    private final MemoryBudgets memoryBudgets;
+    private final PdfProcessingExecutor processingExecutor;
+
+    public PdfMerger(MemoryBudgets memoryBudgets,
+                     PdfProcessingExecutor processingExecutor,
+                     @Value("${pdf.processing.merge.parallel-threshold:8}") int parallelThreshold,
+                     @Value("${pdf.processing.temp-directory:${java.io.tmpdir}}") String tempDirectory) {
+        this.parallelThreshold = Math.max(2, parallelThreshold);
+        this.tempDirectory = Paths.get(tempDirectory);
+        this.memoryBudgets = memoryBudgets;
+        this.processingExecutor = processingExecutor;
+    }
+
+    /**
+     * Merge the sources in order.
+     *
+     * @param sources PDF files; the caller stays responsible for closing them
+     * @param deduplicateResources Whether identical resource streams are stored once
+     * @return Merged PDF
+     */
+    public byte[] merge(List<PdfInput> sources, boolean deduplicateResources) throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        merge(sources, deduplicateResources, output);
+        return output.toByteArray();
+    }
+
+    /**
+     * Merge the sources in order, writing the result to the given stream.
+     * Every source and the merged document keep stream data on the heap within the merge memory budget.
+     *
+     * @param sources PDF files; the caller stays responsible for closing them
+     * @param deduplicateResources Whether identical resource streams are stored once
+     * @param output Destination of the merged PDF
+     */
+    public void merge(List<PdfInput> sources, boolean deduplicateResources, OutputStream output) throws IOException {
+        int threads = processingExecutor.threads();
+        if (sources.size() < parallelThreshold || threads == 1) {
+            append(sources, deduplicateResources, output);
+            return;
+        }
+
+        List<List<PdfInput>> partitions = partition(sources, Math.min(threads, sources.size() / 2));
+        List<Future<PdfInput>> intermediates = new ArrayList<>(partitions.size());
+        // Partitions nobody has started yet are skipped once one fails
+        AtomicBoolean failed = new AtomicBoolean();
+        try {
+            Files.createDirectories(tempDirectory);
+            for (List<PdfInput> partition : partitions) {
+                intermediates.add(processingExecutor.fork(() -> {
+                    try {
+                        return failed.get() ? null : mergeToFile(partition, deduplicateResources);
+                    } catch (IOException | RuntimeException e) {
+                        failed.set(true);
+                        throw e;
+                    }
+                }));
+            }
+
+            List<PdfInput> merged = new ArrayList<>(intermediates.size());
+            for (Future<PdfInput> intermediate : intermediates) {
+                merged.add(processingExecutor.join(intermediate));
+            }
+            // Intermediates are re-deduplicated, which also shares resources across partitions
+            append(merged, deduplicateResources, output);
+            log.debug("Merged {} sources in {} parallel partitions", sources.size(), partitions.size());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            failed.set(true);
+            throw new InterruptedIOException("Merge interrupted");
+        } catch (ExecutionException e) {
+            failed.set(true);
+            throw e.getCause() instanceof IOException io ? io : new IOException("Partition merge failed", e.getCause());
+        } finally {
+            intermediates.forEach(this::discard);
+        }
+    }
+
+    private PdfInput mergeToFile(List<PdfInput> partition, boolean deduplicateResources) throws IOException {
+        Path file = Files.createTempFile(tempDirectory, "merge-", ".pdf");
+        try (OutputStream output = Files.newOutputStream(file)) {
+            append(partition, deduplicateResources, output);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(file);
+            throw e;
+        }
+        return PdfInput.ofTempFile(file, Files.size(file));
+    }
+
+    /**
+     * Append the sources in order into a new document and save it. Sources stay open until the
+     * destination is saved, since cloned objects may still read from them.
+     */
+    private void append(List<PdfInput> sources, boolean deduplicateResources, OutputStream output)
+            throws IOException {
+        PDFMergerUtility merger = new PDFMergerUtility();
+        ResourceDeduplicator deduplicator = deduplicateResources ? new ResourceDeduplicator() : null;
+        List<PDDocument> opened = new ArrayList<>(sources.size());
+
+        try (PDDocument destination = new PDDocument(memoryBudgets.streamCache(JobType.MERGE))) {
+            for (PdfInput source : sources) {
+                PDDocument document = source.load(memoryBudgets.streamCache(JobType.MERGE, source.sizeBytes()));
+                opened.add(document);
+                merger.appendDocument(destination, document);
+                if (deduplicator != null) {
+                    deduplicator.deduplicate(destination);
+                }
+            }
+            destination.save(output);
+            if (deduplicator != null) {
+                log.debug("Merged {} documents, {} duplicate resources shared ({} bytes)",
+                        sources.size(), deduplicator.duplicates(), deduplicator.savedBytes());
+            }
+        } finally {
+            for (PDDocument document : opened) {
+                try {
+                    document.close();
+                } catch (IOException e) {
+                    log.debug("Failed to close merge source", e);
+                }
+            }
+        }
+    }
+
+    /**
+     * Split into contiguous, nearly equal partitions so that concatenating them keeps the input order.
+     */
+    private static <T> List<List<T>> partition(List<T> items, int count) {
+        List<List<T>> partitions = new ArrayList<>(count);
+        int size = items.size() / count;
+        int remainder = items.size() % count;
+        int start = 0;
+        for (int i = 0; i < count; i++) {
+            int end = start + size + (i < remainder ? 1 : 0);
+            partitions.add(items.subList(start, end));
+            start = end;
+        }
+        return partitions;
+    }
+
+    /**
+     * Wait for a partition (also after a sibling failed) and delete its file.
+     */
+    private void discard(Future<PdfInput> intermediate) {
+        try {
+            PdfInput merged = processingExecutor.join(intermediate);
+            if (merged != null) {
+                merged.close();
+            }
+        } catch (ExecutionException e) {
+            // Failed partitions clean up after themselves
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
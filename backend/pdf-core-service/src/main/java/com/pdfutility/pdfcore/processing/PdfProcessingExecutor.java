@@ -0,0 +1,172 @@
+package com.pdfutility.pdfcore.processing;
+
+import com.pdfutility.common.exception.ProcessingCapacityException;
+import com.pdfutility.pdfcore.model.JobType;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RunnableFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Dedicated executor for CPU-bound PDFBox work.
+ * Sized to the cores with a bounded queue, so load beyond capacity is rejected quickly with
+ * {@link ProcessingCapacityException} rather than queued without limit on boundedElastic.
+ * Per-operation permits keep one expensive operation type from taking every thread.
+ * Tasks that split their work fan out with {@link #fork} and {@link #join}, which only use threads of this
+ * executor that are idle, so parallel work inside a task never adds to the node's PDFBox threads.
+ */
+@Slf4j
+@Component
+public class PdfProcessingExecutor implements DisposableBean {
+
+    private final ProcessingExecutorProperties properties;
+    private final ThreadPoolExecutor executor;
+    private final Scheduler scheduler;
+    private final Map<JobType, Semaphore> permits = new EnumMap<>(JobType.class);
+    private final Map<JobType, Counter> limitRejections = new EnumMap<>(JobType.class);
+    private final Map<JobType, Counter> saturationRejections = new EnumMap<>(JobType.class);
+
+    public PdfProcessingExecutor(ProcessingExecutorProperties properties, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        AtomicInteger threadCount = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(
+                properties.threads(), properties.threads(), 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(properties.queueCapacity()),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "pdf-processing-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+        this.scheduler = Schedulers.fromExecutorService(executor, "pdf-processing");
+
+        for (JobType operation : JobType.values()) {
+            int limit = properties.operationLimits().getOrDefault(operation, properties.threads());
+            Semaphore semaphore = new Semaphore(limit);
+            permits.put(operation, semaphore);
+            String tag = operation.name().toLowerCase();
+            Gauge.builder("pdf.processing.permits.available", semaphore, Semaphore::availablePermits)
+                    .tag("operation", tag)
+                    .register(meterRegistry);
+            limitRejections.put(operation, Counter.builder("pdf.processing.rejected")
+                    .tag("operation", tag).tag("reason", "operation_limit")
+                    .register(meterRegistry));
+            saturationRejections.put(operation, Counter.builder("pdf.processing.rejected")
+                    .tag("operation", tag).tag("reason", "saturated")
+                    .register(meterRegistry));
+        }
+        Gauge.builder("pdf.processing.queue.depth", executor, e -> e.getQueue().size()).register(meterRegistry);
+        Gauge.builder("pdf.processing.active", executor, ThreadPoolExecutor::getActiveCount).register(meterRegistry);
+
+        log.info("PDF processing executor: {} threads, queue capacity {}, limits {}",
+                properties.threads(), properties.queueCapacity(), properties.operationLimits());
+    }
+
+    /**
+     * Run a blocking PDF task on the processing executor.
+     *
+     * @param operation Operation the task belongs to, for per-operation limits and metrics
+     * @param task Blocking task
+     * @return Task result; fails fast with {@link ProcessingCapacityException} when capacity is exhausted
+     */
+    public <T> Mono<T> execute(JobType operation, Callable<T> task) {
+        return Mono.defer(() -> {
+            Semaphore semaphore = permits.get(operation);
+            if (!semaphore.tryAcquire()) {
+                limitRejections.get(operation).increment();
+                return Mono.error(new ProcessingCapacityException(
+                        "Too many concurrent " + operation + " operations",
+                        ProcessingCapacityException.OPERATION_LIMIT_EXCEEDED, properties.retryAfter()));
+            }
+            // Cancelling does not interrupt a running task, so the task returns its own permit when it ends;
+            // a task that was rejected or cancelled before it started is skipped and its permit returned here
+            AtomicBoolean started = new AtomicBoolean();
+            return Mono.fromCallable(() -> {
+                        if (!started.compareAndSet(false, true)) {
+                            return null;
+                        }
+                        try {
+                            return task.call();
+                        } finally {
+                            semaphore.release();
+                        }
+                    })
+                    .subscribeOn(scheduler)
+                    .onErrorMap(RejectedExecutionException.class, e -> {
+                        saturationRejections.get(operation).increment();
+                        return new ProcessingCapacityException("PDF processing capacity exhausted",
+                                ProcessingCapacityException.PROCESSING_SATURATED, properties.retryAfter());
+                    })
+                    .doFinally(signal -> {
+                        if (started.compareAndSet(false, true)) {
+                            semaphore.release();
+                        }
+                    });
+        });
+    }
+
+    /**
+     * Number of processing threads, and so the most parts a task gains from splitting its work.
+     */
+    public int threads() {
+        return properties.threads();
+    }
+
+    /**
+     * Start part of a running task in parallel with it. The part is handed to an idle processing thread if
+     * there is one; otherwise it waits for {@link #join}, which runs it on the calling thread.
+     *
+     * @param subtask Part of the work of the calling task
+     * @return Handle to pass to {@link #join}
+     */
+    public <T> Future<T> fork(Callable<T> subtask) {
+        FutureTask<T> future = new FutureTask<>(subtask);
+        if (executor.getActiveCount() < executor.getMaximumPoolSize() && executor.getQueue().isEmpty()) {
+            try {
+                executor.execute(future);
+            } catch (RejectedExecutionException e) {
+                // Left to join
+            }
+        }
+        return future;
+    }
+
+    /**
+     * Wait for a forked part, running it on the calling thread if no processing thread has started it.
+     *
+     * @param future Handle returned by {@link #fork}
+     * @return Result of the part
+     */
+    public <T> T join(Future<T> future) throws InterruptedException, ExecutionException {
+        if (future instanceof RunnableFuture<T> runnable) {
+            // No-op once the part has started elsewhere
+            runnable.run();
+        }
+        return future.get();
+    }
+
+    @Override
+    public void destroy() {
+        scheduler.dispose();
+    }
+}
@@ -0,0 +1,38 @@
+package com.pdfutility.pdfcore.processing;
+
+import com.pdfutility.pdfcore.model.JobType;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.Map;
+
+/**
+ * Sizing of the PDF processing executor.
+ *
+ * @param threads Worker threads; 0 uses the number of available processors
+ * @param queueCapacity Tasks allowed to wait for a thread before new work is rejected
+ * @param retryAfter Retry-After hint sent with rejected requests
+ * @param operationLimits Maximum concurrent tasks per operation; operations not listed may use every thread
+ */
+@ConfigurationProperties(prefix = "pdf.processing.executor")
+public record ProcessingExecutorProperties(
+        int threads,
+        int queueCapacity,
+        Duration retryAfter,
+        Map<JobType, Integer> operationLimits
+) {
+    public ProcessingExecutorProperties {
+        if (threads <= 0) {
+            threads = Runtime.getRuntime().availableProcessors();
+        }
+        if (queueCapacity <= 0) {
+            queueCapacity = threads * 4;
+        }
+        if (retryAfter == null) {
+            retryAfter = Duration.ofSeconds(5);
+        }
+        if (operationLimits == null) {
+            operationLimits = Map.of();
+        }
+    }
+}
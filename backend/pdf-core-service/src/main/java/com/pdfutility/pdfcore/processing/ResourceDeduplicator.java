@@ -0,0 +1,194 @@
+package com.pdfutility.pdfcore.processing;
+
+import org.apache.pdfbox.cos.COSArray;
+import org.apache.pdfbox.cos.COSBase;
+import org.apache.pdfbox.cos.COSDictionary;
+import org.apache.pdfbox.cos.COSName;
+import org.apache.pdfbox.cos.COSObject;
+import org.apache.pdfbox.cos.COSStream;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Shares identical resource streams across the documents of a merge.
+ * Every stream reachable from page resources (font programs, ToUnicode maps, images and their masks,
+ * ICC profiles, form XObjects) is keyed by the SHA-256 of its encoded bytes plus its dictionary, and
+ * references to a duplicate are rewritten to the first copy. Duplicates become unreachable and are
+ * neither kept in memory nor written on save.
+ * Nested streams are canonicalized first, so two forms or images that differ only in which copy of
+ * the same profile or mask they point to are recognised as identical too.
+ * One instance is used per merge; call {@link #deduplicate} after each appended document.
+ */
+public class ResourceDeduplicator {
+
+    /** Back-references out of the resource graph that must not be followed. */
+    private static final Set<COSName> SKIPPED_KEYS = Set.of(COSName.PARENT, COSName.P, COSName.LENGTH);
+
+    private final Map<String, COSStream> canonicalByKey = new HashMap<>();
+    private final Map<COSStream, COSStream> canonicalOf = new IdentityHashMap<>();
+    private final Map<COSStream, Integer> canonicalIds = new IdentityHashMap<>();
+    private final Set<COSBase> visited = Collections.newSetFromMap(new IdentityHashMap<>());
+    private final Set<COSStream> inProgress = Collections.newSetFromMap(new IdentityHashMap<>());
+
+    private int duplicates;
+    private long savedBytes;
+
+    /**
+     * Canonicalize the resources of every page not seen before.
+     */
+    public void deduplicate(PDDocument document) throws IOException {
+        for (PDPage page : document.getPages()) {
+            COSBase resources = page.getCOSObject().getDictionaryObject(COSName.RESOURCES);
+            if (resources != null) {
+                canonicalize(resources);
+            }
+        }
+    }
+
+    public int duplicates() {
+        return duplicates;
+    }
+
+    /**
+     * Encoded bytes of the duplicate streams that were dropped.
+     */
+    public long savedBytes() {
+        return savedBytes;
+    }
+
+    private COSBase canonicalize(COSBase value) throws IOException {
+        if (value instanceof COSObject reference) {
+            value = reference.getObject();
+        }
+        if (value instanceof COSStream stream) {
+            return canonicalizeStream(stream);
+        }
+        if (value instanceof COSDictionary dictionary && visited.add(dictionary)) {
+            rewriteChildren(dictionary);
+        } else if (value instanceof COSArray array && visited.add(array)) {
+            for (int i = 0; i < array.size(); i++) {
+                COSBase item = array.getObject(i);
+                COSBase canonical = canonicalize(item);
+                if (canonical != item) {
+                    array.set(i, canonical);
+                }
+            }
+        }
+        return value;
+    }
+
+    private COSStream canonicalizeStream(COSStream stream) throws IOException {
+        COSStream known = canonicalOf.get(stream);
+        if (known != null) {
+            return known;
+        }
+        if (!inProgress.add(stream)) {
+            // Self-referencing structure; leave it as it is
+            return stream;
+        }
+        try {
+            rewriteChildren(stream);
+            String key = fingerprint(stream) + ":" + contentHash(stream);
+            COSStream canonical = canonicalByKey.putIfAbsent(key, stream);
+            if (canonical == null) {
+                canonical = stream;
+                canonicalIds.put(stream, canonicalIds.size());
+            } else {
+                duplicates++;
+                savedBytes += stream.getLength();
+            }
+            canonicalOf.put(stream, canonical);
+            return canonical;
+        } finally {
+            inProgress.remove(stream);
+        }
+    }
+
+    private void rewriteChildren(COSDictionary dictionary) throws IOException {
+        for (COSName key : dictionary.keySet().toArray(COSName[]::new)) {
+            if (SKIPPED_KEYS.contains(key)) {
+                continue;
+            }
+            COSBase child = dictionary.getDictionaryObject(key);
+            COSBase canonical = canonicalize(child);
+            if (canonical != child) {
+                dictionary.setItem(key, canonical);
+            }
+        }
+    }
+
+    /**
+     * Canonical text form of a stream dictionary. Nested streams are already canonical and are
+     * represented by their id; key order is normalized.
+     */
+    private String fingerprint(COSDictionary dictionary) {
+        StringBuilder out = new StringBuilder();
+        appendFingerprint(dictionary, out, Collections.newSetFromMap(new IdentityHashMap<>()));
+        return out.toString();
+    }
+
+    private void appendFingerprint(COSBase value, StringBuilder out, Set<COSBase> path) {
+        if (value instanceof COSObject reference) {
+            value = reference.getObject();
+        }
+        if (value instanceof COSStream stream && !path.isEmpty()) {
+            Integer id = canonicalIds.get(canonicalOf.getOrDefault(stream, stream));
+            // A stream without an id is part of a cycle and can never be treated as equal to another
+            out.append("S").append(id != null ? id : "@" + System.identityHashCode(stream));
+            return;
+        }
+        if (value instanceof COSDictionary dictionary) {
+            if (!path.add(dictionary)) {
+                out.append("@").append(System.identityHashCode(dictionary));
+                return;
+            }
+            Map<String, COSBase> sorted = new TreeMap<>();
+            dictionary.entrySet().forEach(entry -> {
+                if (!SKIPPED_KEYS.contains(entry.getKey())) {
+                    sorted.put(entry.getKey().getName(), entry.getValue());
+                }
+            });
+            out.append("<<");
+            sorted.forEach((key, item) -> {
+                out.append("/").append(key).append(" ");
+                appendFingerprint(item, out, path);
+            });
+            out.append(">>");
+            path.remove(dictionary);
+        } else if (value instanceof COSArray array) {
+            out.append("[");
+            for (COSBase item : array) {
+                appendFingerprint(item, out, path);
+                out.append(" ");
+            }
+            out.append("]");
+        } else {
+            out.append(value).append(" ");
+        }
+    }
+
+    private String contentHash(COSStream stream) throws IOException {
+        try (InputStream in = stream.createRawInputStream()) {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            byte[] buffer = new byte[8192];
+            for (int read = in.read(buffer); read != -1; read = in.read(buffer)) {
+                digest.update(buffer, 0, read);
+            }
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
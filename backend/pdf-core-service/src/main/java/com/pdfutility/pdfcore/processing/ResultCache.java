@@ -0,0 +1,192 @@
+package com.pdfutility.pdfcore.processing;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.pdfutility.pdfcore.model.JobType;
+import com.pdfutility.pdfcore.service.StorageClient;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Remembers which output file an operation produced, so that repeating it is answered without
+ * downloading or parsing anything.
+ * An entry is keyed by the operation's fingerprint (the operation, its normalized parameters and the
+ * checksums of its inputs in order) and the user, and maps to the output file id. Checksums come from the storage metadata, so the same content
+ * uploaded again hits the cache. Entries expire after the TTL; a hit is checked against storage, and an
+ * entry whose output has been deleted is dropped together with every other entry pointing at that output.
+ * Outputs are reused per user only, since an output file belongs to the user it was produced for.
+ * The cache never fails an operation: if Redis or storage cannot answer, the operation simply runs.
+ */
+@Slf4j
+@Component
+public class ResultCache {
+
+    private final ReactiveStringRedisTemplate redisTemplate;
+    private final StorageClient storageClient;
+    private final ResultCacheProperties properties;
+    private final ObjectWriter parameterWriter;
+    private final Counter hits;
+    private final Counter misses;
+
+    public ResultCache(ReactiveStringRedisTemplate redisTemplate,
+                       StorageClient storageClient,
+                       ResultCacheProperties properties,
+                       ObjectMapper objectMapper,
+                       MeterRegistry meterRegistry) {
+        this.redisTemplate = redisTemplate;
+        this.storageClient = storageClient;
+        this.properties = properties;
+        this.parameterWriter = objectMapper.writer().with(SerializationFeature.ORDER_MAP_ENTRIES_BY_KEYS);
+        this.hits = Counter.builder("pdf.result.cache").tag("result", "hit").register(meterRegistry);
+        this.misses = Counter.builder("pdf.result.cache").tag("result", "miss").register(meterRegistry);
+    }
+
+    /**
+     * Fingerprint of an operation: a digest of what it does and to which content, independent of the user.
+     * Empty if the result cannot be cached, e.g. because an input has no checksum.
+     *
+     * @param operation Operation type
+     * @param parameters Everything besides the inputs that affects the output
+     * @param fileIds Input files, in the order the operation uses them
+     */
+    public Mono<String> fingerprint(JobType operation, Map<String, ?> parameters, List<String> fileIds) {
+        return Flux.fromIterable(fileIds)
+                .flatMapSequential(fileId -> storageClient.getFileMetadata(fileId)
+                        .mapNotNull(StorageClient.FileMetadata::checksum))
+                .collectList()
+                .filter(checksums -> checksums.size() == fileIds.size())
+                .map(checksums -> digest(String.join("\n",
+                        properties.version(), operation.name(), normalize(parameters), String.join(",", checksums))))
+                .onErrorResume(e -> {
+                    log.warn("Result of {} not cacheable: {}", operation, e.getMessage());
+                    return Mono.empty();
+                });
+    }
+
+    /**
+     * Cache key of an operation for a user.
+     */
+    public String key(String fingerprint, String userId) {
+        return properties.keyPrefix() + fingerprint + ":" + userId;
+    }
+
+    public boolean isEnabled() {
+        return properties.enabled();
+    }
+
+    /**
+     * Output file of an earlier run, or empty on a miss.
+     */
+    public Mono<String> get(String key) {
+        if (!properties.enabled()) {
+            return Mono.empty();
+        }
+        return redisTemplate.opsForValue().get(key)
+                .onErrorResume(e -> {
+                    log.warn("Result cache lookup failed: {}", e.getMessage());
+                    return Mono.empty();
+                })
+                .flatMap(this::verify)
+                .doOnNext(outputFileId -> {
+                    hits.increment();
+                    log.debug("Result cache hit {} -> {}", key, outputFileId);
+                })
+                .switchIfEmpty(Mono.fromRunnable(misses::increment));
+    }
+
+    /**
+     * Remember the output of an operation.
+     */
+    public Mono<Void> put(String key, String outputFileId) {
+        if (!properties.enabled()) {
+            return Mono.empty();
+        }
+        String outputKey = outputKey(outputFileId);
+        return redisTemplate.opsForValue().set(key, outputFileId, properties.ttl())
+                .then(redisTemplate.opsForSet().add(outputKey, key))
+                .then(redisTemplate.expire(outputKey, properties.ttl()))
+                .then()
+                .onErrorResume(e -> {
+                    log.warn("Failed to cache result {}: {}", outputFileId, e.getMessage());
+                    return Mono.empty();
+                });
+    }
+
+    /**
+     * Drop every entry that points at an output file, e.g. because the file was deleted.
+     */
+    public Mono<Void> invalidate(String outputFileId) {
+        String outputKey = outputKey(outputFileId);
+        return redisTemplate.opsForSet().members(outputKey)
+                .collectList()
+                .flatMap(keys -> {
+                    List<String> stale = new ArrayList<>(keys);
+                    stale.add(outputKey);
+                    return redisTemplate.delete(stale.toArray(String[]::new));
+                })
+                .doOnNext(deleted -> log.debug("Invalidated cached results for output {}", outputFileId))
+                .then()
+                .onErrorResume(e -> {
+                    log.warn("Failed to invalidate cached results for output {}: {}", outputFileId, e.getMessage());
+                    return Mono.empty();
+                });
+    }
+
+    private Mono<String> verify(String outputFileId) {
+        return storageClient.getFileMetadata(outputFileId)
+                .thenReturn(outputFileId)
+                .onErrorResume(e -> {
+                    if (isNotFound(e)) {
+                        return invalidate(outputFileId).then(Mono.empty());
+                    }
+                    log.warn("Could not verify cached output {}: {}", outputFileId, e.getMessage());
+                    return Mono.empty();
+                });
+    }
+
+    private String outputKey(String outputFileId) {
+        return properties.keyPrefix() + "output:" + outputFileId;
+    }
+
+    private String normalize(Map<String, ?> parameters) {
+        try {
+            return parameterWriter.writeValueAsString(parameters != null ? parameters : Map.of());
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Parameters not serializable: " + e.getMessage(), e);
+        }
+    }
+
+    private static boolean isNotFound(Throwable error) {
+        for (Throwable e = error; e != null; e = e.getCause()) {
+            if (e instanceof WebClientResponseException.NotFound) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String digest(String material) {
+        try {
+            MessageDigest sha256 = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(sha256.digest(material.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package com.pdfutility.pdfcore.processing;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * Cache of operation results in Redis.
+ *
+ * @param enabled Whether repeated operations reuse an earlier output
+ * @param ttl How long an output is reused after it was produced
+ * @param keyPrefix Prefix of the Redis keys
+ * @param version Part of every key; change it to drop all entries, e.g. after changing what an operation produces
+ */
+@ConfigurationProperties(prefix = "pdf.processing.result-cache")
+public record ResultCacheProperties(
+        Boolean enabled,
+        Duration ttl,
+        String keyPrefix,
+        String version
+) {
+    public ResultCacheProperties {
+        if (enabled == null) {
+            enabled = true;
+        }
+        if (ttl == null || ttl.isNegative() || ttl.isZero()) {
+            ttl = Duration.ofHours(24);
+        }
+        if (keyPrefix == null || keyPrefix.isBlank()) {
+            keyPrefix = "pdf:result:";
+        }
+        if (version == null) {
+            version = "1";
+        }
+    }
+}
@@ -0,0 +1,218 @@
+package com.pdfutility.pdfcore.processing;
+
+import com.pdfutility.pdfcore.service.StorageClient;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Coalesces identical operations that run at the same time, so that a double submit or a burst of users
+ * processing the same shared document costs one PDFBox pass.
+ * Operations are identified by their {@link ResultCache#fingerprint fingerprint}. On a node, callers of an
+ * operation already in flight subscribe to it. Across nodes the first caller takes a lock in Redis, held as a
+ * lease it renews while the operation runs; callers on other nodes poll for the result it publishes, and take
+ * over if the lease runs out because the node went away. A caller for another user gets a copy of the output,
+ * created from its checksum without transferring content.
+ * Everybody waiting for an operation completes when it does. If it fails, callers on the same node fail with it,
+ * while a caller on another node runs the operation itself. Once started, an operation runs to completion even
+ * if the caller that started it gives up, since others may be waiting for it. Without Redis every node runs
+ * its operations alone.
+ */
+@Slf4j
+@Component
+public class SingleFlight {
+
+    private static final RedisScript<Long> RENEW = RedisScript.of("""
+            if redis.call('get', KEYS[1]) == ARGV[1] then
+                return redis.call('pexpire', KEYS[1], ARGV[2])
+            end
+            return 0
+            """, Long.class);
+
+    private static final RedisScript<Long> RELEASE = RedisScript.of("""
+            if redis.call('get', KEYS[1]) == ARGV[1] then
+                return redis.call('del', KEYS[1])
+            end
+            return 0
+            """, Long.class);
+
+    private final ReactiveStringRedisTemplate redisTemplate;
+    private final StorageClient storageClient;
+    private final SingleFlightProperties properties;
+    private final Map<String, Mono<Flight>> inFlight = new ConcurrentHashMap<>();
+    private final Counter localJoins;
+    private final Counter remoteJoins;
+
+    public SingleFlight(ReactiveStringRedisTemplate redisTemplate,
+                        StorageClient storageClient,
+                        SingleFlightProperties properties,
+                        MeterRegistry meterRegistry) {
+        this.redisTemplate = redisTemplate;
+        this.storageClient = storageClient;
+        this.properties = properties;
+        this.localJoins = Counter.builder("pdf.single.flight.joins").tag("scope", "local").register(meterRegistry);
+        this.remoteJoins = Counter.builder("pdf.single.flight.joins").tag("scope", "remote").register(meterRegistry);
+    }
+
+    public boolean isEnabled() {
+        return properties.enabled();
+    }
+
+    /**
+     * Run an operation unless an identical one is in flight, and return its output for the user.
+     *
+     * @param fingerprint Fingerprint of the operation
+     * @param userId Owner of the output
+     * @param outputName File name for a copy of another user's output
+     * @param work The operation, producing an output owned by the user
+     * @return File ID of an output owned by the user
+     */
+    public Mono<String> execute(String fingerprint, String userId, String outputName, Mono<String> work) {
+        if (!properties.enabled()) {
+            return work;
+        }
+        return Mono.defer(() -> {
+            AtomicBoolean started = new AtomicBoolean();
+            Mono<Flight> flight = inFlight.computeIfAbsent(fingerprint, key -> {
+                started.set(true);
+                return start(key, userId, work);
+            });
+            if (!started.get()) {
+                localJoins.increment();
+                log.debug("Joined operation {} in flight on this node", fingerprint);
+            }
+            return flight.flatMap(result -> ownedBy(result, userId, outputName)
+                    .onErrorResume(e -> {
+                        log.warn("Could not copy output {} for user {}, running the operation: {}",
+                                result.outputFileId(), userId, e.getMessage());
+                        return work;
+                    }));
+        });
+    }
+
+    private Mono<Flight> start(String fingerprint, String userId, Mono<String> work) {
+        AtomicReference<Mono<Flight>> self = new AtomicReference<>();
+        Mono<Flight> flight = coordinate(fingerprint, userId, work)
+                .doFinally(signal -> inFlight.remove(fingerprint, self.get()))
+                .share();
+        self.set(flight);
+        return flight;
+    }
+
+    /**
+     * Use the result of an identical operation that just finished, lead the operation, or follow its leader.
+     */
+    private Mono<Flight> coordinate(String fingerprint, String userId, Mono<String> work) {
+        String token = UUID.randomUUID().toString();
+        return finished(fingerprint)
+                .switchIfEmpty(Mono.defer(() -> redisTemplate.opsForValue()
+                        .setIfAbsent(lockKey(fingerprint), token, properties.lease())
+                        .onErrorResume(e -> {
+                            log.warn("Single-flight lock unavailable, running {} alone: {}", fingerprint, e.getMessage());
+                            return Mono.just(true);
+                        })
+                        .flatMap(acquired -> {
+                            if (acquired) {
+                                return lead(fingerprint, token, userId, work);
+                            }
+                            remoteJoins.increment();
+                            log.debug("Operation {} in flight on another node, waiting for it", fingerprint);
+                            return follow(fingerprint, userId, work);
+                        })));
+    }
+
+    private Mono<Flight> lead(String fingerprint, String token, String userId, Mono<String> work) {
+        return Mono.usingWhen(
+                Mono.fromSupplier(() -> renewLease(fingerprint, token)),
+                renewal -> work.map(outputFileId -> new Flight(outputFileId, userId))
+                        .flatMap(flight -> publish(fingerprint, flight).thenReturn(flight)),
+                renewal -> {
+                    renewal.dispose();
+                    return release(fingerprint, token);
+                });
+    }
+
+    private Mono<Flight> follow(String fingerprint, String userId, Mono<String> work) {
+        return Mono.delay(properties.pollInterval())
+                .then(finished(fingerprint))
+                .switchIfEmpty(Mono.defer(() -> redisTemplate.hasKey(lockKey(fingerprint))
+                        .onErrorReturn(false)
+                        // Without the lock the leader failed or went away: take over
+                        .flatMap(held -> held
+                                ? follow(fingerprint, userId, work)
+                                : coordinate(fingerprint, userId, work))));
+    }
+
+    private Mono<String> ownedBy(Flight flight, String userId, String outputName) {
+        if (flight.userId().equals(userId)) {
+            return Mono.just(flight.outputFileId());
+        }
+        return storageClient.copyFile(flight.outputFileId(), outputName, userId);
+    }
+
+    private Mono<Flight> finished(String fingerprint) {
+        return redisTemplate.opsForValue().get(resultKey(fingerprint))
+                .mapNotNull(Flight::parse)
+                .onErrorResume(e -> Mono.empty());
+    }
+
+    private Mono<Void> publish(String fingerprint, Flight flight) {
+        return redisTemplate.opsForValue()
+                .set(resultKey(fingerprint), flight.format(), properties.resultTtl())
+                .then()
+                .onErrorResume(e -> {
+                    log.warn("Failed to publish result of operation {}: {}", fingerprint, e.getMessage());
+                    return Mono.empty();
+                });
+    }
+
+    private Disposable renewLease(String fingerprint, String token) {
+        List<String> args = List.of(token, String.valueOf(properties.lease().toMillis()));
+        return Flux.interval(properties.lease().dividedBy(3))
+                .concatMap(tick -> redisTemplate.execute(RENEW, List.of(lockKey(fingerprint)), args)
+                        .onErrorResume(e -> Flux.empty()))
+                .subscribe();
+    }
+
+    private Mono<Void> release(String fingerprint, String token) {
+        return redisTemplate.execute(RELEASE, List.of(lockKey(fingerprint)), List.of(token))
+                .then()
+                .onErrorResume(e -> Mono.empty());
+    }
+
+    private String lockKey(String fingerprint) {
+        return properties.keyPrefix() + fingerprint + ":lock";
+    }
+
+    private String resultKey(String fingerprint) {
+        return properties.keyPrefix() + fingerprint + ":result";
+    }
+
+    /**
+     * Output of an operation and the user who owns it.
+     */
+    private record Flight(String outputFileId, String userId) {
+
+        String format() {
+            return outputFileId + ":" + userId;
+        }
+
+        static Flight parse(String value) {
+            int separator = value.indexOf(':');
+            return separator > 0 ? new Flight(value.substring(0, separator), value.substring(separator + 1)) : null;
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package com.pdfutility.pdfcore.processing;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * Coalescing of identical operations that run at the same time.
+ *
+ * @param enabled Whether identical operations wait for the one already running
+ * @param lease How long the cluster-wide lock of a running operation lives without being renewed
+ * @param pollInterval How often an operation waiting on another node checks for its result
+ * @param resultTtl How long a finished operation's output stays available to operations still waiting for it
+ * @param keyPrefix Prefix of the Redis keys
+ */
+@ConfigurationProperties(prefix = "pdf.processing.single-flight")
+public record SingleFlightProperties(
+        Boolean enabled,
+        Duration lease,
+        Duration pollInterval,
+        Duration resultTtl,
+        String keyPrefix
+) {
+    public SingleFlightProperties {
+        if (enabled == null) {
+            enabled = true;
+        }
+        if (lease == null || lease.isNegative() || lease.isZero()) {
+            lease = Duration.ofSeconds(30);
+        }
+        if (pollInterval == null || pollInterval.isNegative() || pollInterval.isZero()) {
+            pollInterval = Duration.ofMillis(500);
+        }
+        if (resultTtl == null || resultTtl.isNegative() || resultTtl.isZero()) {
+            resultTtl = Duration.ofMinutes(5);
+        }
+        if (keyPrefix == null || keyPrefix.isBlank()) {
+            keyPrefix = "pdf:flight:";
+        }
+    }
+}
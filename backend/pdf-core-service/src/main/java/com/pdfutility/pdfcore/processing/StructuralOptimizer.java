@@ -0,0 +1,399 @@
+package com.pdfutility.pdfcore.processing;
+
+import lombok.extern.slf4j.Slf4j;
+import org.apache.pdfbox.contentstream.PDContentStream;
+import org.apache.pdfbox.contentstream.operator.Operator;
+import org.apache.pdfbox.cos.COSArray;
+import org.apache.pdfbox.cos.COSBase;
+import org.apache.pdfbox.cos.COSDictionary;
+import org.apache.pdfbox.cos.COSName;
+import org.apache.pdfbox.cos.COSObject;
+import org.apache.pdfbox.cos.COSStream;
+import org.apache.pdfbox.pdfparser.PDFStreamParser;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.PDResources;
+import org.apache.pdfbox.pdmodel.graphics.PDXObject;
+import org.apache.pdfbox.pdmodel.graphics.form.PDFormXObject;
+import org.apache.pdfbox.pdmodel.graphics.pattern.PDAbstractPattern;
+import org.apache.pdfbox.pdmodel.graphics.pattern.PDTilingPattern;
+import org.apache.pdfbox.pdmodel.interactive.annotation.PDAnnotation;
+import org.apache.pdfbox.pdmodel.interactive.annotation.PDAppearanceDictionary;
+import org.apache.pdfbox.pdmodel.interactive.annotation.PDAppearanceEntry;
+import org.apache.pdfbox.pdmodel.interactive.annotation.PDAppearanceStream;
+import org.apache.pdfbox.pdmodel.interactive.form.PDAcroForm;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.HexFormat;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+
+/**
+ * Lossless structural optimizations applied before a document is saved.
+ * <ul>
+ *   <li>Resource entries that no content stream refers to are removed, so the objects behind them
+ *       become unreachable and are not written.</li>
+ *   <li>Identical embedded font programs are shared instead of stored once per font.</li>
+ *   <li>Flate and unfiltered streams are re-deflated at the highest level when that is smaller.</li>
+ * </ul>
+ * Object streams and compressed xref streams are produced by the save itself.
+ */
+@Slf4j
+@Component
+public class StructuralOptimizer {
+
+    private static final List<COSName> RESOURCE_CATEGORIES = List.of(
+            COSName.XOBJECT, COSName.FONT, COSName.EXT_G_STATE, COSName.SHADING,
+            COSName.PATTERN, COSName.COLORSPACE, COSName.PROPERTIES);
+    private static final List<COSName> FONT_FILES = List.of(
+            COSName.FONT_FILE, COSName.FONT_FILE2, COSName.FONT_FILE3);
+    /** Streams that are rebuilt on save or are meant to stay readable. */
+    private static final Set<COSName> SKIPPED_STREAM_TYPES = Set.of(
+            COSName.XREF, COSName.OBJ_STM, COSName.METADATA);
+
+    /**
+     * Bytes saved per category, measured as stored (encoded) stream lengths.
+     */
+    public record Report(int removedResources, long removedResourceBytes,
+                         int duplicateFonts, long duplicateFontBytes,
+                         int recompressedStreams, long recompressionBytes) {
+
+        public long totalBytes() {
+            return removedResourceBytes + duplicateFontBytes + recompressionBytes;
+        }
+    }
+
+    public Report optimize(PDDocument document) throws IOException {
+        List<COSStream> removedStreams = new ArrayList<>();
+        int removedResources = removeUnusedResources(document, removedStreams);
+
+        // Only count removed objects that nothing else still references
+        Set<COSBase> reachable = reachableObjects(document);
+        long removedResourceBytes = removedStreams.stream()
+                .filter(stream -> !reachable.contains(stream))
+                .mapToLong(COSStream::getLength)
+                .sum();
+
+        long[] fontBytes = new long[1];
+        int duplicateFonts = deduplicateFontPrograms(reachable, fontBytes);
+
+        long[] recompressionBytes = new long[1];
+        int recompressed = document.isEncrypted()
+                ? 0
+                : recompressStreams(reachableObjects(document), recompressionBytes);
+
+        Report report = new Report(removedResources, removedResourceBytes,
+                duplicateFonts, fontBytes[0], recompressed, recompressionBytes[0]);
+        log.debug("Structural optimization: {}", report);
+        return report;
+    }
+
+    // ========== Unused resources ==========
+
+    /**
+     * Remove resource entries whose names no content stream using that resource dictionary mentions.
+     * Usage is collected per resource dictionary (by identity), so dictionaries shared between pages
+     * or inherited from the page tree keep everything any of their users needs.
+     */
+    private int removeUnusedResources(PDDocument document, List<COSStream> removedStreams) {
+        Map<COSDictionary, Set<COSName>> usage = new IdentityHashMap<>();
+        Set<COSDictionary> pinned = Collections.newSetFromMap(new IdentityHashMap<>());
+        Set<COSBase> visited = Collections.newSetFromMap(new IdentityHashMap<>());
+
+        // Field appearances are generated from the form's default resources, which may be shared with pages
+        PDAcroForm acroForm = document.getDocumentCatalog().getAcroForm(null);
+        if (acroForm != null) {
+            pin(acroForm.getDefaultResources(), pinned);
+        }
+
+        for (PDPage page : document.getPages()) {
+            collectUsage(page, page.getCOSObject(), page.getResources(), usage, pinned, visited);
+            try {
+                for (PDAnnotation annotation : page.getAnnotations()) {
+                    collectAppearanceUsage(annotation.getAppearance(), page.getResources(), usage, pinned, visited);
+                }
+            } catch (IOException e) {
+                pin(page.getResources(), pinned);
+            }
+        }
+
+        int removed = 0;
+        for (Map.Entry<COSDictionary, Set<COSName>> entry : usage.entrySet()) {
+            if (pinned.contains(entry.getKey())) {
+                continue;
+            }
+            for (COSName category : RESOURCE_CATEGORIES) {
+                COSDictionary entries = entry.getKey().getCOSDictionary(category);
+                if (entries == null) {
+                    continue;
+                }
+                for (COSName name : new ArrayList<>(entries.keySet())) {
+                    if (entry.getValue().contains(name) || isImplicitlyUsed(category, name)) {
+                        continue;
+                    }
+                    if (entries.getDictionaryObject(name) instanceof COSStream stream) {
+                        removedStreams.add(stream);
+                    }
+                    entries.removeItem(name);
+                    removed++;
+                }
+            }
+        }
+        return removed;
+    }
+
+    /**
+     * Record the names a content stream uses against its resource dictionary, then descend into the
+     * forms and tiling patterns it can draw. Resources are left untouched when anything cannot be read.
+     */
+    private void collectUsage(PDContentStream content, COSBase contentObject, PDResources resources,
+                              Map<COSDictionary, Set<COSName>> usage, Set<COSDictionary> pinned, Set<COSBase> visited) {
+        if (resources == null || !visited.add(contentObject)) {
+            return;
+        }
+        Set<COSName> names = usage.computeIfAbsent(resources.getCOSObject(), key -> new HashSet<>());
+        try {
+            names.addAll(usedNames(content));
+            if (hasType3Font(resources)) {
+                // Type 3 glyph procedures may draw with the enclosing resources
+                pin(resources, pinned);
+            }
+            for (COSName name : resources.getXObjectNames()) {
+                PDXObject xObject = resources.getXObject(name);
+                if (xObject instanceof PDFormXObject form) {
+                    collectUsage(form, form.getCOSObject(),
+                            form.getResources() != null ? form.getResources() : resources,
+                            usage, pinned, visited);
+                }
+            }
+            for (COSName name : resources.getPatternNames()) {
+                PDAbstractPattern pattern = resources.getPattern(name);
+                if (pattern instanceof PDTilingPattern tiling) {
+                    collectUsage(tiling, tiling.getCOSObject(),
+                            tiling.getResources() != null ? tiling.getResources() : resources,
+                            usage, pinned, visited);
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            log.debug("Resources left unchanged, content could not be parsed: {}", e.getMessage());
+            pin(resources, pinned);
+        }
+    }
+
+    private void collectAppearanceUsage(PDAppearanceDictionary appearance, PDResources pageResources,
+                                        Map<COSDictionary, Set<COSName>> usage, Set<COSDictionary> pinned,
+                                        Set<COSBase> visited) {
+        if (appearance == null) {
+            return;
+        }
+        for (PDAppearanceEntry entry : List.of(appearance.getNormalAppearance(),
+                appearance.getRolloverAppearance(), appearance.getDownAppearance())) {
+            if (entry == null) {
+                continue;
+            }
+            List<PDAppearanceStream> streams = entry.isStream()
+                    ? List.of(entry.getAppearanceStream())
+                    : new ArrayList<>(entry.getSubDictionary().values());
+            for (PDAppearanceStream stream : streams) {
+                collectUsage(stream, stream.getCOSObject(),
+                        stream.getResources() != null ? stream.getResources() : pageResources,
+                        usage, pinned, visited);
+            }
+        }
+    }
+
+    /**
+     * Every name operand in a content stream, including those in inline image and marked-content dictionaries.
+     * Deliberately conservative: a name used in any role keeps the resources of that name in every category.
+     */
+    private Set<COSName> usedNames(PDContentStream content) throws IOException {
+        Set<COSName> names = new HashSet<>();
+        PDFStreamParser parser = new PDFStreamParser(content);
+        for (Object token = parser.parseNextToken(); token != null; token = parser.parseNextToken()) {
+            if (token instanceof Operator operator && operator.getImageParameters() != null) {
+                collectNames(operator.getImageParameters(), names);
+            } else if (token instanceof COSBase base) {
+                collectNames(base, names);
+            }
+        }
+        return names;
+    }
+
+    private void collectNames(COSBase base, Set<COSName> names) {
+        if (base instanceof COSName name) {
+            names.add(name);
+        } else if (base instanceof COSArray array) {
+            array.forEach(item -> collectNames(item, names));
+        } else if (base instanceof COSDictionary dictionary) {
+            dictionary.getValues().forEach(item -> collectNames(item, names));
+        }
+    }
+
+    private boolean hasType3Font(PDResources resources) {
+        COSDictionary fonts = resources.getCOSObject().getCOSDictionary(COSName.FONT);
+        if (fonts == null) {
+            return false;
+        }
+        return fonts.getValues().stream()
+                .map(font -> font instanceof COSObject reference ? reference.getObject() : font)
+                .anyMatch(font -> font instanceof COSDictionary dictionary
+                        && COSName.TYPE3.equals(dictionary.getCOSName(COSName.SUBTYPE)));
+    }
+
+    private boolean isImplicitlyUsed(COSName category, COSName name) {
+        // DefaultGray/DefaultRGB/DefaultCMYK replace device colour spaces without being named
+        return COSName.COLORSPACE.equals(category) && name.getName().startsWith("Default");
+    }
+
+    private void pin(PDResources resources, Set<COSDictionary> pinned) {
+        if (resources != null) {
+            pinned.add(resources.getCOSObject());
+        }
+    }
+
+    // ========== Duplicate font programs ==========
+
+    /**
+     * Point font descriptors with byte-identical embedded programs at a single stream.
+     */
+    private int deduplicateFontPrograms(Set<COSBase> reachable, long[] savedBytes) throws IOException {
+        Map<String, COSStream> programs = new HashMap<>();
+        Set<COSStream> replaced = Collections.newSetFromMap(new IdentityHashMap<>());
+        int duplicates = 0;
+        for (COSBase object : reachable) {
+            if (!(object instanceof COSDictionary descriptor)
+                    || !COSName.FONT_DESC.equals(descriptor.getCOSName(COSName.TYPE))) {
+                continue;
+            }
+            for (COSName key : FONT_FILES) {
+                if (!(descriptor.getDictionaryObject(key) instanceof COSStream program)) {
+                    continue;
+                }
+                String fingerprint = key.getName() + ":" + program.getCOSName(COSName.SUBTYPE) + ":" + fingerprint(program);
+                COSStream canonical = programs.putIfAbsent(fingerprint, program);
+                if (canonical != null && canonical != program) {
+                    descriptor.setItem(key, canonical);
+                    if (replaced.add(program)) {
+                        duplicates++;
+                        savedBytes[0] += program.getLength();
+                    }
+                }
+            }
+        }
+        return duplicates;
+    }
+
+    private String fingerprint(COSStream stream) throws IOException {
+        try (InputStream in = stream.createInputStream()) {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            byte[] buffer = new byte[8192];
+            for (int read = in.read(buffer); read != -1; read = in.read(buffer)) {
+                digest.update(buffer, 0, read);
+            }
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    // ========== Stream recompression ==========
+
+    private int recompressStreams(Set<COSBase> reachable, long[] savedBytes) {
+        int recompressed = 0;
+        for (COSBase object : reachable) {
+            if (!(object instanceof COSStream stream) || !isRecompressible(stream)) {
+                continue;
+            }
+            try {
+                byte[] decoded;
+                try (InputStream in = stream.createInputStream()) {
+                    decoded = in.readAllBytes();
+                }
+                byte[] deflated = deflate(decoded);
+                long before = stream.getLength();
+                if (deflated.length < before) {
+                    try (OutputStream out = stream.createRawOutputStream()) {
+                        out.write(deflated);
+                    }
+                    stream.setItem(COSName.FILTER, COSName.FLATE_DECODE);
+                    savedBytes[0] += before - deflated.length;
+                    recompressed++;
+                }
+            } catch (IOException e) {
+                log.debug("Stream left as is: {}", e.getMessage());
+            }
+        }
+        return recompressed;
+    }
+
+    /**
+     * Unfiltered streams and streams with a single plain Flate filter. Predictors, other codecs
+     * (DCT, JBIG2, CCITT, JPX) and external streams are left alone.
+     */
+    private boolean isRecompressible(COSStream stream) {
+        if (SKIPPED_STREAM_TYPES.contains(stream.getCOSName(COSName.TYPE))
+                || stream.containsKey(COSName.DECODE_PARMS)
+                || stream.containsKey(COSName.DP)
+                || stream.containsKey(COSName.F)) {
+            return false;
+        }
+        COSBase filters = stream.getFilters();
+        if (filters instanceof COSArray array) {
+            filters = array.size() == 1 ? array.getObject(0) : array;
+        }
+        return filters == null || COSName.FLATE_DECODE.equals(filters);
+    }
+
+    private static byte[] deflate(byte[] data) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(Math.max(64, data.length / 2));
+        Deflater deflater = new Deflater(Deflater.BEST_COMPRESSION);
+        try (DeflaterOutputStream stream = new DeflaterOutputStream(out, deflater)) {
+            stream.write(data);
+        } finally {
+            deflater.end();
+        }
+        return out.toByteArray();
+    }
+
+    // ========== Reachability ==========
+
+    /**
+     * Every object reachable from the trailer; these are exactly the objects a full save writes.
+     */
+    private Set<COSBase> reachableObjects(PDDocument document) {
+        Set<COSBase> reachable = Collections.newSetFromMap(new IdentityHashMap<>());
+        Deque<COSBase> pending = new ArrayDeque<>();
+        pending.push(document.getDocument().getTrailer());
+        while (!pending.isEmpty()) {
+            COSBase base = pending.pop();
+            if (base instanceof COSObject reference) {
+                base = reference.getObject();
+            }
+            if (base == null || !reachable.add(base)) {
+                continue;
+            }
+            if (base instanceof COSDictionary dictionary) {
+                dictionary.getValues().forEach(pending::push);
+            } else if (base instanceof COSArray array) {
+                array.forEach(pending::push);
+            }
+        }
+        return reachable;
+    }
+}
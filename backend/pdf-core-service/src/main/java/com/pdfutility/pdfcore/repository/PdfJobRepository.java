@@ -1,5 +1,6 @@
 package com.pdfutility.pdfcore.repository;
 
+import com.pdfutility.pdfcore.model.JobLane;
 import com.pdfutility.pdfcore.model.JobStatus;
 import com.pdfutility.pdfcore.model.JobType;
 import com.pdfutility.pdfcore.model.PdfJob;
@@ -12,6 +13,7 @@ import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 
 /**
  * R2DBC Repository for PDF Jobs - REQUIRED for WebFlux.
@@ -69,9 +71,9 @@ public interface PdfJobRepository extends ReactiveCrudRepository<PdfJob, String>
             progress = 100, 
             updated_at = :completedAt, 
             completed_at = :completedAt 
-        WHERE id = :id
+        WHERE id = :id AND status = 'PROCESSING' AND worker_id = :workerId
         """)
-    Mono<Integer> markCompleted(String id, String outputFileId, LocalDateTime completedAt);
+    Mono<Integer> markCompleted(String id, String workerId, String outputFileId, LocalDateTime completedAt);
 
     /**
      * Mark job as failed.
@@ -83,9 +85,9 @@ public interface PdfJobRepository extends ReactiveCrudRepository<PdfJob, String>
             error_message = :errorMessage, 
             updated_at = :failedAt, 
             completed_at = :failedAt 
-        WHERE id = :id
+        WHERE id = :id AND status = 'PROCESSING' AND worker_id = :workerId
         """)
-    Mono<Integer> markFailed(String id, String errorMessage, LocalDateTime failedAt);
+    Mono<Integer> markFailed(String id, String workerId, String errorMessage, LocalDateTime failedAt);
 
     /**
      * Find pending jobs for processing (for worker/scheduler).
@@ -94,15 +96,184 @@ public interface PdfJobRepository extends ReactiveCrudRepository<PdfJob, String>
     Flux<PdfJob> findPendingJobs(int limit);
 
     /**
-     * Find stale processing jobs (jobs stuck in processing for too long).
+     * Head of line of every (lane, user) queue: each user's oldest pending job per lane.
+     * The fair scheduler picks among these, so one user's backlog is a single candidate however long it is.
+     * A head belonging to a batch that already has {@code batchParallelism} children in progress is left out,
+     * which holds back the rest of that queue until one of them finishes. This only saves claims that would
+     * fail; the limit itself is enforced by {@link #claimPendingJob}.
      */
-    @Query("SELECT * FROM pdf_jobs WHERE status = 'PROCESSING' AND updated_at < :threshold")
+    @Query("""
+        SELECT * FROM (
+            SELECT DISTINCT ON (lane, user_id)
+                   id, user_id, lane, job_type, parent_id, created_at, cardinality(input_file_ids) AS input_count
+            FROM pdf_jobs
+            WHERE status = 'PENDING' AND updated_at <= :pendingBefore
+            ORDER BY lane, user_id, created_at ASC
+        ) heads
+        WHERE heads.parent_id IS NULL
+           OR (SELECT COUNT(*) FROM pdf_jobs c
+               WHERE c.parent_id = heads.parent_id AND c.status = 'PROCESSING') < :batchParallelism
+        LIMIT :limit
+        """)
+    Flux<PendingJobHead> findPendingJobHeads(LocalDateTime pendingBefore, int batchParallelism, int limit);
+
+    /**
+     * Lock a batch parent for the rest of the transaction, serializing the claims of its children.
+     */
+    @Query("SELECT id FROM pdf_jobs WHERE id = :parentId FOR UPDATE")
+    Mono<String> lockBatch(String parentId);
+
+    /**
+     * Claim a specific pending job for a worker.
+     * Workers on every node see the same candidates in the same order; SKIP LOCKED lets them pass over a row
+     * another worker is claiming instead of queueing on its lock, and the status check makes the transition a
+     * compare-and-set, so each job is claimed exactly once.
+     * Claiming records the owner, starts the heartbeat and counts an attempt.
+     * A child of a batch is only claimed while fewer than {@code batchParallelism} of its siblings are in
+     * progress. Each statement only sees rows committed before it started, so the claim of a child must run
+     * in a transaction that has already taken {@link #lockBatch} on its parent: the count then includes
+     * whatever the previous holder of the lock claimed.
+     * Empty if the job is being or was already claimed elsewhere, no longer exists or its batch is at its limit.
+     */
+    @Query("""
+        UPDATE pdf_jobs j
+        SET status = 'PROCESSING',
+            worker_id = :workerId,
+            attempts = j.attempts + 1,
+            heartbeat_at = :claimedAt,
+            updated_at = :claimedAt
+        WHERE j.id = (
+            SELECT id FROM pdf_jobs
+            WHERE id = :id AND status = 'PENDING'
+            FOR UPDATE SKIP LOCKED
+        )
+          AND j.status = 'PENDING'
+          AND (j.parent_id IS NULL
+               OR (SELECT COUNT(*) FROM pdf_jobs c
+                   WHERE c.parent_id = j.parent_id AND c.status = 'PROCESSING') < :batchParallelism)
+        RETURNING *
+        """)
+    Mono<PdfJob> claimPendingJob(String id, String workerId, LocalDateTime claimedAt, int batchParallelism);
+
+    /**
+     * Return a claimed job to the queue without counting it as failed or as an attempt.
+     * Candidates are only those pending since a given time, so the job is not claimed again before {@code notBefore}.
+     */
+    @Modifying
+    @Query("""
+        UPDATE pdf_jobs
+        SET status = 'PENDING',
+            worker_id = NULL,
+            attempts = GREATEST(attempts - 1, 0),
+            updated_at = :notBefore
+        WHERE id = :id AND status = 'PROCESSING' AND worker_id = :workerId
+        """)
+    Mono<Integer> requeue(String id, String workerId, LocalDateTime notBefore);
+
+    /**
+     * Refresh the heartbeat of the jobs a worker still owns.
+     */
+    @Modifying
+    @Query("UPDATE pdf_jobs SET heartbeat_at = :heartbeatAt WHERE id IN (:ids) AND status = 'PROCESSING' AND worker_id = :workerId")
+    Mono<Integer> heartbeat(Collection<String> ids, String workerId, LocalDateTime heartbeatAt);
+
+    /**
+     * Find stale processing jobs (jobs whose owner stopped sending heartbeats).
+     * Batch parents have no owner and are never stale.
+     */
+    @Query("SELECT * FROM pdf_jobs WHERE status = 'PROCESSING' AND job_type <> 'BATCH' AND COALESCE(heartbeat_at, updated_at) < :threshold")
     Flux<PdfJob> findStaleProcessingJobs(LocalDateTime threshold);
 
+    /**
+     * Put stale jobs that have attempts left back in the queue.
+     */
+    @Query("""
+        UPDATE pdf_jobs
+        SET status = 'PENDING',
+            worker_id = NULL,
+            updated_at = :now
+        WHERE status = 'PROCESSING'
+          AND job_type <> 'BATCH'
+          AND COALESCE(heartbeat_at, updated_at) < :threshold
+          AND attempts < max_attempts
+        RETURNING *
+        """)
+    Flux<PdfJob> requeueStaleJobs(LocalDateTime threshold, LocalDateTime now);
+
+    /**
+     * Fail stale jobs that have used up their attempts.
+     */
+    @Query("""
+        UPDATE pdf_jobs
+        SET status = 'FAILED',
+            error_message = 'Worker lost after ' || attempts || ' attempts',
+            updated_at = :now,
+            completed_at = :now
+        WHERE status = 'PROCESSING'
+          AND job_type <> 'BATCH'
+          AND COALESCE(heartbeat_at, updated_at) < :threshold
+          AND attempts >= max_attempts
+        RETURNING *
+        """)
+    Flux<PdfJob> failExhaustedStaleJobs(LocalDateTime threshold, LocalDateTime now);
+
+    /**
+     * Children of a batch, in the order they were submitted.
+     */
+    @Query("SELECT * FROM pdf_jobs WHERE parent_id = :parentId ORDER BY created_at ASC, id ASC")
+    Flux<PdfJob> findByParentId(String parentId);
+
+    /**
+     * Recompute the progress of a running batch from its children, finishing it once none is left to run:
+     * COMPLETED if any child produced an output, CANCELLED if the rest was cancelled before any did, FAILED otherwise.
+     * Every child that finishes calls this after its own update is committed, so the last call sees all of them;
+     * the status check lets only one of them finish the batch.
+     */
+    @Query("""
+        UPDATE pdf_jobs p
+        SET progress = children.done * 100 / GREATEST(children.total, 1),
+            status = CASE
+                WHEN children.done < children.total THEN p.status
+                WHEN children.completed > 0 THEN 'COMPLETED'
+                WHEN children.cancelled > 0 THEN 'CANCELLED'
+                ELSE 'FAILED' END,
+            error_message = CASE
+                WHEN children.done > children.completed
+                THEN (children.done - children.completed) || ' of ' || children.total || ' files were not processed'
+                END,
+            updated_at = :now,
+            completed_at = CASE WHEN children.done < children.total THEN NULL ELSE :now END
+        FROM (
+            SELECT COUNT(*) AS total,
+                   COUNT(*) FILTER (WHERE status IN ('COMPLETED', 'FAILED', 'CANCELLED')) AS done,
+                   COUNT(*) FILTER (WHERE status = 'COMPLETED') AS completed,
+                   COUNT(*) FILTER (WHERE status = 'CANCELLED') AS cancelled
+            FROM pdf_jobs
+            WHERE parent_id = :parentId
+        ) children
+        WHERE p.id = :parentId AND p.status = 'PROCESSING'
+        RETURNING p.*
+        """)
+    Mono<PdfJob> updateBatchProgress(String parentId, LocalDateTime now);
+
+    /**
+     * Cancel the children of a batch that have not started yet.
+     */
+    @Modifying
+    @Query("UPDATE pdf_jobs SET status = 'CANCELLED', updated_at = :now, completed_at = :now WHERE parent_id = :parentId AND status = 'PENDING'")
+    Mono<Integer> cancelPendingChildren(String parentId, LocalDateTime now);
+
     /**
      * Delete old completed jobs for cleanup.
      */
     @Modifying
     @Query("DELETE FROM pdf_jobs WHERE status = 'COMPLETED' AND completed_at < :threshold")
     Mono<Integer> deleteOldCompletedJobs(LocalDateTime threshold);
+
+    /**
+     * The oldest pending job of one user in one lane.
+     */
+    record PendingJobHead(String id, String userId, JobLane lane, JobType jobType, String parentId,
+                          LocalDateTime createdAt, Integer inputCount) {
+    }
 }
@@ -0,0 +1,53 @@
+package com.pdfutility.pdfcore.service;
+
+import com.pdfutility.pdfcore.dto.PdfOperationRequests.PipelineOperation;
+import com.pdfutility.pdfcore.dto.PdfOperationResponses.BatchStatusResponse;
+import org.springframework.core.io.buffer.DataBuffer;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+
+/**
+ * PDF Batch Service Interface - Reactive.
+ * Applies one operation to many PDFs as a parent job with a child job per file. Children run on the
+ * job workers in the batch lane, a bounded number of them at a time, and the parent tracks their progress.
+ */
+public interface PdfBatchService {
+
+    /**
+     * Create a batch.
+     *
+     * @param fileIds File IDs of the PDFs in storage
+     * @param operations Operations applied to every file, in order
+     * @param userId Owner of the batch and its results
+     * @return Batch ID for tracking
+     */
+    Mono<String> createBatch(List<String> fileIds, List<PipelineOperation> operations, String userId);
+
+    /**
+     * Get the status of a batch and of each of its files.
+     *
+     * @param batchId Batch ID
+     * @param userId Owner of the batch
+     * @return Batch status, empty if there is no such batch for the user
+     */
+    Mono<BatchStatusResponse> getBatch(String batchId, String userId);
+
+    /**
+     * Cancel the files of a batch that have not started yet.
+     *
+     * @param batchId Batch ID
+     * @param userId Owner of the batch
+     * @return Number of files cancelled, empty if there is no running batch for the user
+     */
+    Mono<Integer> cancelBatch(String batchId, String userId);
+
+    /**
+     * Stream the outputs of a batch as a ZIP archive, downloading one output at a time.
+     *
+     * @param batch Status of the batch
+     * @return ZIP content
+     */
+    Flux<DataBuffer> zipOutputs(BatchStatusResponse batch);
+}
@@ -1,6 +1,7 @@
 package com.pdfutility.pdfcore.service;
 
 import com.pdfutility.pdfcore.model.CompressionLevel;
+import com.pdfutility.pdfcore.model.JobLane;
 import reactor.core.publisher.Mono;
 
 import java.nio.ByteBuffer;
@@ -30,10 +31,11 @@ public interface PdfCompressService {
      * @param removeMetadata Whether to remove metadata
      * @param optimizeImages Whether to optimize images
      * @param userId User ID for tracking
+     * @param lane Scheduling lane of the job
      * @return Job ID for tracking the compression operation
      */
     Mono<String> compressPdfAsync(String fileId, CompressionLevel level, 
-                                   boolean removeMetadata, boolean optimizeImages, String userId);
+                                   boolean removeMetadata, boolean optimizeImages, String userId, JobLane lane);
 
     /**
      * Get compression result for a completed job.
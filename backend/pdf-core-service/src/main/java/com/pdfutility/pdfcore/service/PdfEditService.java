@@ -1,21 +1,22 @@
 package com.pdfutility.pdfcore.service;
 
+import com.pdfutility.pdfcore.dto.PdfOperationRequests.PipelineOperation;
 import com.pdfutility.pdfcore.dto.PdfOperationResponses.PdfInfoResponse;
 import reactor.core.publisher.Mono;
 
-import java.nio.ByteBuffer;
 import java.util.List;
 
 /**
  * PDF Edit Service Interface - Reactive.
  * Provides editing operations like adding text, images, watermarks.
+ * Operations read their input from storage and store the result, streaming through the document pipeline.
  */
 public interface PdfEditService {
 
     /**
      * Add text to a PDF.
      *
-     * @param fileContent PDF file content
+     * @param fileId File ID of the PDF in storage
      * @param text Text to add
      * @param pageNumber Page number (1-indexed)
      * @param x X coordinate
@@ -23,82 +24,101 @@ public interface PdfEditService {
      * @param fontSize Font size
      * @param fontName Font name
      * @param color Text color (hex)
-     * @return Modified PDF content
+     * @param userId Owner of the result
+     * @return File ID of the modified PDF
      */
-    Mono<ByteBuffer> addText(ByteBuffer fileContent, String text, int pageNumber,
-                              float x, float y, int fontSize, String fontName, String color);
+    Mono<String> addText(String fileId, String text, int pageNumber,
+                         float x, float y, int fontSize, String fontName, String color, String userId);
 
     /**
      * Add watermark to PDF.
      *
-     * @param fileContent PDF file content
+     * @param fileId File ID of the PDF in storage
      * @param watermarkText Watermark text
      * @param opacity Opacity (0.0 - 1.0)
      * @param rotation Rotation angle
-     * @return Modified PDF content
+     * @param userId Owner of the result
+     * @return File ID of the modified PDF
      */
-    Mono<ByteBuffer> addWatermark(ByteBuffer fileContent, String watermarkText,
-                                   float opacity, int rotation);
+    Mono<String> addWatermark(String fileId, String watermarkText,
+                              float opacity, int rotation, String userId);
 
     /**
      * Add image watermark to PDF.
      *
-     * @param fileContent PDF file content
-     * @param imageContent Image content
+     * @param fileId File ID of the PDF in storage
+     * @param imageFileId File ID of the image in storage
      * @param opacity Opacity (0.0 - 1.0)
      * @param position Position on page
-     * @return Modified PDF content
+     * @param userId Owner of the result
+     * @return File ID of the modified PDF
      */
-    Mono<ByteBuffer> addImageWatermark(ByteBuffer fileContent, ByteBuffer imageContent,
-                                        float opacity, String position);
+    Mono<String> addImageWatermark(String fileId, String imageFileId,
+                                   float opacity, String position, String userId);
 
     /**
      * Rotate PDF pages.
      *
-     * @param fileContent PDF file content
+     * @param fileId File ID of the PDF in storage
      * @param angle Rotation angle (90, 180, 270)
      * @param pageNumbers Page numbers to rotate (null = all)
-     * @return Modified PDF content
+     * @param userId Owner of the result
+     * @return File ID of the modified PDF
      */
-    Mono<ByteBuffer> rotatePages(ByteBuffer fileContent, int angle, List<Integer> pageNumbers);
+    Mono<String> rotatePages(String fileId, int angle, List<Integer> pageNumbers, String userId);
 
     /**
      * Split PDF into multiple files.
      *
-     * @param fileContent PDF file content
+     * @param fileId File ID of the PDF in storage
      * @param fromPage Start page (1-indexed)
      * @param toPage End page (inclusive)
-     * @return Extracted PDF content
+     * @param userId Owner of the result
+     * @return File ID of the extracted PDF
      */
-    Mono<ByteBuffer> extractPages(ByteBuffer fileContent, int fromPage, int toPage);
+    Mono<String> extractPages(String fileId, int fromPage, int toPage, String userId);
 
     /**
      * Get PDF information/metadata.
      *
-     * @param fileContent PDF file content
+     * @param fileId File ID of the PDF in storage
      * @return PDF information
      */
-    Mono<PdfInfoResponse> getPdfInfo(ByteBuffer fileContent);
+    Mono<PdfInfoResponse> getPdfInfo(String fileId);
 
     /**
      * Protect PDF with password.
      *
-     * @param fileContent PDF file content
+     * @param fileId File ID of the PDF in storage
      * @param userPassword User password
      * @param ownerPassword Owner password
      * @param allowPrinting Allow printing
      * @param allowCopying Allow copying
-     * @return Protected PDF content
+     * @param userId Owner of the result
+     * @return File ID of the protected PDF
      */
-    Mono<ByteBuffer> protectPdf(ByteBuffer fileContent, String userPassword,
-                                 String ownerPassword, boolean allowPrinting, boolean allowCopying);
+    Mono<String> protectPdf(String fileId, String userPassword,
+                            String ownerPassword, boolean allowPrinting, boolean allowCopying, String userId);
 
     /**
      * Remove password protection from PDF.
      *
-     * @param fileContent PDF file content
+     * @param fileId File ID of the PDF in storage
      * @param password Password to unlock
-     * @return Unlocked PDF content
+     * @param userId Owner of the result
+     * @return File ID of the unlocked PDF
      */
-    Mono<ByteBuffer> unlockPdf(ByteBuffer fileContent, String password);
+    Mono<String> unlockPdf(String fileId, String password, String userId);
+
+    /**
+     * Apply a chain of operations to a PDF, loading and saving it once.
+     *
+     * @param fileId File ID of the PDF in storage
+     * @param operations Operations, applied in order; unlock may only come first and protect only last
+     * @param outputFileName File name of the result, or null for a generated one
+     * @param userId Owner of the result
+     * @return File ID of the resulting PDF
+     */
+    Mono<String> applyOperations(String fileId, List<PipelineOperation> operations,
+                                 String outputFileName, String userId);
 }
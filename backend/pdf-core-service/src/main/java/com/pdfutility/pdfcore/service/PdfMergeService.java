@@ -1,5 +1,6 @@
 package com.pdfutility.pdfcore.service;
 
+import com.pdfutility.pdfcore.model.JobLane;
 import reactor.core.publisher.Mono;
 
 import java.nio.ByteBuffer;
@@ -15,17 +16,21 @@ public interface PdfMergeService {
      *
      * @param fileContents List of PDF file contents as byte buffers
      * @param preserveBookmarks Whether to preserve bookmarks from source files
+     * @param deduplicateResources Whether identical fonts, images and other resource streams are stored once
      * @return Merged PDF content as byte buffer
      */
-    Mono<ByteBuffer> mergePdfs(List<ByteBuffer> fileContents, boolean preserveBookmarks);
+    Mono<ByteBuffer> mergePdfs(List<ByteBuffer> fileContents, boolean preserveBookmarks, boolean deduplicateResources);
 
     /**
      * Merge PDFs from storage file IDs.
      *
      * @param fileIds List of file IDs in storage
      * @param preserveBookmarks Whether to preserve bookmarks
+     * @param deduplicateResources Whether identical resources are stored once in the output
      * @param userId User ID for tracking
+     * @param lane Scheduling lane of the job
      * @return Job ID for tracking the merge operation
      */
-    Mono<String> mergePdfsAsync(List<String> fileIds, boolean preserveBookmarks, String userId);
+    Mono<String> mergePdfsAsync(List<String> fileIds, boolean preserveBookmarks, boolean deduplicateResources,
+                                String userId, JobLane lane);
 }
@@ -1,8 +1,11 @@
 package com.pdfutility.pdfcore.service;
 
+import org.springframework.core.io.buffer.DataBuffer;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
 import java.nio.ByteBuffer;
+import java.nio.file.Path;
 
 /**
  * Storage Client Interface - Reactive WebClient based.
@@ -19,14 +22,62 @@ public interface StorageClient {
     Mono<ByteBuffer> downloadFile(String fileId);
 
     /**
-     * Upload a file to storage.
+     * Stream a file from storage without aggregating it. The caller must release every buffer.
+     *
+     * @param fileId File ID
+     * @return File content
+     */
+    Flux<DataBuffer> downloadFileContent(String fileId);
+
+    /**
+     * Upload a file to storage. The content's SHA-256 is offered first, and the bytes
+     * are only sent when storage does not already hold identical content.
      *
      * @param content File content
      * @param fileName File name
      * @param contentType Content type
+     * @param userId Owner of the new file
+     * @return File ID of the uploaded file
+     */
+    Mono<String> uploadFile(ByteBuffer content, String fileName, String contentType, String userId);
+
+    /**
+     * Upload a file from local disk, streaming it rather than loading it into memory.
+     * Like {@link #uploadFile(ByteBuffer, String, String, String)} the content is only sent
+     * when storage does not already hold it.
+     *
+     * @param file Local file; it must not change until the upload completes
+     * @param fileName File name
+     * @param contentType Content type
+     * @param userId Owner of the new file
      * @return File ID of the uploaded file
      */
-    Mono<String> uploadFile(ByteBuffer content, String fileName, String contentType);
+    Mono<String> uploadFile(Path file, String fileName, String contentType, String userId);
+
+    /**
+     * Upload a local file that starts with the exact content of an existing file, e.g. an incremental
+     * update of it. Only the bytes after the existing content are sent; storage adds them to its copy.
+     * Like the other uploads, nothing is sent when storage already holds the whole content.
+     *
+     * @param baseFileId Existing file the local file starts with
+     * @param baseSize Size of the existing file
+     * @param file Local file; it must not change until the upload completes
+     * @param fileName File name
+     * @param userId Owner of the new file
+     * @return File ID of the uploaded file
+     */
+    Mono<String> appendFile(String baseFileId, long baseSize, Path file, String fileName, String userId);
+
+    /**
+     * Create a file for a user with the content of an existing file. Only the checksum is sent,
+     * so no content is transferred.
+     *
+     * @param fileId Existing file
+     * @param fileName File name of the new file
+     * @param userId Owner of the new file
+     * @return File ID of the new file
+     */
+    Mono<String> copyFile(String fileId, String fileName, String userId);
 
     /**
      * Delete a file from storage.
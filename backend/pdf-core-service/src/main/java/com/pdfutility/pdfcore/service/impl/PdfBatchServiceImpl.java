@@ -0,0 +1,234 @@
+package com.pdfutility.pdfcore.service.impl;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.pdfutility.common.exception.PdfProcessingException;
+import com.pdfutility.pdfcore.dto.PdfOperationRequests.PipelineOperation;
+import com.pdfutility.pdfcore.dto.PdfOperationRequests.PipelineOperationType;
+import com.pdfutility.pdfcore.dto.PdfOperationResponses.BatchItemResponse;
+import com.pdfutility.pdfcore.dto.PdfOperationResponses.BatchStatusResponse;
+import com.pdfutility.pdfcore.model.JobStatus;
+import com.pdfutility.pdfcore.model.JobType;
+import com.pdfutility.pdfcore.model.PdfJob;
+import com.pdfutility.pdfcore.repository.PdfJobRepository;
+import com.pdfutility.pdfcore.service.PdfBatchService;
+import com.pdfutility.pdfcore.service.PdfEditService;
+import com.pdfutility.pdfcore.service.StorageClient;
+import com.pdfutility.pdfcore.worker.BatchTracker;
+import com.pdfutility.pdfcore.worker.JobHandler;
+import com.pdfutility.pdfcore.worker.JobQueue;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.zip.Deflater;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * PDF Batch Service Implementation.
+ * A batch is a BATCH parent job with an EDIT child job per file, all in the batch lane. Children carry the
+ * operations as a pipeline and are run by this service as the EDIT job handler, so each file is loaded and
+ * saved once whatever the number of operations.
+ */
+@Slf4j
+@Service
+public class PdfBatchServiceImpl implements PdfBatchService, JobHandler {
+
+    private final PdfJobRepository jobRepository;
+    private final JobQueue jobQueue;
+    private final BatchTracker batchTracker;
+    private final PdfEditService editService;
+    private final StorageClient storageClient;
+    private final ObjectMapper objectMapper;
+    private final int maxFiles;
+
+    public PdfBatchServiceImpl(PdfJobRepository jobRepository,
+                               JobQueue jobQueue,
+                               BatchTracker batchTracker,
+                               PdfEditService editService,
+                               StorageClient storageClient,
+                               ObjectMapper objectMapper,
+                               @Value("${pdf.batch.max-files:500}") int maxFiles) {
+        this.jobRepository = jobRepository;
+        this.jobQueue = jobQueue;
+        this.batchTracker = batchTracker;
+        this.editService = editService;
+        this.storageClient = storageClient;
+        this.objectMapper = objectMapper;
+        this.maxFiles = maxFiles;
+    }
+
+    @Override
+    public Mono<String> createBatch(List<String> fileIds, List<PipelineOperation> operations, String userId) {
+        String parameters;
+        try {
+            validate(fileIds, operations);
+            parameters = objectMapper.writeValueAsString(Map.of("operations", operations));
+        } catch (IllegalArgumentException e) {
+            return Mono.error(e);
+        } catch (JsonProcessingException e) {
+            return Mono.error(new PdfProcessingException("Invalid batch operations: " + e.getMessage(), e));
+        }
+
+        PdfJob batch = PdfJob.createBatch(UUID.randomUUID().toString(), userId, fileIds, parameters);
+        List<PdfJob> children = new ArrayList<>(fileIds.size());
+        for (int i = 0; i < fileIds.size(); i++) {
+            // Distinct creation times keep the children in input order, in the queue and in the status
+            children.add(PdfJob.createChild(UUID.randomUUID().toString(), batch, JobType.EDIT, fileIds.get(i), parameters)
+                    .withCreatedAt(batch.createdAt().plusNanos((i + 1) * 1000L)));
+        }
+
+        return jobQueue.enqueueBatch(batch, children)
+                .map(PdfJob::id)
+                .doOnSuccess(id -> log.info("Created batch {} with {} files", id, fileIds.size()));
+    }
+
+    @Override
+    public Mono<BatchStatusResponse> getBatch(String batchId, String userId) {
+        return jobRepository.findById(batchId)
+                .filter(job -> job.jobType() == JobType.BATCH && job.userId().equals(userId))
+                .zipWhen(batch -> jobRepository.findByParentId(batch.id()).collectList())
+                .map(tuple -> toResponse(tuple.getT1(), tuple.getT2()));
+    }
+
+    @Override
+    public Mono<Integer> cancelBatch(String batchId, String userId) {
+        return jobRepository.findById(batchId)
+                .filter(job -> job.jobType() == JobType.BATCH && job.userId().equals(userId))
+                .filter(job -> job.status() == JobStatus.PROCESSING)
+                .flatMap(batch -> jobRepository.cancelPendingChildren(batch.id(), LocalDateTime.now()))
+                // Finishes the batch right away unless some of its files are still being processed
+                .flatMap(cancelled -> batchTracker.update(batchId).thenReturn(cancelled))
+                .doOnSuccess(cancelled -> {
+                    if (cancelled != null) {
+                        log.info("Cancelled {} pending files of batch {}", cancelled, batchId);
+                    }
+                });
+    }
+
+    @Override
+    public Flux<DataBuffer> zipOutputs(BatchStatusResponse batch) {
+        List<BatchItemResponse> outputs = batch.getItems().stream()
+                .filter(item -> item.getOutputFileId() != null)
+                .toList();
+        // The archive is written on a blocking thread and emitted as it grows; outputs are downloaded one at a time
+        return DataBufferUtils.outputStreamPublisher(stream -> writeZip(outputs, stream),
+                DefaultDataBufferFactory.sharedInstance, task -> Schedulers.boundedElastic().schedule(task));
+    }
+
+    @Override
+    public JobType jobType() {
+        return JobType.EDIT;
+    }
+
+    /**
+     * Process one file of a batch: apply the batch's operations to it.
+     */
+    @Override
+    public Mono<String> process(PdfJob job) {
+        return Mono.fromCallable(() -> readOperations(job))
+                .flatMap(operations -> editService.applyOperations(job.inputFileIds().get(0), operations,
+                        null, job.userId()));
+    }
+
+    private void validate(List<String> fileIds, List<PipelineOperation> operations) {
+        if (fileIds.size() > maxFiles) {
+            throw new IllegalArgumentException("A batch can hold at most " + maxFiles + " files");
+        }
+        // Job parameters are stored in plain text, passwords must not end up there
+        if (operations.stream().anyMatch(operation -> operation.getType() == PipelineOperationType.PROTECT
+                || operation.getType() == PipelineOperationType.UNLOCK)) {
+            throw new IllegalArgumentException("Protect and unlock cannot be applied in a batch");
+        }
+        PdfEditServiceImpl.validate(operations);
+    }
+
+    private List<PipelineOperation> readOperations(PdfJob job) {
+        try {
+            return objectMapper.readerForListOf(PipelineOperation.class)
+                    .readValue(objectMapper.readTree(job.parameters()).path("operations"));
+        } catch (IOException e) {
+            throw new PdfProcessingException("Invalid job parameters for job " + job.id(), e);
+        }
+    }
+
+    private BatchStatusResponse toResponse(PdfJob batch, List<PdfJob> children) {
+        List<BatchItemResponse> items = children.stream()
+                .map(child -> BatchItemResponse.builder()
+                        .jobId(child.id())
+                        .inputFileId(child.inputFileIds().get(0))
+                        .status(child.status())
+                        .outputFileId(child.status() == JobStatus.COMPLETED ? child.outputFileId() : null)
+                        .errorMessage(child.errorMessage())
+                        .build())
+                .toList();
+        List<String> outputFileIds = items.stream()
+                .map(BatchItemResponse::getOutputFileId)
+                .filter(fileId -> fileId != null)
+                .toList();
+        int failed = (int) items.stream()
+                .filter(item -> item.getStatus() == JobStatus.FAILED || item.getStatus() == JobStatus.CANCELLED)
+                .count();
+
+        return BatchStatusResponse.builder()
+                .batchId(batch.id())
+                .status(batch.status())
+                .progress(batch.progress())
+                .totalFiles(items.size())
+                .completedFiles(outputFileIds.size())
+                .failedFiles(failed)
+                .outputFileIds(outputFileIds)
+                .items(items)
+                .errorMessage(batch.errorMessage())
+                .zipUrl(outputFileIds.isEmpty() ? null : "/api/v1/pdf/batch/" + batch.id() + "/zip")
+                .createdAt(batch.createdAt())
+                .completedAt(batch.completedAt())
+                .build();
+    }
+
+    private void writeZip(List<BatchItemResponse> outputs, OutputStream stream) {
+        try (ZipOutputStream zip = new ZipOutputStream(stream)) {
+            // PDF content is mostly compressed already
+            zip.setLevel(Deflater.BEST_SPEED);
+            for (int i = 0; i < outputs.size(); i++) {
+                BatchItemResponse item = outputs.get(i);
+                zip.putNextEntry(new ZipEntry(entryName(i, item)));
+                DataBufferUtils.write(storageClient.downloadFileContent(item.getOutputFileId()), zip)
+                        .doOnNext(DataBufferUtils::release)
+                        .then()
+                        .block();
+                zip.closeEntry();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Entries are named after the input they were produced from, numbered so that names stay unique.
+     */
+    private String entryName(int index, BatchItemResponse item) {
+        String fileName = storageClient.getFileMetadata(item.getInputFileId())
+                .map(StorageClient.FileMetadata::fileName)
+                .onErrorResume(e -> Mono.empty())
+                .blockOptional()
+                .filter(name -> !name.isBlank())
+                .orElse(item.getInputFileId() + ".pdf");
+        return String.format("%03d_%s", index + 1, fileName.replaceAll("[/\\\\]", "_"));
+    }
+}
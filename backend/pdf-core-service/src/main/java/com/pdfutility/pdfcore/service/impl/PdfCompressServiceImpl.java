@@ -1,31 +1,35 @@
 package com.pdfutility.pdfcore.service.impl;
 
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.pdfutility.common.exception.PdfProcessingException;
 import com.pdfutility.pdfcore.model.CompressionLevel;
+import com.pdfutility.pdfcore.model.JobLane;
 import com.pdfutility.pdfcore.model.JobStatus;
 import com.pdfutility.pdfcore.model.JobType;
 import com.pdfutility.pdfcore.model.PdfJob;
 import com.pdfutility.pdfcore.repository.PdfJobRepository;
+import com.pdfutility.pdfcore.processing.DocumentCompressor;
+import com.pdfutility.pdfcore.processing.DocumentPipeline;
+import com.pdfutility.pdfcore.processing.MemoryBudgets;
+import com.pdfutility.pdfcore.processing.PdfInput;
+import com.pdfutility.pdfcore.processing.PdfProcessingExecutor;
 import com.pdfutility.pdfcore.service.PdfCompressService;
-import com.pdfutility.pdfcore.service.StorageClient;
+import com.pdfutility.pdfcore.worker.JobHandler;
+import com.pdfutility.pdfcore.worker.JobParameters;
+import com.pdfutility.pdfcore.worker.JobQueue;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.apache.pdfbox.Loader;
-import org.apache.pdfbox.cos.COSName;
 import org.apache.pdfbox.pdmodel.PDDocument;
-import org.apache.pdfbox.pdmodel.PDPage;
-import org.apache.pdfbox.pdmodel.PDResources;
-import org.apache.pdfbox.pdmodel.graphics.PDXObject;
-import org.apache.pdfbox.pdmodel.graphics.image.PDImageXObject;
 import org.springframework.stereotype.Service;
 import reactor.core.publisher.Mono;
-import reactor.core.scheduler.Schedulers;
 
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.nio.ByteBuffer;
-import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
 
 /**
@@ -35,40 +39,45 @@ import java.util.UUID;
 @Slf4j
 @Service
 @RequiredArgsConstructor
-public class PdfCompressServiceImpl implements PdfCompressService {
+public class PdfCompressServiceImpl implements PdfCompressService, JobHandler {
 
     private final PdfJobRepository jobRepository;
-    private final StorageClient storageClient;
+    private final JobQueue jobQueue;
+    private final DocumentPipeline documentPipeline;
+    private final PdfProcessingExecutor processingExecutor;
+    private final MemoryBudgets memoryBudgets;
+    private final DocumentCompressor documentCompressor;
+    private final ObjectMapper objectMapper;
 
     @Override
     public Mono<ByteBuffer> compressPdf(ByteBuffer fileContent, CompressionLevel level,
                                          boolean removeMetadata, boolean optimizeImages) {
-        return Mono.fromCallable(() -> performCompression(fileContent, level, removeMetadata, optimizeImages))
-                .subscribeOn(Schedulers.boundedElastic())
+        byte[] inputBytes = new byte[fileContent.remaining()];
+        fileContent.get(inputBytes);
+        return processingExecutor.execute(JobType.COMPRESS, () -> {
+                    ByteArrayOutputStream output = new ByteArrayOutputStream();
+                    performCompression(PdfInput.of(inputBytes), output, level, removeMetadata, optimizeImages);
+                    return ByteBuffer.wrap(output.toByteArray());
+                })
                 .doOnSuccess(result -> log.info("Successfully compressed PDF with level: {}", level))
                 .doOnError(error -> log.error("Failed to compress PDF", error));
     }
 
     @Override
     public Mono<String> compressPdfAsync(String fileId, CompressionLevel level,
-                                          boolean removeMetadata, boolean optimizeImages, String userId) {
+                                          boolean removeMetadata, boolean optimizeImages, String userId,
+                                          JobLane lane) {
         String jobId = UUID.randomUUID().toString();
         String parameters = String.format(
                 "{\"compressionLevel\":\"%s\",\"removeMetadata\":%b,\"optimizeImages\":%b}",
                 level, removeMetadata, optimizeImages);
 
-        PdfJob job = PdfJob.createNew(jobId, userId, JobType.COMPRESS, List.of(fileId), parameters);
+        PdfJob job = PdfJob.createNew(jobId, userId, JobType.COMPRESS, lane, List.of(fileId), parameters);
 
-        return jobRepository.save(job)
-                .doOnSuccess(savedJob -> {
-                    // Fire and forget - process asynchronously
-                    processCompressJob(savedJob, level, removeMetadata, optimizeImages)
-                            .subscribe(
-                                    result -> log.info("Compress job {} completed", jobId),
-                                    error -> log.error("Compress job {} failed", jobId, error)
-                            );
-                })
-                .map(PdfJob::id);
+        // Persist as PENDING; a worker picks it up from the queue
+        return jobQueue.enqueue(job)
+                .map(PdfJob::id)
+                .doOnSuccess(id -> log.info("Created compress job: {}", id));
     }
 
     @Override
@@ -84,97 +93,44 @@ public class PdfCompressServiceImpl implements PdfCompressService {
                 ));
     }
 
+    @Override
+    public JobType jobType() {
+        return JobType.COMPRESS;
+    }
+
     /**
-     * Process compression job asynchronously.
+     * Process a claimed compression job: download the input, compress it and upload the result.
      */
-    private Mono<Void> processCompressJob(PdfJob job, CompressionLevel level,
-                                           boolean removeMetadata, boolean optimizeImages) {
+    @Override
+    public Mono<String> process(PdfJob job) {
+        JsonNode parameters = JobParameters.read(objectMapper, job);
+        CompressionLevel level = CompressionLevel.valueOf(parameters.path("compressionLevel").asText("MEDIUM"));
+        boolean removeMetadata = parameters.path("removeMetadata").asBoolean(false);
+        boolean optimizeImages = parameters.path("optimizeImages").asBoolean(false);
         String fileId = job.inputFileIds().get(0);
 
-        return jobRepository.updateStatus(job.id(), JobStatus.PROCESSING, LocalDateTime.now())
-                .then(storageClient.downloadFile(fileId))
-                .flatMap(fileContent -> compressPdf(fileContent, level, removeMetadata, optimizeImages))
-                .flatMap(compressedContent ->
-                        storageClient.uploadFile(compressedContent, "compressed_" + job.id() + ".pdf", "application/pdf"))
-                .flatMap(outputFileId ->
-                        jobRepository.markCompleted(job.id(), outputFileId, LocalDateTime.now()))
-                .then()
-                .onErrorResume(error -> {
-                    log.error("Compress job {} failed", job.id(), error);
-                    return jobRepository.markFailed(job.id(), error.getMessage(), LocalDateTime.now())
-                            .then(Mono.error(error));
-                });
+        Map<String, Object> cacheParameters = Map.of(
+                "compressionLevel", level, "removeMetadata", removeMetadata, "optimizeImages", optimizeImages);
+
+        return documentPipeline.transform(JobType.COMPRESS, List.of(fileId), cacheParameters,
+                        "compressed_" + job.id() + ".pdf", job.userId(), (inputs, output) ->
+                                performCompression(inputs.get(0), output, level, removeMetadata, optimizeImages))
+                .doOnSuccess(result -> log.info("Successfully compressed PDF with level: {}", level));
     }
 
     /**
      * Perform the actual PDF compression.
      */
-    private ByteBuffer performCompression(ByteBuffer fileContent, CompressionLevel level,
-                                           boolean removeMetadata, boolean optimizeImages) {
-        byte[] inputBytes = new byte[fileContent.remaining()];
-        fileContent.get(inputBytes);
-        long originalSize = inputBytes.length;
-
-        try (PDDocument document = Loader.loadPDF(inputBytes)) {
-            // Remove metadata if requested
-            if (removeMetadata) {
-                document.getDocumentInformation().setAuthor(null);
-                document.getDocumentInformation().setTitle(null);
-                document.getDocumentInformation().setSubject(null);
-                document.getDocumentInformation().setKeywords(null);
-                document.getDocumentInformation().setCreator(null);
-                document.getDocumentInformation().setProducer(null);
-            }
-
-            // Optimize images if requested
-            if (optimizeImages) {
-                optimizeImagesInDocument(document, level);
-            }
-
-            // Save with compression
-            ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
-            document.save(outputStream);
-
-            byte[] compressedBytes = outputStream.toByteArray();
-            long compressedSize = compressedBytes.length;
-            double ratio = 1.0 - ((double) compressedSize / originalSize);
-            
-            log.info("Compression complete. Original: {} bytes, Compressed: {} bytes, Ratio: {:.2f}%",
-                    originalSize, compressedSize, ratio * 100);
-
-            return ByteBuffer.wrap(compressedBytes);
-
+    private void performCompression(PdfInput input, OutputStream output, CompressionLevel level,
+                                    boolean removeMetadata, boolean optimizeImages) {
+        long originalSize = input.sizeBytes();
+
+        try (PDDocument document = input.load(memoryBudgets.streamCache(JobType.COMPRESS, originalSize))) {
+            DocumentCompressor.Report report = documentCompressor.optimize(document, level, removeMetadata, optimizeImages);
+            long compressedSize = documentCompressor.save(document, output);
+            documentCompressor.record(originalSize, compressedSize, report);
         } catch (IOException e) {
             throw new PdfProcessingException("Failed to compress PDF: " + e.getMessage(), e);
         }
     }
-
-    /**
-     * Optimize images in the document based on compression level.
-     */
-    private void optimizeImagesInDocument(PDDocument document, CompressionLevel level) {
-        float quality = switch (level) {
-            case LOW -> 0.9f;
-            case MEDIUM -> 0.7f;
-            case HIGH -> 0.5f;
-        };
-
-        for (PDPage page : document.getPages()) {
-            PDResources resources = page.getResources();
-            if (resources == null) continue;
-
-            try {
-                for (COSName name : resources.getXObjectNames()) {
-                    PDXObject xObject = resources.getXObject(name);
-                    if (xObject instanceof PDImageXObject) {
-                        // Image optimization would be done here
-                        // PDFBox 3.x has different API for image manipulation
-                        log.debug("Found image: {} for optimization", name.getName());
-                    }
-                }
-            } catch (IOException e) {
-                log.warn("Error optimizing images on page", e);
-            }
-        }
-    }
 }
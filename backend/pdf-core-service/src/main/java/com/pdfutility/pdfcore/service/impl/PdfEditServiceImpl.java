@@ -1,15 +1,27 @@
 package com.pdfutility.pdfcore.service.impl;
 
 import com.pdfutility.common.exception.PdfProcessingException;
+import com.pdfutility.pdfcore.dto.PdfOperationRequests.PipelineOperation;
+import com.pdfutility.pdfcore.dto.PdfOperationRequests.PipelineOperationType;
 import com.pdfutility.pdfcore.dto.PdfOperationResponses.PdfDimensions;
 import com.pdfutility.pdfcore.dto.PdfOperationResponses.PdfInfoResponse;
+import com.pdfutility.pdfcore.model.CompressionLevel;
+import com.pdfutility.pdfcore.model.JobType;
+import com.pdfutility.pdfcore.processing.DocumentCompressor;
+import com.pdfutility.pdfcore.processing.DocumentPipeline;
+import com.pdfutility.pdfcore.processing.IncrementalSaveProperties;
+import com.pdfutility.pdfcore.processing.MemoryBudgets;
+import com.pdfutility.pdfcore.processing.PdfInput;
 import com.pdfutility.pdfcore.service.PdfEditService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.apache.pdfbox.Loader;
+import org.apache.pdfbox.cos.COSDictionary;
+import org.apache.pdfbox.cos.COSName;
+import org.apache.pdfbox.io.IOUtils;
 import org.apache.pdfbox.pdmodel.PDDocument;
 import org.apache.pdfbox.pdmodel.PDPage;
 import org.apache.pdfbox.pdmodel.PDPageContentStream;
+import org.apache.pdfbox.pdmodel.PDResources;
 import org.apache.pdfbox.pdmodel.common.PDRectangle;
 import org.apache.pdfbox.pdmodel.encryption.AccessPermission;
 import org.apache.pdfbox.pdmodel.encryption.StandardProtectionPolicy;
@@ -19,210 +31,189 @@ import org.apache.pdfbox.pdmodel.graphics.state.PDExtendedGraphicsState;
 import org.apache.pdfbox.util.Matrix;
 import org.springframework.stereotype.Service;
 import reactor.core.publisher.Mono;
-import reactor.core.scheduler.Schedulers;
 
 import java.awt.*;
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
-import java.nio.ByteBuffer;
+import java.io.OutputStream;
 import java.time.LocalDateTime;
 import java.time.ZoneId;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
 import java.util.Calendar;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.UUID;
 
 /**
  * PDF Edit Service Implementation.
- * Provides editing operations using PDFBox.
+ * Provides editing operations using PDFBox. Each operation is a method on a loaded document, so that
+ * a chain of operations can run on one document with a single load and save.
+ * Adding text and rotating pages save incrementally by default, so their cost follows the size of the edit rather
+ * than the size of the document.
  */
 @Slf4j
 @Service
 @RequiredArgsConstructor
 public class PdfEditServiceImpl implements PdfEditService {
 
+    private final DocumentPipeline documentPipeline;
+    private final MemoryBudgets memoryBudgets;
+    private final DocumentCompressor documentCompressor;
+    private final IncrementalSaveProperties incrementalSave;
+
     @Override
-    public Mono<ByteBuffer> addText(ByteBuffer fileContent, String text, int pageNumber,
-                                     float x, float y, int fontSize, String fontName, String color) {
-        return Mono.fromCallable(() -> performAddText(fileContent, text, pageNumber, x, y, fontSize, fontName, color))
-                .subscribeOn(Schedulers.boundedElastic())
+    public Mono<String> addText(String fileId, String text, int pageNumber,
+                                float x, float y, int fontSize, String fontName, String color, String userId) {
+        Map<String, Object> parameters = Map.of("text", text, "page", pageNumber, "x", x, "y", y,
+                "fontSize", fontSize, "fontName", Objects.toString(fontName, ""), "color", Objects.toString(color, ""));
+        boolean incremental = incrementalSave.enabled();
+        DocumentPipeline.Transform transform = (inputs, output) ->
+                performAddText(inputs.get(0), output, text, pageNumber, x, y, fontSize, fontName, color, incremental);
+        return (incremental
+                        ? documentPipeline.update(JobType.EDIT, fileId, parameters, outputName("text_added"), userId, transform)
+                        : documentPipeline.transform(JobType.EDIT, List.of(fileId), parameters, outputName("text_added"),
+                                userId, transform))
                 .doOnSuccess(result -> log.info("Added text to PDF page {}", pageNumber));
     }
 
     @Override
-    public Mono<ByteBuffer> addWatermark(ByteBuffer fileContent, String watermarkText,
-                                          float opacity, int rotation) {
-        return Mono.fromCallable(() -> performAddWatermark(fileContent, watermarkText, opacity, rotation))
-                .subscribeOn(Schedulers.boundedElastic())
+    public Mono<String> addWatermark(String fileId, String watermarkText,
+                                     float opacity, int rotation, String userId) {
+        Map<String, Object> parameters = Map.of("text", watermarkText, "opacity", opacity, "rotation", rotation);
+        return documentPipeline.transform(JobType.WATERMARK, List.of(fileId), parameters, outputName("watermarked"), userId,
+                        (inputs, output) -> performAddWatermark(inputs.get(0), output, watermarkText, opacity, rotation))
                 .doOnSuccess(result -> log.info("Added watermark to PDF"));
     }
 
     @Override
-    public Mono<ByteBuffer> addImageWatermark(ByteBuffer fileContent, ByteBuffer imageContent,
-                                               float opacity, String position) {
-        return Mono.fromCallable(() -> performAddImageWatermark(fileContent, imageContent, opacity, position))
-                .subscribeOn(Schedulers.boundedElastic());
+    public Mono<String> addImageWatermark(String fileId, String imageFileId,
+                                          float opacity, String position, String userId) {
+        // Implementation for image watermark
+        return Mono.error(new UnsupportedOperationException("Image watermark not yet implemented"));
     }
 
     @Override
-    public Mono<ByteBuffer> rotatePages(ByteBuffer fileContent, int angle, List<Integer> pageNumbers) {
-        return Mono.fromCallable(() -> performRotatePages(fileContent, angle, pageNumbers))
-                .subscribeOn(Schedulers.boundedElastic())
+    public Mono<String> rotatePages(String fileId, int angle, List<Integer> pageNumbers, String userId) {
+        Map<String, Object> parameters = Map.of("angle", angle, "pages", Objects.toString(pageNumbers, "all"));
+        boolean incremental = incrementalSave.enabled();
+        DocumentPipeline.Transform transform = (inputs, output) ->
+                performRotatePages(inputs.get(0), output, angle, pageNumbers, incremental);
+        return (incremental
+                        ? documentPipeline.update(JobType.ROTATE, fileId, parameters, outputName("rotated"), userId, transform)
+                        : documentPipeline.transform(JobType.ROTATE, List.of(fileId), parameters, outputName("rotated"),
+                                userId, transform))
                 .doOnSuccess(result -> log.info("Rotated PDF pages by {} degrees", angle));
     }
 
     @Override
-    public Mono<ByteBuffer> extractPages(ByteBuffer fileContent, int fromPage, int toPage) {
-        return Mono.fromCallable(() -> performExtractPages(fileContent, fromPage, toPage))
-                .subscribeOn(Schedulers.boundedElastic())
+    public Mono<String> extractPages(String fileId, int fromPage, int toPage, String userId) {
+        Map<String, Object> parameters = Map.of("from", fromPage, "to", toPage);
+        return documentPipeline.transform(JobType.SPLIT, List.of(fileId), parameters, outputName("extracted"), userId,
+                        (inputs, output) -> performExtractPages(inputs.get(0), output, fromPage, toPage))
                 .doOnSuccess(result -> log.info("Extracted pages {}-{} from PDF", fromPage, toPage));
     }
 
     @Override
-    public Mono<PdfInfoResponse> getPdfInfo(ByteBuffer fileContent) {
-        return Mono.fromCallable(() -> extractPdfInfo(fileContent))
-                .subscribeOn(Schedulers.boundedElastic());
+    public Mono<PdfInfoResponse> getPdfInfo(String fileId) {
+        return documentPipeline.read(JobType.EDIT, fileId, this::extractPdfInfo);
     }
 
     @Override
-    public Mono<ByteBuffer> protectPdf(ByteBuffer fileContent, String userPassword,
-                                        String ownerPassword, boolean allowPrinting, boolean allowCopying) {
-        return Mono.fromCallable(() -> performProtect(fileContent, userPassword, ownerPassword, allowPrinting, allowCopying))
-                .subscribeOn(Schedulers.boundedElastic())
+    public Mono<String> protectPdf(String fileId, String userPassword,
+                                   String ownerPassword, boolean allowPrinting, boolean allowCopying, String userId) {
+        // Not cached: the key would be derived from the passwords
+        return documentPipeline.transform(JobType.PROTECT, List.of(fileId), outputName("protected"), userId,
+                        (inputs, output) -> performProtect(inputs.get(0), output, userPassword, ownerPassword,
+                                allowPrinting, allowCopying))
                 .doOnSuccess(result -> log.info("Protected PDF with password"));
     }
 
     @Override
-    public Mono<ByteBuffer> unlockPdf(ByteBuffer fileContent, String password) {
-        return Mono.fromCallable(() -> performUnlock(fileContent, password))
-                .subscribeOn(Schedulers.boundedElastic())
+    public Mono<String> unlockPdf(String fileId, String password, String userId) {
+        return documentPipeline.transform(JobType.UNLOCK, List.of(fileId), outputName("unlocked"), userId,
+                        (inputs, output) -> performUnlock(inputs.get(0), output, password))
                 .doOnSuccess(result -> log.info("Unlocked protected PDF"));
     }
 
-    // ========== Private Implementation Methods ==========
-
-    private ByteBuffer performAddText(ByteBuffer fileContent, String text, int pageNumber,
-                                       float x, float y, int fontSize, String fontName, String color) {
-        byte[] inputBytes = getBytes(fileContent);
-
-        try (PDDocument document = Loader.loadPDF(inputBytes)) {
-            if (pageNumber < 1 || pageNumber > document.getNumberOfPages()) {
-                throw new PdfProcessingException("Invalid page number: " + pageNumber);
-            }
+    @Override
+    public Mono<String> applyOperations(String fileId, List<PipelineOperation> operations,
+                                        String outputFileName, String userId) {
+        try {
+            validate(operations);
+        } catch (IllegalArgumentException e) {
+            return Mono.error(e);
+        }
+        String outputName = outputFileName != null && !outputFileName.isBlank()
+                ? outputFileName
+                : outputName("processed");
+        DocumentPipeline.Transform transform = (inputs, output) -> performOperations(inputs.get(0), output, operations);
+
+        // Chains with passwords are not cached, like protect and unlock on their own
+        boolean cacheable = operations.stream().noneMatch(operation ->
+                operation.getType() == PipelineOperationType.PROTECT || operation.getType() == PipelineOperationType.UNLOCK);
+        Mono<String> result = cacheable
+                ? documentPipeline.transform(JobType.EDIT, List.of(fileId), Map.of("operations", operations),
+                        outputName, userId, transform)
+                : documentPipeline.transform(JobType.EDIT, List.of(fileId), outputName, userId, transform);
+        return result.doOnSuccess(outputFileId -> log.info("Applied {} operations to PDF", operations.size()));
+    }
 
-            PDPage page = document.getPage(pageNumber - 1);
-            
-            try (PDPageContentStream contentStream = new PDPageContentStream(
-                    document, page, PDPageContentStream.AppendMode.APPEND, true, true)) {
+    // ========== Private Implementation Methods ==========
 
-                contentStream.beginText();
-                contentStream.setFont(new PDType1Font(Standard14Fonts.FontName.HELVETICA), fontSize);
-                contentStream.setNonStrokingColor(parseColor(color));
-                contentStream.newLineAtOffset(x, y);
-                contentStream.showText(text);
-                contentStream.endText();
+    private void performAddText(PdfInput input, OutputStream output, String text, int pageNumber,
+                                float x, float y, int fontSize, String fontName, String color, boolean incremental) {
+        try (PDDocument document = load(input, JobType.EDIT)) {
+            addText(document, text, pageNumber, x, y, fontSize, fontName, color);
+            if (incremental) {
+                saveIncremental(document, output, List.of(document.getPage(pageNumber - 1)));
+            } else {
+                document.save(output);
             }
-
-            return saveDocument(document);
         } catch (IOException e) {
             throw new PdfProcessingException("Failed to add text to PDF: " + e.getMessage(), e);
         }
     }
 
-    private ByteBuffer performAddWatermark(ByteBuffer fileContent, String watermarkText,
-                                            float opacity, int rotation) {
-        byte[] inputBytes = getBytes(fileContent);
-
-        try (PDDocument document = Loader.loadPDF(inputBytes)) {
-            for (PDPage page : document.getPages()) {
-                PDRectangle pageSize = page.getMediaBox();
-                float pageWidth = pageSize.getWidth();
-                float pageHeight = pageSize.getHeight();
-
-                try (PDPageContentStream contentStream = new PDPageContentStream(
-                        document, page, PDPageContentStream.AppendMode.APPEND, true, true)) {
-
-                    // Set transparency
-                    PDExtendedGraphicsState graphicsState = new PDExtendedGraphicsState();
-                    graphicsState.setNonStrokingAlphaConstant(opacity);
-                    contentStream.setGraphicsStateParameters(graphicsState);
-
-                    contentStream.beginText();
-                    contentStream.setFont(new PDType1Font(Standard14Fonts.FontName.HELVETICA_BOLD), 50);
-                    contentStream.setNonStrokingColor(Color.LIGHT_GRAY);
-
-                    // Center and rotate watermark
-                    float centerX = pageWidth / 2;
-                    float centerY = pageHeight / 2;
-                    Matrix matrix = Matrix.getRotateInstance(Math.toRadians(rotation), centerX, centerY);
-                    contentStream.setTextMatrix(matrix);
-                    
-                    // Adjust position for text centering
-                    float textWidth = watermarkText.length() * 25; // Approximate
-                    contentStream.newLineAtOffset(-textWidth / 2, 0);
-                    contentStream.showText(watermarkText);
-                    contentStream.endText();
-                }
-            }
-
-            return saveDocument(document);
+    private void performAddWatermark(PdfInput input, OutputStream output, String watermarkText,
+                                     float opacity, int rotation) {
+        try (PDDocument document = load(input, JobType.WATERMARK)) {
+            addWatermark(document, watermarkText, opacity, rotation);
+            document.save(output);
         } catch (IOException e) {
             throw new PdfProcessingException("Failed to add watermark: " + e.getMessage(), e);
         }
     }
 
-    private ByteBuffer performAddImageWatermark(ByteBuffer fileContent, ByteBuffer imageContent,
-                                                 float opacity, String position) {
-        // Implementation for image watermark
-        throw new UnsupportedOperationException("Image watermark not yet implemented");
-    }
-
-    private ByteBuffer performRotatePages(ByteBuffer fileContent, int angle, List<Integer> pageNumbers) {
-        byte[] inputBytes = getBytes(fileContent);
-
-        try (PDDocument document = Loader.loadPDF(inputBytes)) {
-            int numPages = document.getNumberOfPages();
-
-            for (int i = 0; i < numPages; i++) {
-                // If pageNumbers is null, rotate all pages; otherwise only specified pages
-                if (pageNumbers == null || pageNumbers.contains(i + 1)) {
-                    PDPage page = document.getPage(i);
-                    int currentRotation = page.getRotation();
-                    page.setRotation((currentRotation + angle) % 360);
-                }
+    private void performRotatePages(PdfInput input, OutputStream output, int angle, List<Integer> pageNumbers,
+                                    boolean incremental) {
+        try (PDDocument document = load(input, JobType.ROTATE)) {
+            List<PDPage> rotated = rotatePages(document, angle, pageNumbers);
+            if (incremental) {
+                saveIncremental(document, output, rotated);
+            } else {
+                document.save(output);
             }
-
-            return saveDocument(document);
         } catch (IOException e) {
             throw new PdfProcessingException("Failed to rotate pages: " + e.getMessage(), e);
         }
     }
 
-    private ByteBuffer performExtractPages(ByteBuffer fileContent, int fromPage, int toPage) {
-        byte[] inputBytes = getBytes(fileContent);
-
-        try (PDDocument sourceDocument = Loader.loadPDF(inputBytes);
-             PDDocument newDocument = new PDDocument()) {
-
-            int numPages = sourceDocument.getNumberOfPages();
-            if (fromPage < 1 || toPage > numPages || fromPage > toPage) {
-                throw new PdfProcessingException(
-                        String.format("Invalid page range: %d-%d (document has %d pages)", fromPage, toPage, numPages));
-            }
-
-            for (int i = fromPage - 1; i < toPage; i++) {
-                PDPage page = sourceDocument.getPage(i);
-                newDocument.addPage(page);
-            }
-
-            return saveDocument(newDocument);
+    private void performExtractPages(PdfInput input, OutputStream output, int fromPage, int toPage) {
+        try (PDDocument sourceDocument = load(input, JobType.SPLIT);
+             PDDocument newDocument = extractPages(sourceDocument, fromPage, toPage)) {
+            newDocument.save(output);
         } catch (IOException e) {
             throw new PdfProcessingException("Failed to extract pages: " + e.getMessage(), e);
         }
     }
 
-    private PdfInfoResponse extractPdfInfo(ByteBuffer fileContent) {
-        byte[] inputBytes = getBytes(fileContent);
-
-        try (PDDocument document = Loader.loadPDF(inputBytes)) {
+    private PdfInfoResponse extractPdfInfo(PdfInput input) {
+        try (PDDocument document = load(input, JobType.EDIT)) {
             var info = document.getDocumentInformation();
             PDPage firstPage = document.getPage(0);
             PDRectangle mediaBox = firstPage.getMediaBox();
@@ -241,60 +232,267 @@ public class PdfEditServiceImpl implements PdfEditService {
                             .height(mediaBox.getHeight())
                             .unit("points")
                             .build())
-                    .fileSizeBytes((long) inputBytes.length)
+                    .fileSizeBytes(input.sizeBytes())
                     .build();
         } catch (IOException e) {
             throw new PdfProcessingException("Failed to extract PDF info: " + e.getMessage(), e);
         }
     }
 
-    private ByteBuffer performProtect(ByteBuffer fileContent, String userPassword,
-                                       String ownerPassword, boolean allowPrinting, boolean allowCopying) {
-        byte[] inputBytes = getBytes(fileContent);
-
-        try (PDDocument document = Loader.loadPDF(inputBytes)) {
-            AccessPermission permissions = new AccessPermission();
-            permissions.setCanPrint(allowPrinting);
-            permissions.setCanExtractContent(allowCopying);
-            permissions.setCanModify(false);
-            permissions.setCanModifyAnnotations(false);
-
-            StandardProtectionPolicy policy = new StandardProtectionPolicy(
-                    ownerPassword != null ? ownerPassword : userPassword,
-                    userPassword,
-                    permissions);
-            policy.setEncryptionKeyLength(256);
-
-            document.protect(policy);
-            return saveDocument(document);
+    private void performProtect(PdfInput input, OutputStream output, String userPassword,
+                                String ownerPassword, boolean allowPrinting, boolean allowCopying) {
+        try (PDDocument document = load(input, JobType.PROTECT)) {
+            protect(document, userPassword, ownerPassword, allowPrinting, allowCopying);
+            document.save(output);
         } catch (IOException e) {
             throw new PdfProcessingException("Failed to protect PDF: " + e.getMessage(), e);
         }
     }
 
-    private ByteBuffer performUnlock(ByteBuffer fileContent, String password) {
-        byte[] inputBytes = getBytes(fileContent);
-
-        try (PDDocument document = Loader.loadPDF(inputBytes, password)) {
+    private void performUnlock(PdfInput input, OutputStream output, String password) {
+        try (PDDocument document = input.load(password,
+                memoryBudgets.streamCache(JobType.UNLOCK, input.sizeBytes()))) {
             document.setAllSecurityToBeRemoved(true);
-            return saveDocument(document);
+            document.save(output);
         } catch (IOException e) {
             throw new PdfProcessingException("Failed to unlock PDF: " + e.getMessage(), e);
         }
     }
 
+    /**
+     * Apply the operations in order to one loaded document and save it once.
+     * Documents created along the way, e.g. by extracting pages, share objects with the ones they
+     * were created from, so all of them stay open until the result is saved.
+     */
+    private void performOperations(PdfInput input, OutputStream output, List<PipelineOperation> operations) {
+        boolean compressed = operations.stream().anyMatch(operation -> operation.getType() == PipelineOperationType.COMPRESS);
+        PipelineOperation first = operations.get(0);
+        String password = first.getType() == PipelineOperationType.UNLOCK ? first.getPassword() : "";
+        Deque<PDDocument> opened = new ArrayDeque<>();
+
+        try {
+            PDDocument document = input.load(password, memoryBudgets.streamCache(
+                    compressed ? JobType.COMPRESS : JobType.EDIT, input.sizeBytes()));
+            opened.push(document);
+            DocumentCompressor.Report compression = null;
+
+            for (PipelineOperation operation : operations) {
+                switch (operation.getType()) {
+                    case ADD_TEXT -> addText(document, operation.getText(),
+                            orDefault(operation.getPageNumber(), 1),
+                            orDefault(operation.getX(), 100f), orDefault(operation.getY(), 700f),
+                            orDefault(operation.getFontSize(), 12), orDefault(operation.getFontName(), "Helvetica"),
+                            orDefault(operation.getColor(), "#000000"));
+                    case WATERMARK -> addWatermark(document, operation.getWatermarkText(),
+                            orDefault(operation.getOpacity(), 0.5f), orDefault(operation.getRotation(), 45));
+                    case ROTATE -> rotatePages(document, operation.getAngle(), operation.getPageNumbers());
+                    case EXTRACT_PAGES -> {
+                        document = extractPages(document, orDefault(operation.getFromPage(), 1),
+                                orDefault(operation.getToPage(), document.getNumberOfPages()));
+                        opened.push(document);
+                    }
+                    case COMPRESS -> compression = documentCompressor.optimize(document,
+                            orDefault(operation.getCompressionLevel(), CompressionLevel.MEDIUM),
+                            Boolean.TRUE.equals(operation.getRemoveMetadata()),
+                            Boolean.TRUE.equals(operation.getOptimizeImages()));
+                    case PROTECT -> protect(document, operation.getPassword(), operation.getOwnerPassword(),
+                            Boolean.TRUE.equals(operation.getAllowPrinting()),
+                            Boolean.TRUE.equals(operation.getAllowCopying()));
+                    case UNLOCK -> document.setAllSecurityToBeRemoved(true);
+                }
+            }
+
+            if (compression != null) {
+                long size = documentCompressor.save(document, output);
+                documentCompressor.record(input.sizeBytes(), size, compression);
+            } else {
+                document.save(output);
+            }
+        } catch (IOException e) {
+            throw new PdfProcessingException("Failed to apply operations: " + e.getMessage(), e);
+        } finally {
+            opened.forEach(IOUtils::closeQuietly);
+        }
+    }
+
+    /**
+     * Check that a chain of operations can be applied, without touching any document.
+     */
+    static void validate(List<PipelineOperation> operations) {
+        for (int i = 0; i < operations.size(); i++) {
+            PipelineOperation operation = operations.get(i);
+            String step = "Operation " + (i + 1) + " (" + operation.getType() + ")";
+            switch (operation.getType()) {
+                case ADD_TEXT -> require(operation.getText() != null, step + " requires text");
+                case WATERMARK -> require(operation.getWatermarkText() != null, step + " requires watermarkText");
+                case ROTATE -> require(operation.getAngle() != null, step + " requires angle");
+                case PROTECT -> {
+                    require(operation.getPassword() != null, step + " requires password");
+                    require(i == operations.size() - 1, step + " must be the last operation");
+                }
+                case UNLOCK -> {
+                    require(operation.getPassword() != null, step + " requires password");
+                    require(i == 0, step + " must be the first operation");
+                }
+                default -> {
+                }
+            }
+        }
+    }
+
+    private static void require(boolean condition, String message) {
+        if (!condition) {
+            throw new IllegalArgumentException(message);
+        }
+    }
+
+    // ========== Document Operations ==========
+
+    private void addText(PDDocument document, String text, int pageNumber,
+                         float x, float y, int fontSize, String fontName, String color) throws IOException {
+        if (pageNumber < 1 || pageNumber > document.getNumberOfPages()) {
+            throw new PdfProcessingException("Invalid page number: " + pageNumber);
+        }
+
+        PDPage page = document.getPage(pageNumber - 1);
+
+        try (PDPageContentStream contentStream = new PDPageContentStream(
+                document, page, PDPageContentStream.AppendMode.APPEND, true, true)) {
+
+            contentStream.beginText();
+            contentStream.setFont(new PDType1Font(Standard14Fonts.FontName.HELVETICA), fontSize);
+            contentStream.setNonStrokingColor(parseColor(color));
+            contentStream.newLineAtOffset(x, y);
+            contentStream.showText(text);
+            contentStream.endText();
+        }
+    }
+
+    private void addWatermark(PDDocument document, String watermarkText, float opacity, int rotation)
+            throws IOException {
+        for (PDPage page : document.getPages()) {
+            PDRectangle pageSize = page.getMediaBox();
+            float pageWidth = pageSize.getWidth();
+            float pageHeight = pageSize.getHeight();
+
+            try (PDPageContentStream contentStream = new PDPageContentStream(
+                    document, page, PDPageContentStream.AppendMode.APPEND, true, true)) {
+
+                // Set transparency
+                PDExtendedGraphicsState graphicsState = new PDExtendedGraphicsState();
+                graphicsState.setNonStrokingAlphaConstant(opacity);
+                contentStream.setGraphicsStateParameters(graphicsState);
+
+                contentStream.beginText();
+                contentStream.setFont(new PDType1Font(Standard14Fonts.FontName.HELVETICA_BOLD), 50);
+                contentStream.setNonStrokingColor(Color.LIGHT_GRAY);
+
+                // Center and rotate watermark
+                float centerX = pageWidth / 2;
+                float centerY = pageHeight / 2;
+                Matrix matrix = Matrix.getRotateInstance(Math.toRadians(rotation), centerX, centerY);
+                contentStream.setTextMatrix(matrix);
+
+                // Adjust position for text centering
+                float textWidth = watermarkText.length() * 25; // Approximate
+                contentStream.newLineAtOffset(-textWidth / 2, 0);
+                contentStream.showText(watermarkText);
+                contentStream.endText();
+            }
+        }
+    }
+
+    private List<PDPage> rotatePages(PDDocument document, int angle, List<Integer> pageNumbers) {
+        int numPages = document.getNumberOfPages();
+        List<PDPage> rotated = new ArrayList<>();
+
+        for (int i = 0; i < numPages; i++) {
+            // If pageNumbers is null, rotate all pages; otherwise only specified pages
+            if (pageNumbers == null || pageNumbers.contains(i + 1)) {
+                PDPage page = document.getPage(i);
+                int currentRotation = page.getRotation();
+                page.setRotation((currentRotation + angle) % 360);
+                rotated.add(page);
+            }
+        }
+        return rotated;
+    }
+
+    /**
+     * New document with a range of pages of the source. The source must stay open until it is saved.
+     */
+    private PDDocument extractPages(PDDocument sourceDocument, int fromPage, int toPage) {
+        int numPages = sourceDocument.getNumberOfPages();
+        if (fromPage < 1 || toPage > numPages || fromPage > toPage) {
+            throw new PdfProcessingException(
+                    String.format("Invalid page range: %d-%d (document has %d pages)", fromPage, toPage, numPages));
+        }
+
+        PDDocument newDocument = new PDDocument(memoryBudgets.streamCache(JobType.SPLIT));
+        for (int i = fromPage - 1; i < toPage; i++) {
+            newDocument.addPage(sourceDocument.getPage(i));
+        }
+        return newDocument;
+    }
+
+    private void protect(PDDocument document, String userPassword, String ownerPassword,
+                         boolean allowPrinting, boolean allowCopying) throws IOException {
+        AccessPermission permissions = new AccessPermission();
+        permissions.setCanPrint(allowPrinting);
+        permissions.setCanExtractContent(allowCopying);
+        permissions.setCanModify(false);
+        permissions.setCanModifyAnnotations(false);
+
+        StandardProtectionPolicy policy = new StandardProtectionPolicy(
+                ownerPassword != null ? ownerPassword : userPassword,
+                userPassword,
+                permissions);
+        policy.setEncryptionKeyLength(256);
+
+        document.protect(policy);
+    }
+
     // ========== Utility Methods ==========
 
-    private byte[] getBytes(ByteBuffer buffer) {
-        byte[] bytes = new byte[buffer.remaining()];
-        buffer.get(bytes);
-        return bytes;
+    /**
+     * Append the changes to the original bytes as an incremental update instead of rewriting the document.
+     * Only objects flagged as updated and reachable from the trailer through other updated objects are written,
+     * so the changed pages are flagged together with their resources and their path up from the catalog.
+     * Objects created by the edit, like a new content stream, are written because an updated page refers to them.
+     */
+    private void saveIncremental(PDDocument document, OutputStream output, List<PDPage> changedPages)
+            throws IOException {
+        Set<COSDictionary> updated = Collections.newSetFromMap(new IdentityHashMap<>());
+        updated.add(document.getDocumentCatalog().getCOSObject());
+        for (PDPage page : changedPages) {
+            // Up to the page tree root, or to a node already flagged for another page
+            COSDictionary node = page.getCOSObject();
+            while (node != null && updated.add(node)) {
+                node = node.getCOSDictionary(COSName.PARENT);
+            }
+            PDResources resources = page.getResources();
+            if (resources != null) {
+                updated.add(resources.getCOSObject());
+                COSDictionary fonts = resources.getCOSObject().getCOSDictionary(COSName.FONT);
+                if (fonts != null) {
+                    updated.add(fonts);
+                }
+            }
+        }
+        updated.forEach(dictionary -> dictionary.setNeedToBeUpdated(true));
+        document.saveIncremental(output);
+    }
+
+    private PDDocument load(PdfInput input, JobType operation) throws IOException {
+        return input.load(memoryBudgets.streamCache(operation, input.sizeBytes()));
+    }
+
+    private static <T> T orDefault(T value, T defaultValue) {
+        return value != null ? value : defaultValue;
     }
 
-    private ByteBuffer saveDocument(PDDocument document) throws IOException {
-        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
-        document.save(outputStream);
-        return ByteBuffer.wrap(outputStream.toByteArray());
+    private String outputName(String prefix) {
+        return prefix + "_" + UUID.randomUUID() + ".pdf";
     }
 
     private Color parseColor(String colorHex) {
@@ -1,122 +1,107 @@
 package com.pdfutility.pdfcore.service.impl;
 
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.pdfutility.common.exception.PdfProcessingException;
+import com.pdfutility.pdfcore.model.JobLane;
 import com.pdfutility.pdfcore.model.JobType;
 import com.pdfutility.pdfcore.model.PdfJob;
-import com.pdfutility.pdfcore.repository.PdfJobRepository;
+import com.pdfutility.pdfcore.processing.DocumentPipeline;
+import com.pdfutility.pdfcore.processing.PdfInput;
+import com.pdfutility.pdfcore.processing.PdfMerger;
+import com.pdfutility.pdfcore.processing.PdfProcessingExecutor;
 import com.pdfutility.pdfcore.service.PdfMergeService;
-import com.pdfutility.pdfcore.service.StorageClient;
+import com.pdfutility.pdfcore.worker.JobHandler;
+import com.pdfutility.pdfcore.worker.JobParameters;
+import com.pdfutility.pdfcore.worker.JobQueue;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.apache.pdfbox.io.RandomAccessReadBuffer;
-import org.apache.pdfbox.multipdf.PDFMergerUtility;
-import org.apache.pdfbox.pdmodel.PDDocument;
 import org.springframework.stereotype.Service;
-import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
-import reactor.core.scheduler.Schedulers;
 
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.nio.ByteBuffer;
-import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
 
 /**
  * PDF Merge Service Implementation.
- * Uses PDFBox for merging and runs CPU-intensive operations on boundedElastic scheduler.
+ * Uses PDFBox for merging and runs CPU-intensive operations on the PDF processing executor.
  */
 @Slf4j
 @Service
 @RequiredArgsConstructor
-public class PdfMergeServiceImpl implements PdfMergeService {
+public class PdfMergeServiceImpl implements PdfMergeService, JobHandler {
 
-    private final PdfJobRepository jobRepository;
-    private final StorageClient storageClient;
+    private final JobQueue jobQueue;
+    private final PdfProcessingExecutor processingExecutor;
+    private final PdfMerger pdfMerger;
+    private final DocumentPipeline documentPipeline;
+    private final ObjectMapper objectMapper;
 
     @Override
-    public Mono<ByteBuffer> mergePdfs(List<ByteBuffer> fileContents, boolean preserveBookmarks) {
-        return Mono.fromCallable(() -> performMerge(fileContents, preserveBookmarks))
-                .subscribeOn(Schedulers.boundedElastic())
+    public Mono<ByteBuffer> mergePdfs(List<ByteBuffer> fileContents, boolean preserveBookmarks,
+                                      boolean deduplicateResources) {
+        List<PdfInput> inputs = new ArrayList<>(fileContents.size());
+        for (ByteBuffer buffer : fileContents) {
+            byte[] bytes = new byte[buffer.remaining()];
+            buffer.get(bytes);
+            inputs.add(PdfInput.of(bytes));
+        }
+        return processingExecutor.execute(JobType.MERGE, () -> performMerge(inputs, deduplicateResources))
                 .doOnSuccess(result -> log.info("Successfully merged {} PDFs", fileContents.size()))
                 .doOnError(error -> log.error("Failed to merge PDFs", error));
     }
 
     @Override
-    public Mono<String> mergePdfsAsync(List<String> fileIds, boolean preserveBookmarks, String userId) {
+    public Mono<String> mergePdfsAsync(List<String> fileIds, boolean preserveBookmarks,
+                                       boolean deduplicateResources, String userId, JobLane lane) {
         String jobId = UUID.randomUUID().toString();
         
-        PdfJob job = PdfJob.createNew(jobId, userId, JobType.MERGE, fileIds, 
-                "{\"preserveBookmarks\":" + preserveBookmarks + "}");
+        PdfJob job = PdfJob.createNew(jobId, userId, JobType.MERGE, lane, fileIds, String.format(
+                "{\"preserveBookmarks\":%b,\"deduplicateResources\":%b}", preserveBookmarks, deduplicateResources));
 
-        return jobRepository.save(job)
-                .doOnSuccess(savedJob -> {
-                    // Fire and forget - process asynchronously
-                    processMergeJob(savedJob, preserveBookmarks)
-                            .subscribe(
-                                    result -> log.info("Merge job {} completed", jobId),
-                                    error -> log.error("Merge job {} failed", jobId, error)
-                            );
-                })
+        // Persist as PENDING; a worker picks it up from the queue
+        return jobQueue.enqueue(job)
                 .map(PdfJob::id)
                 .doOnSuccess(id -> log.info("Created merge job: {}", id));
     }
 
-    /**
-     * Process merge job asynchronously.
-     */
-    private Mono<Void> processMergeJob(PdfJob job, boolean preserveBookmarks) {
-        return Mono.defer(() -> {
-            // Update status to processing
-            return jobRepository.updateStatus(job.id(), 
-                    com.pdfutility.pdfcore.model.JobStatus.PROCESSING, LocalDateTime.now())
-                    .then(downloadAndMerge(job, preserveBookmarks));
-        });
+    @Override
+    public JobType jobType() {
+        return JobType.MERGE;
     }
 
     /**
-     * Download files and merge them.
+     * Process a claimed merge job: download the inputs, merge them and upload the result.
+     * Inputs are prefetched in order with bounded concurrency and the result is streamed through the pipeline.
      */
-    private Mono<Void> downloadAndMerge(PdfJob job, boolean preserveBookmarks) {
-        return Flux.fromIterable(job.inputFileIds())
-                .flatMap(storageClient::downloadFile)
-                .collectList()
-                .flatMap(fileContents -> mergePdfs(fileContents, preserveBookmarks))
-                .flatMap(mergedContent -> 
-                        storageClient.uploadFile(mergedContent, "merged_" + job.id() + ".pdf", "application/pdf"))
-                .flatMap(outputFileId -> 
-                        jobRepository.markCompleted(job.id(), outputFileId, LocalDateTime.now()))
-                .then()
-                .onErrorResume(error -> {
-                    log.error("Merge job {} failed", job.id(), error);
-                    return jobRepository.markFailed(job.id(), error.getMessage(), LocalDateTime.now())
-                            .then(Mono.error(error));
-                });
+    @Override
+    public Mono<String> process(PdfJob job) {
+        JsonNode parameters = JobParameters.read(objectMapper, job);
+        boolean preserveBookmarks = parameters.path("preserveBookmarks").asBoolean(false);
+        boolean deduplicateResources = parameters.path("deduplicateResources").asBoolean(true);
+
+        Map<String, Object> cacheParameters = Map.of(
+                "preserveBookmarks", preserveBookmarks, "deduplicateResources", deduplicateResources);
+
+        return documentPipeline.transform(JobType.MERGE, job.inputFileIds(), cacheParameters,
+                        "merged_" + job.id() + ".pdf", job.userId(),
+                        (inputs, output) -> mergeTo(inputs, deduplicateResources, output))
+                .doOnSuccess(fileId -> log.info("Successfully merged {} PDFs for job {}",
+                        job.inputFileIds().size(), job.id()));
     }
 
     /**
      * Perform the actual PDF merge using PDFBox.
-     * This is a blocking operation, so it runs on boundedElastic scheduler.
+     * This is a blocking operation, so it runs on the PDF processing executor.
      */
-    private ByteBuffer performMerge(List<ByteBuffer> fileContents, boolean preserveBookmarks) {
-        PDFMergerUtility merger = new PDFMergerUtility();
-        
-        try (ByteArrayOutputStream outputStream = new ByteArrayOutputStream()) {
-            // Add all source PDFs
-            for (int i = 0; i < fileContents.size(); i++) {
-                ByteBuffer buffer = fileContents.get(i);
-                byte[] bytes = new byte[buffer.remaining()];
-                buffer.get(bytes);
-                merger.addSource(new RandomAccessReadBuffer(bytes));
-            }
-
-            merger.setDestinationStream(outputStream);
-
-            // Merge documents (PDFBox 3.x API)
-            merger.mergeDocuments(null);
-
-            byte[] mergedBytes = outputStream.toByteArray();
+    private ByteBuffer performMerge(List<PdfInput> inputs, boolean deduplicateResources) {
+        try {
+            byte[] mergedBytes = pdfMerger.merge(inputs, deduplicateResources);
             log.debug("Merged PDF size: {} bytes", mergedBytes.length);
             
             return ByteBuffer.wrap(mergedBytes);
@@ -125,4 +110,12 @@ public class PdfMergeServiceImpl implements PdfMergeService {
             throw new PdfProcessingException("Failed to merge PDFs: " + e.getMessage(), e);
         }
     }
+
+    private void mergeTo(List<PdfInput> inputs, boolean deduplicateResources, OutputStream output) {
+        try {
+            pdfMerger.merge(inputs, deduplicateResources, output);
+        } catch (IOException e) {
+            throw new PdfProcessingException("Failed to merge PDFs: " + e.getMessage(), e);
+        }
+    }
 }
@@ -4,17 +4,32 @@ import com.pdfutility.common.exception.StorageException;
 import com.pdfutility.pdfcore.service.StorageClient;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.core.io.FileSystemResource;
 import org.springframework.core.io.buffer.DataBuffer;
 import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
 import org.springframework.http.MediaType;
 import org.springframework.http.client.MultipartBodyBuilder;
 import org.springframework.stereotype.Component;
 import org.springframework.web.reactive.function.BodyInserters;
 import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.nio.ByteBuffer;
+import java.nio.channels.AsynchronousFileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.time.Duration;
+import java.util.Base64;
+import java.util.function.Supplier;
 
 /**
  * Storage Client Implementation using WebClient (Reactive HTTP Client).
@@ -24,6 +39,10 @@ import java.time.Duration;
 @Component
 public class StorageClientImpl implements StorageClient {
 
+    private static final String USER_ID_HEADER = "X-User-Id";
+    private static final String PDF_CONTENT_TYPE = "application/pdf";
+    private static final int TRANSFER_BUFFER_SIZE = 64 * 1024;
+
     private final WebClient webClient;
     private final Duration timeout;
 
@@ -57,24 +76,150 @@ public class StorageClientImpl implements StorageClient {
     }
 
     @Override
-    public Mono<String> uploadFile(ByteBuffer content, String fileName, String contentType) {
+    public Flux<DataBuffer> downloadFileContent(String fileId) {
+        return webClient.get()
+                .uri("/api/v1/files/{fileId}/content", fileId)
+                .retrieve()
+                .bodyToFlux(DataBuffer.class)
+                .timeout(timeout)
+                .onErrorMap(e -> new StorageException("Failed to download file: " + fileId, e));
+    }
+
+    @Override
+    public Mono<String> uploadFile(ByteBuffer content, String fileName, String contentType, String userId) {
+        NegotiationRequest negotiation = new NegotiationRequest(
+                sha256(content), (long) content.remaining(), fileName, contentType);
+        return upload(negotiation, () -> {
+            byte[] bytes = new byte[content.remaining()];
+            content.duplicate().get(bytes);
+            return bytes;
+        }, userId);
+    }
+
+    @Override
+    public Mono<String> uploadFile(Path file, String fileName, String contentType, String userId) {
+        return Mono.fromCallable(() -> new NegotiationRequest(sha256(file), Files.size(file), fileName, contentType))
+                .subscribeOn(Schedulers.boundedElastic())
+                .flatMap(negotiation -> upload(negotiation, () -> new FileSystemResource(file), userId))
+                .onErrorMap(e -> !(e instanceof StorageException),
+                        e -> new StorageException("Failed to upload file: " + fileName, e));
+    }
+
+    @Override
+    public Mono<String> appendFile(String baseFileId, long baseSize, Path file, String fileName, String userId) {
+        return Mono.fromCallable(() -> new NegotiationRequest(sha256(file), Files.size(file), fileName, PDF_CONTENT_TYPE))
+                .subscribeOn(Schedulers.boundedElastic())
+                .flatMap(negotiation -> negotiate(negotiation, userId)
+                        .switchIfEmpty(Mono.defer(() -> transferTail(baseFileId, baseSize, file, negotiation, userId))))
+                .timeout(timeout)
+                .doOnSuccess(fileId -> log.debug("Uploaded file: {} -> {} as an append to {}", fileName, fileId, baseFileId))
+                .onErrorMap(e -> !(e instanceof StorageException),
+                        e -> new StorageException("Failed to upload file: " + fileName, e));
+    }
+
+    @Override
+    public Mono<String> copyFile(String fileId, String fileName, String userId) {
+        return getFileMetadata(fileId)
+                .flatMap(metadata -> negotiate(new NegotiationRequest(
+                        metadata.checksum(), metadata.size(), fileName, metadata.contentType()), userId))
+                .switchIfEmpty(Mono.error(() -> new StorageException("Content of file " + fileId + " is no longer stored")))
+                .timeout(timeout)
+                .doOnSuccess(copy -> log.debug("Copied file: {} -> {}", fileId, copy))
+                .onErrorMap(e -> !(e instanceof StorageException),
+                        e -> new StorageException("Failed to copy file: " + fileId, e));
+    }
+
+    /**
+     * Offer the checksum first and only transfer the content when storage does not know it.
+     *
+     * @param content Body of the file part, a byte array or a resource streamed from disk
+     */
+    private Mono<String> upload(NegotiationRequest negotiation, Supplier<Object> content, String userId) {
+        String fileName = negotiation.fileName();
+        return negotiate(negotiation, userId)
+                .switchIfEmpty(Mono.defer(() -> transferFile(content.get(), fileName, negotiation.contentType(), userId)))
+                .timeout(timeout)
+                .doOnSuccess(fileId -> log.debug("Uploaded file: {} -> {}", fileName, fileId))
+                .onErrorMap(e -> new StorageException("Failed to upload file: " + fileName, e));
+    }
+
+    /**
+     * Create a file from content storage already holds; empty if it does not hold it.
+     */
+    private Mono<String> negotiate(NegotiationRequest negotiation, String userId) {
+        return webClient.post()
+                .uri("/api/v1/files/negotiate")
+                .header(USER_ID_HEADER, userId)
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(negotiation)
+                .retrieve()
+                .bodyToMono(new ParameterizedTypeReference<Envelope<NegotiationResponse>>() {})
+                .map(Envelope::data)
+                .filter(NegotiationResponse::contentKnown)
+                .map(response -> response.file().fileId())
+                .doOnNext(fileId -> log.debug("Content already stored, linked file: {} -> {}",
+                        negotiation.fileName(), fileId));
+    }
+
+    private Mono<String> transferFile(Object content, String fileName, String contentType, String userId) {
         MultipartBodyBuilder bodyBuilder = new MultipartBodyBuilder();
-        byte[] bytes = new byte[content.remaining()];
-        content.get(bytes);
-        bodyBuilder.part("file", bytes)
+        bodyBuilder.part("file", content)
                 .filename(fileName)
                 .contentType(MediaType.parseMediaType(contentType));
 
         return webClient.post()
                 .uri("/api/v1/files")
+                .header(USER_ID_HEADER, userId)
                 .contentType(MediaType.MULTIPART_FORM_DATA)
                 .body(BodyInserters.fromMultipartData(bodyBuilder.build()))
                 .retrieve()
-                .bodyToMono(UploadResponse.class)
-                .map(UploadResponse::fileId)
-                .timeout(timeout)
-                .doOnSuccess(fileId -> log.debug("Uploaded file: {} -> {}", fileName, fileId))
-                .onErrorMap(e -> new StorageException("Failed to upload file: " + fileName, e));
+                .bodyToMono(new ParameterizedTypeReference<Envelope<UploadResponse>>() {})
+                .map(envelope -> envelope.data().fileId());
+    }
+
+    /**
+     * Send the part of a file after its base; storage verifies the checksum of the assembled file.
+     */
+    private Mono<String> transferTail(String baseFileId, long baseSize, Path file, NegotiationRequest negotiation,
+                                      String userId) {
+        Flux<DataBuffer> tail = DataBufferUtils.readAsynchronousFileChannel(
+                () -> AsynchronousFileChannel.open(file, StandardOpenOption.READ),
+                baseSize, DefaultDataBufferFactory.sharedInstance, TRANSFER_BUFFER_SIZE);
+
+        return webClient.post()
+                .uri("/api/v1/files/{fileId}/append?fileName={fileName}&baseSize={baseSize}&checksum={checksum}",
+                        baseFileId, negotiation.fileName(), baseSize, negotiation.checksum())
+                .header(USER_ID_HEADER, userId)
+                .contentType(MediaType.APPLICATION_OCTET_STREAM)
+                .body(BodyInserters.fromDataBuffers(tail))
+                .retrieve()
+                .bodyToMono(new ParameterizedTypeReference<Envelope<UploadResponse>>() {})
+                .map(envelope -> envelope.data().fileId());
+    }
+
+    private static String sha256(ByteBuffer content) {
+        MessageDigest digest = sha256Digest();
+        digest.update(content.duplicate());
+        return Base64.getEncoder().encodeToString(digest.digest());
+    }
+
+    private static String sha256(Path file) throws IOException {
+        MessageDigest digest = sha256Digest();
+        try (InputStream in = Files.newInputStream(file)) {
+            byte[] buffer = new byte[64 * 1024];
+            for (int read = in.read(buffer); read != -1; read = in.read(buffer)) {
+                digest.update(buffer, 0, read);
+            }
+        }
+        return Base64.getEncoder().encodeToString(digest.digest());
+    }
+
+    private static MessageDigest sha256Digest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new StorageException("SHA-256 digest not available", e);
+        }
     }
 
     @Override
@@ -93,7 +238,8 @@ public class StorageClientImpl implements StorageClient {
         return webClient.get()
                 .uri("/api/v1/files/{fileId}/metadata", fileId)
                 .retrieve()
-                .bodyToMono(FileMetadata.class)
+                .bodyToMono(new ParameterizedTypeReference<Envelope<FileInfo>>() {})
+                .map(envelope -> envelope.data().toMetadata())
                 .timeout(timeout)
                 .onErrorMap(e -> new StorageException("Failed to get file metadata: " + fileId, e));
     }
@@ -102,4 +248,25 @@ public class StorageClientImpl implements StorageClient {
      * Upload response from storage service.
      */
     private record UploadResponse(String fileId, String fileName, String downloadUrl) {}
+
+    /**
+     * File information as returned by the storage service.
+     */
+    private record FileInfo(String fileId, String fileName, String contentType, Long sizeBytes, String checksum) {
+        FileMetadata toMetadata() {
+            return new FileMetadata(fileId, fileName, contentType, sizeBytes != null ? sizeBytes : 0L, checksum);
+        }
+    }
+
+    /**
+     * Hash-first upload request and response of the storage service.
+     */
+    private record NegotiationRequest(String checksum, Long sizeBytes, String fileName, String contentType) {}
+
+    private record NegotiationResponse(boolean contentKnown, UploadResponse file, String uploadUrl) {}
+
+    /**
+     * ApiResponse wrapper used by the storage service.
+     */
+    private record Envelope<T>(boolean success, String message, T data) {}
 }
@@ -0,0 +1,158 @@
+package com.pdfutility.pdfcore.worker;
+
+import com.pdfutility.common.exception.ProcessingCapacityException;
+import com.pdfutility.pdfcore.model.PdfJob;
+import com.pdfutility.pdfcore.service.StorageClient;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Function;
+
+/**
+ * Admits jobs against a node-wide memory budget.
+ * A job's working set is estimated from the size of its inputs and its type, and reserved before
+ * processing starts. Jobs that do not fit wait in FIFO order, so a large job is not starved by a stream
+ * of small ones; a job still waiting after the maximum wait fails with {@link ProcessingCapacityException}
+ * and is handed back to the shared queue, where a node with free memory can claim it.
+ */
+@Slf4j
+@Component
+public class AdmissionController {
+
+    private final AdmissionProperties properties;
+    private final StorageClient storageClient;
+    private final long budget;
+    private final Deque<Waiter> waiting = new ArrayDeque<>();
+    private final Counter timeouts;
+
+    private long reserved;
+
+    public AdmissionController(AdmissionProperties properties, StorageClient storageClient,
+                               MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.storageClient = storageClient;
+        this.budget = properties.memoryBudget().toBytes();
+        Gauge.builder("pdf.admission.reserved.bytes", this, AdmissionController::reservedBytes)
+                .register(meterRegistry);
+        Gauge.builder("pdf.admission.waiting", this, AdmissionController::waitingJobs)
+                .register(meterRegistry);
+        this.timeouts = Counter.builder("pdf.admission.timeouts").register(meterRegistry);
+        log.info("Job admission {} with a memory budget of {} MB",
+                properties.enabled() ? "enabled" : "disabled", DataSize.ofBytes(budget).toMegabytes());
+    }
+
+    /**
+     * Run the job once its estimated working set is reserved, releasing the reservation when it ends.
+     */
+    public <T> Mono<T> admit(PdfJob job, Function<PdfJob, Mono<T>> process) {
+        if (!properties.enabled()) {
+            return Mono.defer(() -> process.apply(job));
+        }
+        return estimate(job).flatMap(bytes -> Mono.usingWhen(
+                reserve(job, bytes),
+                reservation -> process.apply(job),
+                reservation -> Mono.fromRunnable(() -> release(reservation))));
+    }
+
+    private Mono<Long> estimate(PdfJob job) {
+        return Flux.fromIterable(job.inputFileIds())
+                .flatMap(fileId -> storageClient.getFileMetadata(fileId)
+                        .map(StorageClient.FileMetadata::size)
+                        .onErrorResume(e -> {
+                            // The download will report a missing file; admit with the minimum meanwhile
+                            log.warn("No size for input {} of job {}: {}", fileId, job.id(), e.getMessage());
+                            return Mono.just(0L);
+                        }))
+                .reduce(0L, Long::sum)
+                .map(inputBytes -> properties.estimate(job.jobType(), inputBytes));
+    }
+
+    private Mono<Long> reserve(PdfJob job, long bytes) {
+        return Mono.defer(() -> {
+            Waiter waiter = new Waiter(bytes);
+            synchronized (this) {
+                if (waiting.isEmpty() && reserved + bytes <= budget) {
+                    reserved += bytes;
+                    return Mono.just(bytes);
+                }
+                waiting.addLast(waiter);
+            }
+            log.debug("{} job {} waits for {} bytes of memory", job.jobType(), job.id(), bytes);
+            return waiter.sink.asMono()
+                    .timeout(properties.maxWait())
+                    .onErrorMap(TimeoutException.class, e -> {
+                        timeouts.increment();
+                        return new ProcessingCapacityException(
+                                "Not enough memory to admit " + job.jobType() + " job " + job.id(),
+                                ProcessingCapacityException.MEMORY_EXHAUSTED, properties.retryAfter());
+                    })
+                    .doOnError(e -> abandon(waiter))
+                    .doOnCancel(() -> abandon(waiter));
+        });
+    }
+
+    private void release(long bytes) {
+        List<Waiter> granted = new ArrayList<>();
+        synchronized (this) {
+            reserved -= bytes;
+            // Strict FIFO: the head must fit before anything behind it is admitted
+            while (!waiting.isEmpty() && reserved + waiting.peekFirst().bytes <= budget) {
+                Waiter waiter = waiting.pollFirst();
+                reserved += waiter.bytes;
+                waiter.granted = true;
+                granted.add(waiter);
+            }
+        }
+        // A waiter that gave up in the meantime returns its grant through abandon
+        granted.forEach(waiter -> waiter.sink.tryEmitValue(waiter.bytes));
+    }
+
+    /**
+     * A waiter that timed out or was cancelled leaves the queue; if it was granted in the meantime
+     * its reservation is returned.
+     */
+    private void abandon(Waiter waiter) {
+        boolean wasGranted;
+        synchronized (this) {
+            wasGranted = !waiting.remove(waiter) && waiter.granted && !waiter.returned;
+            waiter.returned = true;
+        }
+        if (wasGranted) {
+            release(waiter.bytes);
+        } else {
+            // Removing the head may let the next jobs in
+            release(0);
+        }
+    }
+
+    private synchronized long reservedBytes() {
+        return reserved;
+    }
+
+    private synchronized int waitingJobs() {
+        return waiting.size();
+    }
+
+    private static final class Waiter {
+        private final long bytes;
+        private final Sinks.One<Long> sink = Sinks.one();
+        private boolean granted;
+        private boolean returned;
+
+        Waiter(long bytes) {
+            this.bytes = bytes;
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package com.pdfutility.pdfcore.worker;
+
+import com.pdfutility.pdfcore.model.JobType;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Memory-aware admission of jobs on this node.
+ *
+ * @param enabled Whether jobs reserve memory before they start
+ * @param memoryBudget Memory all running jobs may reserve together; defaults to 60% of the maximum heap
+ * @param minReservation Smallest reservation, covering a job's fixed overhead
+ * @param maxWait How long a claimed job waits for memory before it is handed back to the queue
+ * @param retryAfter Delay before a handed back job is announced again
+ * @param workingSetFactors Estimated working set per input byte, per job type
+ * @param defaultWorkingSetFactor Factor for job types not listed
+ */
+@ConfigurationProperties(prefix = "pdf.worker.admission")
+public record AdmissionProperties(
+        Boolean enabled,
+        DataSize memoryBudget,
+        DataSize minReservation,
+        Duration maxWait,
+        Duration retryAfter,
+        Map<JobType, Double> workingSetFactors,
+        Double defaultWorkingSetFactor
+) {
+    public AdmissionProperties {
+        if (enabled == null) {
+            enabled = true;
+        }
+        if (memoryBudget == null || memoryBudget.toBytes() <= 0) {
+            memoryBudget = DataSize.ofBytes((long) (Runtime.getRuntime().maxMemory() * 0.6));
+        }
+        if (minReservation == null) {
+            minReservation = DataSize.ofMegabytes(16);
+        }
+        if (maxWait == null) {
+            maxWait = Duration.ofSeconds(30);
+        }
+        if (retryAfter == null) {
+            retryAfter = Duration.ofSeconds(5);
+        }
+        if (defaultWorkingSetFactor == null) {
+            defaultWorkingSetFactor = 2.0;
+        }
+        Map<JobType, Double> resolved = new EnumMap<>(JobType.class);
+        resolved.put(JobType.MERGE, 1.5);
+        resolved.put(JobType.COMPRESS, 3.0);
+        if (workingSetFactors != null) {
+            resolved.putAll(workingSetFactors);
+        }
+        workingSetFactors = resolved;
+    }
+
+    /**
+     * Estimated working set of a job, never below the minimum reservation nor above the whole budget,
+     * so that a job larger than the budget can still run once the node is otherwise idle.
+     */
+    public long estimate(JobType jobType, long inputBytes) {
+        double factor = workingSetFactors.getOrDefault(jobType, defaultWorkingSetFactor);
+        long estimate = Math.max(minReservation.toBytes(), (long) (inputBytes * factor));
+        return Math.min(estimate, memoryBudget.toBytes());
+    }
+}
@@ -0,0 +1,67 @@
+package com.pdfutility.pdfcore.worker;
+
+import com.pdfutility.pdfcore.model.PdfJob;
+import com.pdfutility.pdfcore.repository.PdfJobRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDateTime;
+
+/**
+ * Aggregates the progress of batches.
+ * A batch parent is never run by a worker; whenever one of its children reaches a terminal state its
+ * progress is recomputed from all children, and the batch finishes with the last of them.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class BatchTracker {
+
+    private final PdfJobRepository jobRepository;
+    private final JobEventPublisher eventPublisher;
+
+    /**
+     * Record that a job finished, if it belongs to a batch. Must be called after the job's own
+     * terminal update.
+     *
+     * @param job Finished job
+     */
+    public Mono<Void> childFinished(PdfJob job) {
+        if (job.parentId() == null) {
+            return Mono.empty();
+        }
+        return update(job.parentId())
+                .onErrorResume(e -> {
+                    // The next child to finish recomputes the batch from scratch
+                    log.warn("Failed to update batch {} after job {}", job.parentId(), job.id(), e);
+                    return Mono.empty();
+                });
+    }
+
+    /**
+     * Recompute the progress of a batch and announce it if it has just finished.
+     *
+     * @param batchId Batch parent ID
+     */
+    public Mono<Void> update(String batchId) {
+        return jobRepository.updateBatchProgress(batchId, LocalDateTime.now())
+                .flatMap(batch -> switch (batch.status()) {
+                    case COMPLETED -> {
+                        log.info("Batch {} completed: {}", batch.id(),
+                                batch.errorMessage() != null ? batch.errorMessage() : "all files processed");
+                        yield eventPublisher.publishCompleted(batch, null);
+                    }
+                    case FAILED -> {
+                        log.warn("Batch {} failed: {}", batch.id(), batch.errorMessage());
+                        yield eventPublisher.publishFailed(batch, batch.errorMessage());
+                    }
+                    case CANCELLED -> {
+                        log.info("Batch {} cancelled", batch.id());
+                        yield Mono.<Void>empty();
+                    }
+                    default -> Mono.<Void>empty();
+                });
+    }
+}
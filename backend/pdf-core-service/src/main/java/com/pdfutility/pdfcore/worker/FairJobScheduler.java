@@ -0,0 +1,158 @@
+package com.pdfutility.pdfcore.worker;
+
+import com.pdfutility.pdfcore.model.JobLane;
+import com.pdfutility.pdfcore.model.PdfJob;
+import com.pdfutility.pdfcore.repository.PdfJobRepository;
+import com.pdfutility.pdfcore.repository.PdfJobRepository.PendingJobHead;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Decides which pending job a worker claims next.
+ * Jobs are queued per (lane, user) and only the head of each queue is a candidate, so a user with a backlog
+ * of hundreds of jobs competes with one job, like everybody else. Queues are served by start-time fair
+ * queuing on two levels: lanes share the workers in proportion to their weights, and within a lane users
+ * share them equally. Each claim charges the lane and the user the job's estimated cost, so users with
+ * large jobs get fewer of them, and a queue that was idle rejoins at the current virtual time rather than
+ * with credit saved up while it had no work.
+ * Scheduling state is local to the node; across nodes the shares are approximate, while the claim itself
+ * stays a compare-and-set on the row.
+ * Children of a batch are only claimed while fewer than the batch parallelism of them are in progress; the
+ * claim checks this under a lock on the batch, so the limit holds across nodes and however jobs are ordered.
+ */
+@Slf4j
+@Component
+public class FairJobScheduler {
+
+    private final PdfJobRepository jobRepository;
+    private final SchedulingProperties properties;
+    private final TransactionalOperator transactionalOperator;
+    private final Map<JobLane, Lane> lanes = new EnumMap<>(JobLane.class);
+    private final Map<JobLane, Counter> claims = new EnumMap<>(JobLane.class);
+
+    private double virtualTime;
+
+    public FairJobScheduler(PdfJobRepository jobRepository, SchedulingProperties properties,
+                            TransactionalOperator transactionalOperator, MeterRegistry meterRegistry) {
+        this.jobRepository = jobRepository;
+        this.properties = properties;
+        this.transactionalOperator = transactionalOperator;
+        for (JobLane lane : JobLane.values()) {
+            lanes.put(lane, new Lane());
+            claims.put(lane, Counter.builder("pdf.scheduler.claims")
+                    .tag("lane", lane.name())
+                    .register(meterRegistry));
+        }
+        log.info("Fair job scheduling {} with lane weights {}",
+                properties.enabled() ? "enabled" : "disabled", properties.laneWeights());
+    }
+
+    /**
+     * Claim the fairest job among those pending since {@code pendingBefore}.
+     * Candidates are tried in order until a claim succeeds, since other workers claim concurrently.
+     * With fair scheduling disabled the oldest candidate goes first.
+     */
+    public Mono<PdfJob> claimNext(String workerId, LocalDateTime claimedAt, LocalDateTime pendingBefore) {
+        return jobRepository.findPendingJobHeads(pendingBefore, properties.batchParallelism(), properties.maxCandidates())
+                .collectList()
+                .flatMapMany(heads -> Flux.fromIterable(properties.enabled() ? order(heads) : oldestFirst(heads)))
+                .concatMap(head -> claim(head, workerId, claimedAt)
+                        .doOnNext(job -> charge(head)))
+                .next();
+    }
+
+    /**
+     * Claim one candidate. A child of a batch is claimed in a transaction holding the batch's lock, so that
+     * concurrent claims of its siblings cannot all see room under the batch parallelism.
+     */
+    private Mono<PdfJob> claim(PendingJobHead head, String workerId, LocalDateTime claimedAt) {
+        Mono<PdfJob> claim = jobRepository.claimPendingJob(head.id(), workerId, claimedAt,
+                properties.batchParallelism());
+        if (head.parentId() == null) {
+            return claim;
+        }
+        return jobRepository.lockBatch(head.parentId())
+                .then(claim)
+                .as(transactionalOperator::transactional);
+    }
+
+    private static List<PendingJobHead> oldestFirst(List<PendingJobHead> heads) {
+        return heads.stream()
+                .sorted(Comparator.comparing(PendingJobHead::createdAt))
+                .toList();
+    }
+
+    /**
+     * Candidates by lane start tag, then by user start tag within the lane.
+     */
+    private synchronized List<PendingJobHead> order(List<PendingJobHead> heads) {
+        Map<JobLane, List<PendingJobHead>> byLane = heads.stream()
+                .collect(Collectors.groupingBy(PendingJobHead::lane,
+                        () -> new EnumMap<>(JobLane.class), Collectors.toList()));
+
+        List<PendingJobHead> ordered = new ArrayList<>(heads.size());
+        byLane.keySet().stream()
+                .sorted(Comparator.<JobLane>comparingDouble(lane -> lanes.get(lane).start(virtualTime))
+                        .thenComparingInt(lane -> -properties.weight(lane)))
+                .forEach(lane -> {
+                    Lane state = lanes.get(lane);
+                    byLane.get(lane).stream()
+                            .sorted(Comparator.comparingDouble(head -> state.start(head.userId())))
+                            .forEach(ordered::add);
+                });
+        return ordered;
+    }
+
+    private synchronized void charge(PendingJobHead head) {
+        double cost = properties.cost(head.jobType(), head.inputCount() != null ? head.inputCount() : 1);
+        Lane lane = lanes.get(head.lane());
+        double start = lane.start(virtualTime);
+        lane.finish = start + cost / properties.weight(head.lane());
+        virtualTime = Math.max(virtualTime, start);
+        lane.charge(head.userId(), cost);
+        claims.get(head.lane()).increment();
+        log.debug("Claimed {} job {} of user {} in lane {} (cost {})",
+                head.jobType(), head.id(), head.userId(), head.lane(), cost);
+    }
+
+    /**
+     * Fair queuing state of one lane: its own finish tag and those of its users.
+     * Guarded by the scheduler's monitor.
+     */
+    private static final class Lane {
+
+        private final Map<String, Double> userFinish = new HashMap<>();
+        private double finish;
+        private double virtualTime;
+
+        double start(double systemVirtualTime) {
+            return Math.max(finish, systemVirtualTime);
+        }
+
+        double start(String userId) {
+            return Math.max(userFinish.getOrDefault(userId, 0.0), virtualTime);
+        }
+
+        void charge(String userId, double cost) {
+            double start = start(userId);
+            userFinish.put(userId, start + cost);
+            virtualTime = Math.max(virtualTime, start);
+            // Users the lane has caught up with are no different from new ones
+            userFinish.values().removeIf(tag -> tag <= virtualTime);
+        }
+    }
+}
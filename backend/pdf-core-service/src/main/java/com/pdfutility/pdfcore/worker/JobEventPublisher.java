@@ -0,0 +1,146 @@
+package com.pdfutility.pdfcore.worker;
+
+import com.pdfutility.common.event.BaseEvent;
+import com.pdfutility.common.event.PdfCompressEventData;
+import com.pdfutility.common.event.PdfEventTypes;
+import com.pdfutility.common.event.PdfMergeEventData;
+import com.pdfutility.pdfcore.model.JobType;
+import com.pdfutility.pdfcore.model.PdfJob;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.kafka.KafkaProperties;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+import reactor.kafka.sender.KafkaSender;
+import reactor.kafka.sender.SenderOptions;
+import reactor.kafka.sender.SenderRecord;
+
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Publishes job lifecycle events to Kafka when jobs are dispatched through Kafka.
+ * Each event type is its own topic and records are keyed by user id, so all jobs of a user land on the
+ * same partition and users spread across the consumer group. Publishing never fails the caller:
+ * the pdf_jobs row stays the source of truth and the polling fallback picks up anything that was not announced.
+ */
+@Slf4j
+@Component
+public class JobEventPublisher {
+
+    static final String DISPATCH_KAFKA = "kafka";
+    private static final String SOURCE = "pdf-core-service";
+
+    private final KafkaSender<String, Object> sender;
+
+    public JobEventPublisher(KafkaProperties kafkaProperties,
+                             @Value("${pdf.worker.dispatch:poll}") String dispatch) {
+        this.sender = DISPATCH_KAFKA.equalsIgnoreCase(dispatch)
+                ? KafkaSender.create(SenderOptions.create(kafkaProperties.buildProducerProperties(null)))
+                : null;
+    }
+
+    public boolean isEnabled() {
+        return sender != null;
+    }
+
+    public Mono<Void> publishRequested(PdfJob job) {
+        return publish(eventType(job.jobType(), "requested"), job, eventData(job, null, null));
+    }
+
+    public Mono<Void> publishCompleted(PdfJob job, String outputFileId) {
+        return publish(eventType(job.jobType(), "completed"), job, eventData(job, outputFileId, null));
+    }
+
+    public Mono<Void> publishFailed(PdfJob job, String errorMessage) {
+        return publish(eventType(job.jobType(), "failed"), job, eventData(job, null, errorMessage));
+    }
+
+    @PreDestroy
+    public void close() {
+        if (sender != null) {
+            sender.close();
+        }
+    }
+
+    /**
+     * Event type (and topic) for a job type and lifecycle stage, following {domain}.{action}.{version}.
+     */
+    static String eventType(JobType jobType, String stage) {
+        return switch (jobType) {
+            case MERGE -> switch (stage) {
+                case "requested" -> PdfEventTypes.PDF_MERGE_REQUESTED;
+                case "completed" -> PdfEventTypes.PDF_MERGE_COMPLETED;
+                default -> PdfEventTypes.PDF_MERGE_FAILED;
+            };
+            case COMPRESS -> switch (stage) {
+                case "requested" -> PdfEventTypes.PDF_COMPRESS_REQUESTED;
+                case "completed" -> PdfEventTypes.PDF_COMPRESS_COMPLETED;
+                default -> PdfEventTypes.PDF_COMPRESS_FAILED;
+            };
+            default -> "pdf." + jobType.name().toLowerCase() + "." + stage + ".v1";
+        };
+    }
+
+    private Mono<Void> publish(String eventType, PdfJob job, Object data) {
+        if (sender == null) {
+            return Mono.empty();
+        }
+        BaseEvent<Object> event = BaseEvent.builder()
+                .eventId(UUID.randomUUID().toString())
+                .eventType(eventType)
+                .eventTime(LocalDateTime.now())
+                .source(SOURCE)
+                .subject(job.id())
+                .dataVersion("1.0")
+                .data(data)
+                .metadata(BaseEvent.EventMetadata.builder()
+                        .correlationId(job.id())
+                        .userId(job.userId())
+                        .build())
+                .build();
+
+        return sender.send(Mono.just(SenderRecord.create(
+                        new ProducerRecord<String, Object>(eventType, job.userId(), event), job.id())))
+                .doOnNext(result -> log.debug("Published {} for job {}", eventType, job.id()))
+                .then()
+                .onErrorResume(e -> {
+                    log.warn("Failed to publish {} for job {}: {}", eventType, job.id(), e.getMessage());
+                    return Mono.empty();
+                });
+    }
+
+    private Object eventData(PdfJob job, String outputFileId, String errorMessage) {
+        List<String> inputs = job.inputFileIds() != null ? job.inputFileIds() : List.of();
+        return switch (job.jobType()) {
+            case MERGE -> PdfMergeEventData.builder()
+                    .jobId(job.id())
+                    .userId(job.userId())
+                    .sourceFileIds(inputs)
+                    .outputFileId(outputFileId)
+                    .errorMessage(errorMessage)
+                    .build();
+            case COMPRESS -> PdfCompressEventData.builder()
+                    .jobId(job.id())
+                    .userId(job.userId())
+                    .sourceFileId(inputs.isEmpty() ? null : inputs.get(0))
+                    .outputFileId(outputFileId)
+                    .errorMessage(errorMessage)
+                    .build();
+            default -> {
+                Map<String, Object> data = new HashMap<>();
+                data.put("jobId", job.id());
+                data.put("userId", job.userId());
+                data.put("sourceFileIds", inputs);
+                data.put("outputFileId", outputFileId);
+                data.put("errorMessage", errorMessage);
+                yield data;
+            }
+        };
+    }
+}
@@ -0,0 +1,27 @@
+package com.pdfutility.pdfcore.worker;
+
+import com.pdfutility.pdfcore.model.JobType;
+import com.pdfutility.pdfcore.model.PdfJob;
+import reactor.core.publisher.Mono;
+
+/**
+ * Processes claimed jobs of one type.
+ * Handlers only do the work; claiming and the terminal status update are owned by {@link JobWorkerPool}.
+ */
+public interface JobHandler {
+
+    /**
+     * Job type handled.
+     *
+     * @return Job type
+     */
+    JobType jobType();
+
+    /**
+     * Process a job that has been claimed by a worker.
+     *
+     * @param job Claimed job in PROCESSING state
+     * @return File ID of the job output
+     */
+    Mono<String> process(PdfJob job);
+}
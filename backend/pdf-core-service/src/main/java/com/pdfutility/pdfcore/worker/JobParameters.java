@@ -0,0 +1,33 @@
+package com.pdfutility.pdfcore.worker;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.pdfutility.common.exception.PdfProcessingException;
+import com.pdfutility.pdfcore.model.PdfJob;
+
+/**
+ * Reads the JSON parameters stored with a job.
+ */
+public final class JobParameters {
+
+    private JobParameters() {
+    }
+
+    /**
+     * Parse the parameters of a job.
+     *
+     * @param objectMapper Mapper to parse with
+     * @param job Job
+     * @return Parameters, an empty object if the job has none
+     */
+    public static JsonNode read(ObjectMapper objectMapper, PdfJob job) {
+        try {
+            return job.parameters() != null
+                    ? objectMapper.readTree(job.parameters())
+                    : objectMapper.createObjectNode();
+        } catch (JsonProcessingException e) {
+            throw new PdfProcessingException("Invalid job parameters for job " + job.id(), e);
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package com.pdfutility.pdfcore.worker;
+
+import com.pdfutility.pdfcore.model.PdfJob;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.r2dbc.core.R2dbcEntityTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.util.List;
+
+/**
+ * Durable job queue backed by the pdf_jobs table.
+ * Jobs are persisted as PENDING before the caller gets an id back; local workers are woken up
+ * right away, workers on other nodes find the job on their next poll. With Kafka dispatch the job is
+ * also announced as a *.requested event and picked up by whichever replica owns the user's partition.
+ */
+@Slf4j
+@Component
+public class JobQueue {
+
+    private final R2dbcEntityTemplate entityTemplate;
+    private final TransactionalOperator transactionalOperator;
+    private final JobEventPublisher eventPublisher;
+    private final int maxAttempts;
+    private final Sinks.Many<PdfJob> submitted = Sinks.many().multicast().directBestEffort();
+
+    public JobQueue(R2dbcEntityTemplate entityTemplate,
+                    TransactionalOperator transactionalOperator,
+                    JobEventPublisher eventPublisher,
+                    @Value("${pdf.worker.max-attempts:3}") int maxAttempts) {
+        this.entityTemplate = entityTemplate;
+        this.transactionalOperator = transactionalOperator;
+        this.eventPublisher = eventPublisher;
+        this.maxAttempts = maxAttempts;
+    }
+
+    /**
+     * Persist a new job, signal local workers and announce it to the dispatch topic.
+     *
+     * @param job New job in PENDING state
+     * @return Saved job
+     */
+    public Mono<PdfJob> enqueue(PdfJob job) {
+        return entityTemplate.insert(job.withMaxAttempts(maxAttempts))
+                .doOnSuccess(saved -> {
+                    log.debug("Enqueued {} job: {}", saved.jobType(), saved.id());
+                    submitted.tryEmitNext(saved);
+                })
+                .flatMap(saved -> eventPublisher.publishRequested(saved).thenReturn(saved));
+    }
+
+    /**
+     * Persist a batch and its children in one transaction, so a batch is never visible with only some of them,
+     * then signal local workers and announce each child.
+     *
+     * @param batch New batch parent
+     * @param children New children in PENDING state, pointing at the parent
+     * @return Saved batch
+     */
+    public Mono<PdfJob> enqueueBatch(PdfJob batch, List<PdfJob> children) {
+        return entityTemplate.insert(batch)
+                .thenMany(Flux.fromIterable(children)
+                        .concatMap(child -> entityTemplate.insert(child.withMaxAttempts(maxAttempts))))
+                .collectList()
+                .as(transactionalOperator::transactional)
+                .flatMapMany(Flux::fromIterable)
+                .doOnNext(submitted::tryEmitNext)
+                .concatMap(eventPublisher::publishRequested)
+                .then(Mono.fromSupplier(() -> {
+                    log.debug("Enqueued batch {} with {} jobs", batch.id(), children.size());
+                    return batch;
+                }));
+    }
+
+    /**
+     * Signals emitted whenever a job is enqueued on this node.
+     */
+    Flux<PdfJob> submissions() {
+        return submitted.asFlux();
+    }
+}
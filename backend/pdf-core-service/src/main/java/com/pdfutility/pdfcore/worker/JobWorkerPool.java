@@ -0,0 +1,242 @@
+package com.pdfutility.pdfcore.worker;
+
+import com.pdfutility.common.exception.ProcessingCapacityException;
+import com.pdfutility.pdfcore.model.JobType;
+import com.pdfutility.pdfcore.model.PdfJob;
+import com.pdfutility.pdfcore.repository.PdfJobRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Pool of job workers draining the durable queue.
+ * Each worker claims one PENDING job at a time with a compare-and-set on its row, runs its handler
+ * and records the outcome. The per-node worker count bounds how many jobs this instance processes at once,
+ * whether they were claimed by a polling worker or by {@link KafkaJobDispatcher}: both run jobs in the same
+ * worker slots. Any number of instances can drain the same queue without processing a job twice.
+ * While jobs run, the node heartbeats them so {@link StaleJobReaper} can tell live jobs from lost ones.
+ * Before a job starts, {@link AdmissionController} reserves its estimated memory on this node.
+ * Which pending job is claimed next is up to {@link FairJobScheduler}, so users and lanes share the workers.
+ * Jobs that are part of a batch report their outcome to {@link BatchTracker}.
+ */
+@Slf4j
+@Component
+public class JobWorkerPool implements SmartLifecycle {
+
+    private final PdfJobRepository jobRepository;
+    private final JobQueue jobQueue;
+    private final JobEventPublisher eventPublisher;
+    private final AdmissionController admissionController;
+    private final FairJobScheduler scheduler;
+    private final BatchTracker batchTracker;
+    private final Map<JobType, JobHandler> handlers = new EnumMap<>(JobType.class);
+    private final boolean enabled;
+    private final int workerCount;
+    private final Duration pollInterval;
+    private final Duration jobTimeout;
+    private final Duration heartbeatInterval;
+    private final Duration pollFallbackDelay;
+    private final String nodeId;
+    private final Set<String> ownedJobs = ConcurrentHashMap.newKeySet();
+    private final Semaphore slots;
+    private final Sinks.Many<Boolean> slotReleased = Sinks.many().multicast().directBestEffort();
+
+    private volatile boolean running;
+    private Disposable workers;
+
+    public JobWorkerPool(PdfJobRepository jobRepository,
+                         JobQueue jobQueue,
+                         JobEventPublisher eventPublisher,
+                         AdmissionController admissionController,
+                         FairJobScheduler scheduler,
+                         BatchTracker batchTracker,
+                         List<JobHandler> jobHandlers,
+                         @Value("${pdf.worker.enabled:true}") boolean enabled,
+                         @Value("${pdf.worker.count:4}") int workerCount,
+                         @Value("${pdf.worker.poll-interval:2s}") Duration pollInterval,
+                         @Value("${pdf.worker.job-timeout:10m}") Duration jobTimeout,
+                         @Value("${pdf.worker.heartbeat-interval:10s}") Duration heartbeatInterval,
+                         @Value("${pdf.worker.kafka.poll-fallback-delay:1m}") Duration pollFallbackDelay,
+                         @Value("${pdf.worker.node-id:}") String nodeId) {
+        this.jobRepository = jobRepository;
+        this.jobQueue = jobQueue;
+        this.eventPublisher = eventPublisher;
+        this.admissionController = admissionController;
+        this.scheduler = scheduler;
+        this.batchTracker = batchTracker;
+        this.enabled = enabled;
+        this.workerCount = workerCount;
+        this.slots = new Semaphore(workerCount);
+        this.pollInterval = pollInterval;
+        this.jobTimeout = jobTimeout;
+        this.heartbeatInterval = heartbeatInterval;
+        // With Kafka dispatch, polling only picks up jobs whose event was lost or never consumed
+        this.pollFallbackDelay = eventPublisher.isEnabled() ? pollFallbackDelay : Duration.ZERO;
+        this.nodeId = nodeId.isBlank() ? defaultNodeId() : nodeId;
+        jobHandlers.forEach(handler -> handlers.put(handler.jobType(), handler));
+    }
+
+    @Override
+    public void start() {
+        if (!enabled || running) {
+            return;
+        }
+        running = true;
+        workers = Flux.range(0, workerCount)
+                .flatMap(this::runWorker, workerCount)
+                .mergeWith(runHeartbeat())
+                .subscribe();
+        log.info("Started {} job workers on node {} for {}", workerCount, nodeId, handlers.keySet());
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        if (workers != null) {
+            workers.dispose();
+        }
+        log.info("Job workers stopped");
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * Worker loop: claim and process jobs back to back while there are any, otherwise idle until
+     * the poll interval elapses or a job is enqueued locally. A worker whose slot is taken by a dispatched
+     * job idles as well.
+     */
+    private Mono<Void> runWorker(int workerId) {
+        return Mono.defer(() -> slots.tryAcquire()
+                        ? claimAndExecute(LocalDateTime.now().minus(pollFallbackDelay)).doFinally(signal -> releaseSlot())
+                        : Mono.just(false))
+                .filter(executed -> executed)
+                .switchIfEmpty(Mono.defer(this::idle).thenReturn(false))
+                .onErrorResume(e -> {
+                    log.error("Job worker {} failed to claim a job", workerId, e);
+                    return idle().thenReturn(false);
+                })
+                .repeat(() -> running)
+                .then();
+    }
+
+    /**
+     * Wait for a free worker slot on this node, then claim the next job and run it in that slot.
+     * Used by dispatchers other than the polling workers, so jobs claimed either way share the worker count.
+     *
+     * @return Whether a job was claimed
+     */
+    Mono<Boolean> dispatch(LocalDateTime pendingBefore) {
+        return Mono.usingWhen(acquireSlot(),
+                slot -> claimAndExecute(pendingBefore),
+                slot -> Mono.fromRunnable(this::releaseSlot));
+    }
+
+    /**
+     * Claim the next job for this node, as chosen by the fair scheduler among the jobs pending since
+     * {@code pendingBefore}, and run it.
+     */
+    private Mono<Boolean> claimAndExecute(LocalDateTime pendingBefore) {
+        return scheduler.claimNext(nodeId, LocalDateTime.now(), pendingBefore)
+                .flatMap(job -> execute(job).thenReturn(true))
+                .defaultIfEmpty(false);
+    }
+
+    /**
+     * Run a claimed job to completion and record the outcome.
+     */
+    private Mono<Void> execute(PdfJob job) {
+        JobHandler handler = handlers.get(job.jobType());
+        if (handler == null) {
+            return fail(job, "No handler for job type " + job.jobType());
+        }
+
+        log.debug("Processing {} job {} (attempt {}/{})", job.jobType(), job.id(), job.attempts(), job.maxAttempts());
+        // Jobs wait for memory while claimed, so they are heartbeated from the start
+        return admissionController.admit(job, handler::process)
+                .doFirst(() -> ownedJobs.add(job.id()))
+                .timeout(jobTimeout)
+                .flatMap(outputFileId -> jobRepository.markCompleted(job.id(), nodeId, outputFileId, LocalDateTime.now())
+                        .filter(updated -> updated > 0)
+                        .doOnNext(updated -> log.info("{} job {} completed", job.jobType(), job.id()))
+                        .flatMap(updated -> eventPublisher.publishCompleted(job, outputFileId)
+                                .then(batchTracker.childFinished(job))))
+                .onErrorResume(ProcessingCapacityException.class, error -> {
+                    // Saturated node or no memory: hand the job back so this or another node retries it after
+                    // the delay, which is kept on the row so the slot is free for other work meanwhile
+                    log.warn("{} job {} requeued: {}", job.jobType(), job.id(), error.getMessage());
+                    return jobRepository.requeue(job.id(), nodeId, LocalDateTime.now().plus(error.getRetryAfter()))
+                            .then(eventPublisher.publishRequested(job));
+                })
+                .onErrorResume(error -> {
+                    log.error("{} job {} failed", job.jobType(), job.id(), error);
+                    return fail(job, error.getMessage());
+                })
+                .doFinally(signal -> ownedJobs.remove(job.id()));
+    }
+
+    private Mono<Void> fail(PdfJob job, String errorMessage) {
+        return jobRepository.markFailed(job.id(), nodeId, errorMessage, LocalDateTime.now())
+                .filter(updated -> updated > 0)
+                .flatMap(updated -> eventPublisher.publishFailed(job, errorMessage)
+                        .then(batchTracker.childFinished(job)));
+    }
+
+    /**
+     * Heartbeat every job this node is running in a single statement per interval.
+     */
+    private Mono<Void> runHeartbeat() {
+        return Flux.interval(heartbeatInterval)
+                .filter(tick -> !ownedJobs.isEmpty())
+                .concatMap(tick -> jobRepository.heartbeat(List.copyOf(ownedJobs), nodeId, LocalDateTime.now())
+                        .onErrorResume(e -> {
+                            log.warn("Job heartbeat failed on node {}", nodeId, e);
+                            return Mono.empty();
+                        }))
+                .then();
+    }
+
+    private static String defaultNodeId() {
+        String host = System.getenv().getOrDefault("HOSTNAME", "pdf-core");
+        return host + "-" + UUID.randomUUID().toString().substring(0, 8);
+    }
+
+    private Mono<Boolean> acquireSlot() {
+        return Mono.fromCallable(slots::tryAcquire)
+                .filter(acquired -> acquired)
+                // Wait for a slot to be released, re-checking at the poll interval in case a signal was missed
+                .repeatWhenEmpty(attempts -> attempts.concatMap(attempt -> Mono.firstWithSignal(
+                                Mono.delay(pollInterval).then(),
+                                slotReleased.asFlux().next().then())
+                        .thenReturn(attempt)));
+    }
+
+    private void releaseSlot() {
+        slots.release();
+        slotReleased.tryEmitNext(true);
+    }
+
+    private Mono<Void> idle() {
+        return Mono.firstWithSignal(
+                        Mono.delay(pollInterval).then(),
+                        jobQueue.submissions().next().then())
+                .then();
+    }
+}
@@ -0,0 +1,122 @@
+package com.pdfutility.pdfcore.worker;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.kafka.KafkaProperties;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.kafka.support.serializer.ErrorHandlingDeserializer;
+import org.springframework.kafka.support.serializer.JsonDeserializer;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+import reactor.kafka.receiver.KafkaReceiver;
+import reactor.kafka.receiver.ReceiverOptions;
+import reactor.kafka.receiver.ReceiverRecord;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Consumes *.requested job events and runs a job for each.
+ * An event is a signal that work is pending rather than an order to run that particular job: the dispatcher
+ * claims whichever pending job {@link FairJobScheduler} picks, so a burst of events from one user does not
+ * push everybody else's jobs back. Each job is announced once, so every announced job is still run by some event.
+ * Records are processed one at a time per partition and the offset is committed only after the job's
+ * outcome has been recorded, so a crash replays the event and a job is claimed again. The claim itself
+ * is a compare-and-set on the pdf_jobs row, which makes redelivered or duplicate events harmless.
+ * Jobs run in the worker slots of {@link JobWorkerPool}: with more partitions assigned than slots, events
+ * wait for a slot, so the node never runs more jobs than its worker count.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "pdf.worker.dispatch", havingValue = JobEventPublisher.DISPATCH_KAFKA)
+public class KafkaJobDispatcher implements SmartLifecycle {
+
+    private final KafkaProperties kafkaProperties;
+    private final JobWorkerPool workerPool;
+    private final List<String> topics;
+    private final boolean enabled;
+
+    private volatile boolean running;
+    private Disposable subscription;
+
+    public KafkaJobDispatcher(KafkaProperties kafkaProperties,
+                              JobWorkerPool workerPool,
+                              List<JobHandler> jobHandlers,
+                              @Value("${pdf.worker.enabled:true}") boolean enabled) {
+        this.kafkaProperties = kafkaProperties;
+        this.workerPool = workerPool;
+        this.topics = jobHandlers.stream()
+                .map(handler -> JobEventPublisher.eventType(handler.jobType(), "requested"))
+                .toList();
+        this.enabled = enabled;
+    }
+
+    @Override
+    public void start() {
+        if (!enabled || running) {
+            return;
+        }
+        running = true;
+
+        Map<String, Object> properties = kafkaProperties.buildConsumerProperties(null);
+        properties.put(ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG, ErrorHandlingDeserializer.class);
+        properties.put(ErrorHandlingDeserializer.VALUE_DESERIALIZER_CLASS, JsonDeserializer.class);
+        properties.put(JsonDeserializer.USE_TYPE_INFO_HEADERS, false);
+        properties.put(JsonDeserializer.VALUE_DEFAULT_TYPE, JsonNode.class.getName());
+
+        ReceiverOptions<String, JsonNode> options = ReceiverOptions.<String, JsonNode>create(properties)
+                .subscription(topics);
+
+        subscription = KafkaReceiver.create(options)
+                .receive()
+                .groupBy(record -> record.receiverOffset().topicPartition())
+                .flatMap(partition -> partition.concatMap(this::dispatch))
+                .subscribe(
+                        null,
+                        error -> log.error("Kafka job dispatcher stopped", error));
+        log.info("Kafka job dispatcher subscribed to {}", topics);
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        if (subscription != null) {
+            subscription.dispose();
+        }
+        log.info("Kafka job dispatcher stopped");
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    private Mono<Void> dispatch(ReceiverRecord<String, JsonNode> record) {
+        String jobId = record.value() != null ? record.value().path("data").path("jobId").asText(null) : null;
+
+        Mono<Void> work = jobId == null
+                ? Mono.fromRunnable(() -> log.warn("Skipping unreadable job event at {}-{}@{}",
+                        record.topic(), record.partition(), record.offset()))
+                : workerPool.dispatch(LocalDateTime.now())
+                        .filter(executed -> !executed)
+                        .doOnNext(executed -> log.debug("No pending job left for event of job {}", jobId))
+                        .then();
+
+        return work
+                .onErrorResume(e -> {
+                    // The job stays PENDING and is picked up by the polling fallback
+                    log.error("Failed to dispatch on event for job {}", jobId, e);
+                    return Mono.empty();
+                })
+                .then(Mono.defer(() -> record.receiverOffset().commit()))
+                .onErrorResume(e -> {
+                    log.warn("Offset commit failed for {}-{}@{}", record.topic(), record.partition(), record.offset(), e);
+                    return Mono.empty();
+                });
+    }
+}
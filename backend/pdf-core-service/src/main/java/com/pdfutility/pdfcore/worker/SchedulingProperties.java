@@ -0,0 +1,68 @@
+package com.pdfutility.pdfcore.worker;
+
+import com.pdfutility.pdfcore.model.JobLane;
+import com.pdfutility.pdfcore.model.JobType;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Fair scheduling of pending jobs across lanes and users.
+ *
+ * @param enabled Whether workers claim jobs fairly; otherwise oldest first
+ * @param laneWeights Share of the workers each lane gets while all lanes have work
+ * @param jobCosts Relative cost of one input of a job, per job type
+ * @param defaultJobCost Cost for job types not listed
+ * @param maxCandidates Most (lane, user) queues considered per claim
+ * @param batchParallelism Most children of one batch in progress at once, across all nodes
+ */
+@ConfigurationProperties(prefix = "pdf.worker.scheduling")
+public record SchedulingProperties(
+        Boolean enabled,
+        Map<JobLane, Integer> laneWeights,
+        Map<JobType, Double> jobCosts,
+        Double defaultJobCost,
+        Integer maxCandidates,
+        Integer batchParallelism
+) {
+    public SchedulingProperties {
+        if (enabled == null) {
+            enabled = true;
+        }
+        Map<JobLane, Integer> weights = new EnumMap<>(JobLane.class);
+        weights.put(JobLane.ENTERPRISE, 4);
+        weights.put(JobLane.INTERACTIVE, 3);
+        weights.put(JobLane.BATCH, 1);
+        if (laneWeights != null) {
+            weights.putAll(laneWeights);
+        }
+        laneWeights = weights;
+        if (defaultJobCost == null) {
+            defaultJobCost = 1.0;
+        }
+        Map<JobType, Double> costs = new EnumMap<>(JobType.class);
+        costs.put(JobType.COMPRESS, 2.0);
+        if (jobCosts != null) {
+            costs.putAll(jobCosts);
+        }
+        jobCosts = costs;
+        if (maxCandidates == null || maxCandidates <= 0) {
+            maxCandidates = 1000;
+        }
+        if (batchParallelism == null || batchParallelism <= 0) {
+            batchParallelism = 4;
+        }
+    }
+
+    public int weight(JobLane lane) {
+        return Math.max(1, laneWeights.getOrDefault(lane, 1));
+    }
+
+    /**
+     * Estimated cost of a job, growing with its number of inputs.
+     */
+    public double cost(JobType jobType, int inputCount) {
+        return jobCosts.getOrDefault(jobType, defaultJobCost) * Math.max(1, inputCount);
+    }
+}
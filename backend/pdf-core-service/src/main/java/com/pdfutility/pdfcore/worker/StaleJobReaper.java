@@ -0,0 +1,63 @@
+package com.pdfutility.pdfcore.worker;
+
+import com.pdfutility.pdfcore.repository.PdfJobRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.EnableScheduling;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+
+/**
+ * Scheduled task that recovers jobs from workers that stopped heartbeating.
+ * Runs on every node; each stale row is moved by a single conditional UPDATE, so concurrent reapers
+ * cannot act on the same job twice. Jobs with attempts left go back to PENDING, the rest are failed.
+ */
+@Slf4j
+@Component
+@EnableScheduling
+public class StaleJobReaper {
+
+    private final PdfJobRepository jobRepository;
+    private final JobEventPublisher eventPublisher;
+    private final BatchTracker batchTracker;
+    private final Duration heartbeatTimeout;
+
+    public StaleJobReaper(PdfJobRepository jobRepository,
+                          JobEventPublisher eventPublisher,
+                          BatchTracker batchTracker,
+                          @Value("${pdf.worker.heartbeat-timeout:60s}") Duration heartbeatTimeout) {
+        this.jobRepository = jobRepository;
+        this.eventPublisher = eventPublisher;
+        this.batchTracker = batchTracker;
+        this.heartbeatTimeout = heartbeatTimeout;
+    }
+
+    @Scheduled(fixedDelayString = "${pdf.worker.reaper-interval:30s}")
+    public void reapStaleJobs() {
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime threshold = now.minus(heartbeatTimeout);
+
+        jobRepository.requeueStaleJobs(threshold, now)
+                .doOnNext(job -> log.warn("Requeued stale {} job {} (attempt {}/{})",
+                        job.jobType(), job.id(), job.attempts(), job.maxAttempts()))
+                .concatMap(job -> eventPublisher.publishRequested(job).thenReturn(job))
+                .count()
+                .zipWith(jobRepository.failExhaustedStaleJobs(threshold, now)
+                        .doOnNext(job -> log.error("Failed stale {} job {} after {} attempts",
+                                job.jobType(), job.id(), job.attempts()))
+                        .concatMap(job -> eventPublisher.publishFailed(job, job.errorMessage())
+                                .then(batchTracker.childFinished(job))
+                                .thenReturn(job))
+                        .count())
+                .subscribe(
+                        counts -> {
+                            if (counts.getT1() + counts.getT2() > 0) {
+                                log.info("Stale job reaper: {} requeued, {} failed", counts.getT1(), counts.getT2());
+                            }
+                        },
+                        error -> log.error("Stale job reaper failed", error));
+    }
+}
@@ -3,6 +3,8 @@ CREATE TABLE IF NOT EXISTS pdf_jobs (
     id VARCHAR(36) PRIMARY KEY,
     user_id VARCHAR(36) NOT NULL,
     job_type VARCHAR(50) NOT NULL,
+    lane VARCHAR(20) NOT NULL DEFAULT 'INTERACTIVE',
+    parent_id VARCHAR(36),
     status VARCHAR(20) NOT NULL DEFAULT 'PENDING',
     input_file_ids TEXT[] NOT NULL,
     output_file_id VARCHAR(36),
@@ -11,16 +13,40 @@ CREATE TABLE IF NOT EXISTS pdf_jobs (
     progress INTEGER DEFAULT 0,
     created_at TIMESTAMP NOT NULL DEFAULT NOW(),
     updated_at TIMESTAMP NOT NULL DEFAULT NOW(),
-    completed_at TIMESTAMP
+    completed_at TIMESTAMP,
+    attempts INTEGER NOT NULL DEFAULT 0,
+    max_attempts INTEGER NOT NULL DEFAULT 3,
+    worker_id VARCHAR(100),
+    heartbeat_at TIMESTAMP
 );
 
+-- Worker ownership columns for databases created before heartbeats
+ALTER TABLE pdf_jobs ADD COLUMN IF NOT EXISTS attempts INTEGER NOT NULL DEFAULT 0;
+ALTER TABLE pdf_jobs ADD COLUMN IF NOT EXISTS max_attempts INTEGER NOT NULL DEFAULT 3;
+ALTER TABLE pdf_jobs ADD COLUMN IF NOT EXISTS worker_id VARCHAR(100);
+ALTER TABLE pdf_jobs ADD COLUMN IF NOT EXISTS heartbeat_at TIMESTAMP;
+
+-- Scheduling lane for databases created before fair scheduling
+ALTER TABLE pdf_jobs ADD COLUMN IF NOT EXISTS lane VARCHAR(20) NOT NULL DEFAULT 'INTERACTIVE';
+
+-- Batch parent of a job, for databases created before batches
+ALTER TABLE pdf_jobs ADD COLUMN IF NOT EXISTS parent_id VARCHAR(36);
+
 -- Create index for user queries
 CREATE INDEX IF NOT EXISTS idx_pdf_jobs_user_id ON pdf_jobs(user_id);
 CREATE INDEX IF NOT EXISTS idx_pdf_jobs_status ON pdf_jobs(status);
+CREATE INDEX IF NOT EXISTS idx_pdf_jobs_pending ON pdf_jobs(created_at) WHERE status = 'PENDING';
+CREATE INDEX IF NOT EXISTS idx_pdf_jobs_pending_lane ON pdf_jobs(lane, user_id, created_at) WHERE status = 'PENDING';
+CREATE INDEX IF NOT EXISTS idx_pdf_jobs_heartbeat ON pdf_jobs(heartbeat_at) WHERE status = 'PROCESSING';
+CREATE INDEX IF NOT EXISTS idx_pdf_jobs_parent ON pdf_jobs(parent_id, created_at) WHERE parent_id IS NOT NULL;
+CREATE INDEX IF NOT EXISTS idx_pdf_jobs_parent_processing ON pdf_jobs(parent_id) WHERE status = 'PROCESSING';
 CREATE INDEX IF NOT EXISTS idx_pdf_jobs_created_at ON pdf_jobs(created_at DESC);
 
 -- PDF Job Status Enum Values
 -- PENDING, PROCESSING, COMPLETED, FAILED, CANCELLED
 
 -- PDF Job Type Enum Values
--- MERGE, SPLIT, COMPRESS, EDIT, CONVERT, ROTATE, PROTECT, UNLOCK, OCR, WATERMARK
+-- MERGE, SPLIT, COMPRESS, EDIT, CONVERT, ROTATE, PROTECT, UNLOCK, OCR, WATERMARK, BATCH
+
+-- PDF Job Lane Enum Values
+-- INTERACTIVE, BATCH, ENTERPRISE
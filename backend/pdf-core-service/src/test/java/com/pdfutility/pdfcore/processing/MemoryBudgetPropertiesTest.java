@@ -0,0 +1,49 @@
+package com.pdfutility.pdfcore.processing;
+
+import com.pdfutility.pdfcore.model.JobType;
+import com.pdfutility.pdfcore.processing.MemoryBudgetProperties.SizeClass;
+import org.junit.jupiter.api.Test;
+import org.springframework.util.unit.DataSize;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class MemoryBudgetPropertiesTest {
+
+    private static final long MB = DataSize.ofMegabytes(1).toBytes();
+
+    // Listed out of order, as they may be in configuration
+    private final MemoryBudgetProperties properties = new MemoryBudgetProperties(
+            DataSize.ofMegabytes(64),
+            Map.of(JobType.MERGE, DataSize.ofMegabytes(256)),
+            List.of(new SizeClass(DataSize.ofMegabytes(100), DataSize.ofMegabytes(128)),
+                    new SizeClass(DataSize.ofMegabytes(10), DataSize.ofMegabytes(32))));
+
+    @Test
+    void usesTheOperationBudgetOrTheDefault() {
+        assertThat(properties.budget(JobType.MERGE, 500 * MB)).isEqualTo(256 * MB);
+        assertThat(properties.budget(JobType.COMPRESS, 500 * MB)).isEqualTo(64 * MB);
+    }
+
+    @Test
+    void capsByTheSmallestSizeClassTheInputFits() {
+        assertThat(properties.budget(JobType.MERGE, 5 * MB)).isEqualTo(32 * MB);
+        assertThat(properties.budget(JobType.MERGE, 10 * MB)).isEqualTo(32 * MB);
+        assertThat(properties.budget(JobType.MERGE, 10 * MB + 1)).isEqualTo(128 * MB);
+    }
+
+    @Test
+    void sizeClassNeverRaisesTheOperationBudget() {
+        assertThat(properties.budget(JobType.COMPRESS, 50 * MB)).isEqualTo(64 * MB);
+    }
+
+    @Test
+    void appliesDefaultsWhenNothingIsConfigured() {
+        MemoryBudgetProperties defaults = new MemoryBudgetProperties(null, null, null);
+
+        assertThat(defaults.budget(JobType.MERGE, 0)).isEqualTo(64 * MB);
+        assertThat(defaults.budget(JobType.COMPRESS, 1024 * MB)).isEqualTo(64 * MB);
+    }
+}
@@ -0,0 +1,119 @@
+package com.pdfutility.pdfcore.worker;
+
+import com.pdfutility.common.exception.ProcessingCapacityException;
+import com.pdfutility.pdfcore.model.JobType;
+import com.pdfutility.pdfcore.model.PdfJob;
+import com.pdfutility.pdfcore.service.StorageClient;
+import com.pdfutility.pdfcore.service.StorageClient.FileMetadata;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.util.unit.DataSize;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class AdmissionControllerTest {
+
+    private final List<String> started = new CopyOnWriteArrayList<>();
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private AdmissionController admission;
+
+    @BeforeEach
+    void setUp() {
+        // Input file ids are their sizes, and a working set is the size of the input
+        StorageClient storageClient = mock(StorageClient.class);
+        when(storageClient.getFileMetadata(anyString())).thenAnswer(invocation -> {
+            String fileId = invocation.getArgument(0);
+            return Mono.just(new FileMetadata(fileId, fileId + ".pdf", "application/pdf", Long.parseLong(fileId), null));
+        });
+        AdmissionProperties properties = new AdmissionProperties(true, DataSize.ofBytes(100), DataSize.ofBytes(1),
+                Duration.ofMillis(100), Duration.ofSeconds(1), Map.of(), 1.0);
+        admission = new AdmissionController(properties, storageClient, meterRegistry);
+    }
+
+    private static PdfJob job(String id, long inputBytes) {
+        return PdfJob.createNew(id, "user", JobType.EDIT, List.of(Long.toString(inputBytes)), "{}");
+    }
+
+    /**
+     * Admit a job that records its start and runs until {@code done} completes.
+     */
+    private Disposable run(PdfJob job, Sinks.Empty<Void> done) {
+        return admission.admit(job, admitted -> {
+            started.add(admitted.id());
+            return done.asMono().thenReturn(admitted.id());
+        }).subscribe(id -> { }, e -> { });
+    }
+
+    private double gauge(String name) {
+        return meterRegistry.get(name).gauge().value();
+    }
+
+    @Test
+    void grantsWaitingJobsInArrivalOrder() {
+        Sinks.Empty<Void> first = Sinks.empty();
+        run(job("a", 60), first);
+        run(job("b", 60), Sinks.empty());
+        // Would fit next to the first job, but must not overtake the one waiting ahead of it
+        run(job("c", 30), Sinks.empty());
+
+        assertThat(started).containsExactly("a");
+        assertThat(gauge("pdf.admission.waiting")).isEqualTo(2);
+
+        first.tryEmitEmpty();
+
+        assertThat(started).containsExactly("a", "b", "c");
+        assertThat(gauge("pdf.admission.reserved.bytes")).isEqualTo(90);
+        assertThat(gauge("pdf.admission.waiting")).isZero();
+    }
+
+    @Test
+    void cancelledWaiterLetsTheJobsBehindItIn() {
+        Sinks.Empty<Void> first = Sinks.empty();
+        Sinks.Empty<Void> last = Sinks.empty();
+        run(job("a", 60), first);
+        Disposable waiting = run(job("b", 60), Sinks.empty());
+        run(job("c", 30), last);
+
+        waiting.dispose();
+
+        assertThat(started).containsExactly("a", "c");
+        assertThat(gauge("pdf.admission.reserved.bytes")).isEqualTo(90);
+        assertThat(gauge("pdf.admission.waiting")).isZero();
+
+        first.tryEmitEmpty();
+        last.tryEmitEmpty();
+
+        assertThat(gauge("pdf.admission.reserved.bytes")).isZero();
+    }
+
+    @Test
+    void timedOutWaiterFailsWithoutKeepingAReservation() {
+        Sinks.Empty<Void> first = Sinks.empty();
+        run(job("a", 60), first);
+
+        StepVerifier.create(admission.admit(job("b", 60), admitted -> Mono.just(admitted.id())))
+                .expectError(ProcessingCapacityException.class)
+                .verify(Duration.ofSeconds(5));
+
+        assertThat(meterRegistry.get("pdf.admission.timeouts").counter().count()).isEqualTo(1);
+        assertThat(gauge("pdf.admission.waiting")).isZero();
+        assertThat(gauge("pdf.admission.reserved.bytes")).isEqualTo(60);
+
+        first.tryEmitEmpty();
+
+        assertThat(gauge("pdf.admission.reserved.bytes")).isZero();
+    }
+}
@@ -0,0 +1,126 @@
+package com.pdfutility.pdfcore.worker;
+
+import com.pdfutility.pdfcore.model.JobLane;
+import com.pdfutility.pdfcore.model.JobType;
+import com.pdfutility.pdfcore.model.PdfJob;
+import com.pdfutility.pdfcore.repository.PdfJobRepository;
+import com.pdfutility.pdfcore.repository.PdfJobRepository.PendingJobHead;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class FairJobSchedulerTest {
+
+    private static final LocalDateTime NOW = LocalDateTime.of(2024, 1, 1, 12, 0);
+
+    private final PdfJobRepository jobRepository = mock(PdfJobRepository.class);
+    private final TransactionalOperator transactionalOperator = mock(TransactionalOperator.class);
+    private final Set<String> full = ConcurrentHashMap.newKeySet();
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        // Claims succeed unless the job belongs to a batch marked as full
+        when(jobRepository.claimPendingJob(anyString(), anyString(), any(), anyInt())).thenAnswer(invocation -> {
+            String id = invocation.getArgument(0);
+            return full.contains(id) ? Mono.empty()
+                    : Mono.just(PdfJob.createNew(id, "user", JobType.EDIT, List.of("file"), "{}"));
+        });
+        when(jobRepository.lockBatch(anyString())).thenAnswer(invocation -> Mono.just(invocation.getArgument(0)));
+        when(transactionalOperator.transactional(any(Mono.class))).thenAnswer(invocation -> invocation.getArgument(0));
+    }
+
+    private FairJobScheduler scheduler(boolean enabled) {
+        return new FairJobScheduler(jobRepository, new SchedulingProperties(enabled, null, null, null, null, null),
+                transactionalOperator, new SimpleMeterRegistry());
+    }
+
+    private static PendingJobHead head(String id, String userId, JobLane lane, JobType jobType, int inputCount) {
+        return new PendingJobHead(id, userId, lane, jobType, null, NOW, inputCount);
+    }
+
+    private void pending(PendingJobHead... heads) {
+        when(jobRepository.findPendingJobHeads(any(), anyInt(), anyInt())).thenReturn(Flux.just(heads));
+    }
+
+    private List<String> claims(FairJobScheduler scheduler, int count) {
+        return IntStream.range(0, count)
+                .mapToObj(i -> scheduler.claimNext("worker", NOW, NOW).map(PdfJob::id).block())
+                .toList();
+    }
+
+    @Test
+    void sharesWorkersBetweenLanesByWeight() {
+        // Every lane keeps a backlog, so each claim finds the same heads
+        pending(head("enterprise", "a", JobLane.ENTERPRISE, JobType.EDIT, 1),
+                head("interactive", "b", JobLane.INTERACTIVE, JobType.EDIT, 1),
+                head("batch", "c", JobLane.BATCH, JobType.EDIT, 1));
+
+        Map<String, Long> counts = claims(scheduler(true), 80).stream()
+                .collect(Collectors.groupingBy(Function.identity(), Collectors.counting()));
+
+        assertThat(counts.get("enterprise")).isCloseTo(40L, within(1L));
+        assertThat(counts.get("interactive")).isCloseTo(30L, within(1L));
+        assertThat(counts.get("batch")).isCloseTo(10L, within(1L));
+    }
+
+    @Test
+    void chargesUsersTheCostOfTheirJobs() {
+        // A merge of four files costs four single-file edits
+        pending(head("merge", "heavy", JobLane.INTERACTIVE, JobType.MERGE, 4),
+                head("edit", "light", JobLane.INTERACTIVE, JobType.EDIT, 1));
+
+        assertThat(claims(scheduler(true), 10)).containsExactly(
+                "merge", "edit", "edit", "edit", "edit",
+                "merge", "edit", "edit", "edit", "edit");
+    }
+
+    @Test
+    void claimsOldestFirstWhenFairSchedulingIsDisabled() {
+        pending(new PendingJobHead("newer", "a", JobLane.ENTERPRISE, JobType.EDIT, null, NOW, 1),
+                new PendingJobHead("older", "b", JobLane.BATCH, JobType.EDIT, null, NOW.minusMinutes(1), 1));
+
+        assertThat(claims(scheduler(false), 1)).containsExactly("older");
+    }
+
+    @Test
+    void claimsBatchChildrenUnderTheBatchLockAndSkipsFullBatches() {
+        full.add("child");
+        pending(new PendingJobHead("child", "a", JobLane.BATCH, JobType.EDIT, "batch", NOW.minusMinutes(1), 1),
+                head("single", "b", JobLane.INTERACTIVE, JobType.EDIT, 1));
+
+        assertThat(claims(scheduler(false), 1)).containsExactly("single");
+        verify(jobRepository).lockBatch("batch");
+        verify(transactionalOperator).transactional(any(Mono.class));
+    }
+
+    @Test
+    void claimsSingleJobsWithoutTakingALock() {
+        pending(head("single", "a", JobLane.INTERACTIVE, JobType.EDIT, 1));
+
+        assertThat(claims(scheduler(true), 1)).containsExactly("single");
+        verify(jobRepository, never()).lockBatch(anyString());
+    }
+}
@@ -1,6 +1,7 @@
 package com.pdfutility.storage.controller;
 
 import com.pdfutility.common.dto.ApiResponse;
+import com.pdfutility.common.exception.StorageException;
 import com.pdfutility.storage.dto.StorageDto.*;
 import com.pdfutility.storage.service.FileStorageService;
 import io.swagger.v3.oas.annotations.Operation;
@@ -8,17 +9,18 @@ import io.swagger.v3.oas.annotations.tags.Tag;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.core.io.buffer.DataBuffer;
-import org.springframework.core.io.buffer.DefaultDataBufferFactory;
-import org.springframework.http.HttpHeaders;
+import org.springframework.http.ContentDisposition;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.http.codec.multipart.FilePart;
+import org.springframework.http.server.reactive.ServerHttpResponse;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ServerWebExchange;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
-import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 import java.time.Duration;
 
 /**
@@ -32,6 +34,7 @@ import java.time.Duration;
 public class FileController {
 
     private final FileStorageService storageService;
+    private final FileContentWriter contentWriter;
 
     /**
      * Upload a file.
@@ -52,26 +55,61 @@ public class FileController {
     }
 
     /**
-     * Download a file.
+     * Negotiate an upload by checksum. Content the caller already stored is linked without a transfer (201);
+     * otherwise the client is told to upload the bytes (200).
+     */
+    @PostMapping("/negotiate")
+    @Operation(summary = "Negotiate upload", description = "Create a file from content you already stored, by its SHA-256")
+    public Mono<ResponseEntity<ApiResponse<UploadNegotiationResponse>>> negotiateUpload(
+            @RequestBody UploadNegotiationRequest request,
+            @RequestHeader("X-User-Id") String userId) {
+
+        return storageService.negotiateUpload(request, userId)
+                .map(response -> ResponseEntity.status(response.isContentKnown() ? HttpStatus.CREATED : HttpStatus.OK)
+                        .body(ApiResponse.success(response)))
+                .onErrorResume(e -> Mono.just(ResponseEntity.badRequest()
+                        .body(ApiResponse.error(e.getMessage()))));
+    }
+
+    /**
+     * Create a file from an existing file with bytes appended, sending only the appended bytes.
+     */
+    @PostMapping(value = "/{fileId}/append", consumes = MediaType.APPLICATION_OCTET_STREAM_VALUE)
+    @Operation(summary = "Append to file", description = "Store a new file made of an existing file followed by the request body")
+    public Mono<ResponseEntity<ApiResponse<FileUploadResponse>>> appendToFile(
+            @PathVariable String fileId,
+            @RequestParam String fileName,
+            @RequestParam long baseSize,
+            @RequestParam(required = false) String checksum,
+            @RequestBody Flux<DataBuffer> content,
+            @RequestHeader("X-User-Id") String userId) {
+
+        return storageService.appendContent(fileId, baseSize, content, fileName, userId, checksum)
+                .map(response -> ResponseEntity.status(HttpStatus.CREATED)
+                        .body(ApiResponse.success(response, "File uploaded successfully")))
+                .timeout(Duration.ofMinutes(5))
+                .onErrorResume(StorageException.class, e -> Mono.just(ResponseEntity.badRequest()
+                        .body(ApiResponse.error(e.getMessage()))));
+    }
+
+    /**
+     * Download a file. Supports conditional requests and byte ranges.
      */
     @GetMapping("/{fileId}/download")
     @Operation(summary = "Download file", description = "Download a file from storage")
-    public Mono<ResponseEntity<Flux<DataBuffer>>> downloadFile(
-            @PathVariable String fileId) {
-
-        return storageService.getFileInfo(fileId)
-                .flatMap(info -> 
-                    storageService.downloadFile(fileId)
-                            .map(content -> {
-                                DataBuffer buffer = new DefaultDataBufferFactory().wrap(content);
-                                return ResponseEntity.ok()
-                                        .header(HttpHeaders.CONTENT_DISPOSITION, 
-                                                "attachment; filename=\"" + info.getFileName() + "\"")
-                                        .header(HttpHeaders.CONTENT_TYPE, info.getContentType())
-                                        .header(HttpHeaders.CONTENT_LENGTH, String.valueOf(info.getSizeBytes()))
-                                        .body(Flux.just(buffer));
-                            }))
-                .defaultIfEmpty(ResponseEntity.notFound().build());
+    public Mono<Void> downloadFile(
+            @PathVariable String fileId,
+            ServerWebExchange exchange) {
+
+        ServerHttpResponse response = exchange.getResponse();
+        return storageService.openFile(fileId)
+                .flatMap(file -> {
+                    response.getHeaders().setContentDisposition(ContentDisposition.attachment()
+                            .filename(file.info().getFileName(), StandardCharsets.UTF_8)
+                            .build());
+                    response.getHeaders().setContentType(MediaType.parseMediaType(file.info().getContentType()));
+                    return contentWriter.write(file, exchange);
+                });
     }
 
     /**
@@ -79,17 +117,15 @@ public class FileController {
      */
     @GetMapping("/{fileId}/content")
     @Operation(summary = "Get file content", description = "Get raw file content")
-    public Mono<ResponseEntity<Flux<DataBuffer>>> getFileContent(
-            @PathVariable String fileId) {
+    public Mono<Void> getFileContent(
+            @PathVariable String fileId,
+            ServerWebExchange exchange) {
 
-        return storageService.downloadFile(fileId)
-                .map(content -> {
-                    DataBuffer buffer = new DefaultDataBufferFactory().wrap(content);
-                    return ResponseEntity.ok()
-                            .contentType(MediaType.APPLICATION_OCTET_STREAM)
-                            .body(Flux.just(buffer));
-                })
-                .defaultIfEmpty(ResponseEntity.notFound().build());
+        return storageService.openFile(fileId)
+                .flatMap(file -> {
+                    exchange.getResponse().getHeaders().setContentType(MediaType.APPLICATION_OCTET_STREAM);
+                    return contentWriter.write(file, exchange);
+                });
     }
 
     /**
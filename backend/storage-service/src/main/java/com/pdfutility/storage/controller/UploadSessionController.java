@@ -0,0 +1,105 @@
+package com.pdfutility.storage.controller;
+
+import com.pdfutility.common.dto.ApiResponse;
+import com.pdfutility.common.exception.StorageException;
+import com.pdfutility.storage.dto.StorageDto.*;
+import com.pdfutility.storage.service.ChunkedUploadService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Resumable Upload Controller - chunked uploads that survive dropped connections.
+ */
+@Slf4j
+@RestController
+@RequestMapping("/api/v1/files/uploads")
+@RequiredArgsConstructor
+@Tag(name = "Resumable Uploads", description = "Chunked, resumable and parallel file uploads")
+public class UploadSessionController {
+
+    private final ChunkedUploadService uploadService;
+
+    /**
+     * Start an upload session.
+     */
+    @PostMapping
+    @Operation(summary = "Create upload session", description = "Start a resumable chunked upload")
+    public Mono<ResponseEntity<ApiResponse<UploadSessionResponse>>> createSession(
+            @RequestBody UploadSessionRequest request,
+            @RequestHeader("X-User-Id") String userId) {
+
+        return uploadService.createSession(request, userId)
+                .map(response -> ResponseEntity.status(HttpStatus.CREATED)
+                        .body(ApiResponse.success(response, "Upload session created")))
+                .onErrorResume(StorageException.class, e -> Mono.just(ResponseEntity.badRequest()
+                        .body(ApiResponse.error(e.getMessage()))));
+    }
+
+    /**
+     * Upload one chunk. Chunks may be sent in any order and in parallel.
+     */
+    @PutMapping("/{uploadId}/chunks/{index}")
+    @Operation(summary = "Upload chunk", description = "Write a chunk at its offset in the upload")
+    public Mono<ResponseEntity<ApiResponse<UploadSessionResponse>>> uploadChunk(
+            @PathVariable String uploadId,
+            @PathVariable int index,
+            @RequestBody Flux<DataBuffer> content,
+            @RequestHeader("X-User-Id") String userId) {
+
+        return uploadService.writeChunk(uploadId, index, content, userId)
+                .map(response -> ResponseEntity.ok(ApiResponse.success(response)))
+                .onErrorResume(StorageException.class, e -> Mono.just(ResponseEntity.badRequest()
+                        .body(ApiResponse.error(e.getMessage()))));
+    }
+
+    /**
+     * Get the session state, including the chunks received so far.
+     */
+    @GetMapping("/{uploadId}")
+    @Operation(summary = "Get upload session", description = "List the chunks that have been received")
+    public Mono<ResponseEntity<ApiResponse<UploadSessionResponse>>> getSession(
+            @PathVariable String uploadId,
+            @RequestHeader("X-User-Id") String userId) {
+
+        return uploadService.getSession(uploadId, userId)
+                .map(response -> ResponseEntity.ok(ApiResponse.success(response)));
+    }
+
+    /**
+     * Commit the upload once every chunk has been received.
+     */
+    @PostMapping("/{uploadId}/commit")
+    @Operation(summary = "Commit upload", description = "Assemble the chunks and verify the checksum")
+    public Mono<ResponseEntity<ApiResponse<FileUploadResponse>>> commit(
+            @PathVariable String uploadId,
+            @RequestBody(required = false) UploadCommitRequest request,
+            @RequestHeader("X-User-Id") String userId) {
+
+        return uploadService.commit(uploadId, request, userId)
+                .map(response -> ResponseEntity.status(HttpStatus.CREATED)
+                        .body(ApiResponse.success(response, "File uploaded successfully")))
+                .onErrorResume(StorageException.class, e -> Mono.just(ResponseEntity.badRequest()
+                        .body(ApiResponse.error(e.getMessage()))));
+    }
+
+    /**
+     * Abort the upload.
+     */
+    @DeleteMapping("/{uploadId}")
+    @Operation(summary = "Abort upload", description = "Discard the upload session and its chunks")
+    public Mono<ResponseEntity<ApiResponse<Void>>> abort(
+            @PathVariable String uploadId,
+            @RequestHeader("X-User-Id") String userId) {
+
+        return uploadService.abort(uploadId, userId)
+                .then(Mono.just(ResponseEntity.ok(ApiResponse.<Void>success(null, "Upload aborted"))));
+    }
+}
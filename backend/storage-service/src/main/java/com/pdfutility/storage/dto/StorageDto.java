@@ -2,6 +2,7 @@ package com.pdfutility.storage.dto;
 
 import lombok.Builder;
 import lombok.Value;
+import lombok.extern.jackson.Jacksonized;
 
 import java.time.LocalDateTime;
 
@@ -24,6 +25,67 @@ public final class StorageDto {
         LocalDateTime expiresAt;
     }
 
+    /**
+     * Hash-first upload: announces content by its SHA-256 before any bytes are sent.
+     * The checksum may be Base64 or hex encoded.
+     */
+    @Value
+    @Builder
+    @Jacksonized
+    public static class UploadNegotiationRequest {
+        String checksum;
+        Long sizeBytes;
+        String fileName;
+        String contentType;
+        Boolean temporary;
+    }
+
+    /**
+     * Outcome of a hash-first upload. When the content is already stored the file is created
+     * from it and returned; otherwise the client uploads the bytes to uploadUrl.
+     */
+    @Value
+    @Builder
+    public static class UploadNegotiationResponse {
+        boolean contentKnown;
+        FileUploadResponse file;
+        String uploadUrl;
+    }
+
+    /**
+     * Start of a resumable chunked upload. The checksum, if given, is verified on commit.
+     */
+    @Value
+    @Builder
+    @Jacksonized
+    public static class UploadSessionRequest {
+        String fileName;
+        String contentType;
+        Long sizeBytes;
+        Long chunkSize;
+        String checksum;
+        Boolean temporary;
+    }
+
+    @Value
+    @Builder
+    public static class UploadSessionResponse {
+        String uploadId;
+        String fileName;
+        Long sizeBytes;
+        Long chunkSize;
+        Integer totalChunks;
+        java.util.List<Integer> receivedChunks;
+        LocalDateTime expiresAt;
+    }
+
+    @Value
+    @Builder
+    @Jacksonized
+    public static class UploadCommitRequest {
+        String checksum;
+    }
+
     @Value
     @Builder
     public static class FileInfoResponse {
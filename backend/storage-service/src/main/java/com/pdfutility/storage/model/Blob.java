@@ -0,0 +1,41 @@
+package com.pdfutility.storage.model;
+
+import lombok.Builder;
+import lombok.With;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.relational.core.mapping.Column;
+import org.springframework.data.relational.core.mapping.Table;
+
+import java.time.LocalDateTime;
+
+/**
+ * Content-addressed blob entity - R2DBC compatible.
+ * One row per distinct checksum; file rows reference it and ref_count tracks how many do.
+ */
+@Table("blobs")
+@Builder
+@With
+public record Blob(
+        @Id
+        @Column("checksum")
+        String checksum,
+
+        @Column("size_bytes")
+        Long sizeBytes,
+
+        @Column("storage_provider")
+        String storageProvider,
+
+        @Column("storage_path")
+        String storagePath,
+
+        @Column("ref_count")
+        Integer refCount,
+
+        @Column("created_at")
+        LocalDateTime createdAt,
+
+        @Column("updated_at")
+        LocalDateTime updatedAt
+) {
+}
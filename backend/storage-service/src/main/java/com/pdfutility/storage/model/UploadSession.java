@@ -0,0 +1,94 @@
+package com.pdfutility.storage.model;
+
+import lombok.Builder;
+import lombok.With;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.relational.core.mapping.Column;
+import org.springframework.data.relational.core.mapping.Table;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * Resumable upload session entity - R2DBC compatible.
+ * Chunks are written to a sparse temp file on the node that owns the session; this row tracks the layout.
+ */
+@Table("upload_sessions")
+@Builder
+@With
+public record UploadSession(
+        @Id
+        String id,
+
+        @Column("user_id")
+        String userId,
+
+        @Column("file_name")
+        String fileName,
+
+        @Column("content_type")
+        String contentType,
+
+        @Column("size_bytes")
+        Long sizeBytes,
+
+        @Column("chunk_size")
+        Long chunkSize,
+
+        @Column("checksum")
+        String checksum,
+
+        @Column("is_temporary")
+        Boolean isTemporary,
+
+        @Column("status")
+        String status,
+
+        @Column("expires_at")
+        LocalDateTime expiresAt,
+
+        @Column("created_at")
+        LocalDateTime createdAt,
+
+        @Column("updated_at")
+        LocalDateTime updatedAt
+) {
+    public static final String STATUS_OPEN = "OPEN";
+    public static final String STATUS_COMMITTING = "COMMITTING";
+
+    public static UploadSession create(String userId, String fileName, String contentType, long sizeBytes,
+                                       long chunkSize, String checksum, boolean isTemporary,
+                                       LocalDateTime expiresAt) {
+        LocalDateTime now = LocalDateTime.now();
+        return UploadSession.builder()
+                .id(UUID.randomUUID().toString())
+                .userId(userId)
+                .fileName(fileName)
+                .contentType(contentType)
+                .sizeBytes(sizeBytes)
+                .chunkSize(chunkSize)
+                .checksum(checksum)
+                .isTemporary(isTemporary)
+                .status(STATUS_OPEN)
+                .expiresAt(expiresAt)
+                .createdAt(now)
+                .updatedAt(now)
+                .build();
+    }
+
+    public int totalChunks() {
+        return sizeBytes == 0 ? 1 : (int) ((sizeBytes + chunkSize - 1) / chunkSize);
+    }
+
+    public long chunkOffset(int index) {
+        return index * chunkSize;
+    }
+
+    public long chunkLength(int index) {
+        return Math.min(chunkSize, sizeBytes - chunkOffset(index));
+    }
+
+    public boolean isExpired() {
+        return expiresAt.isBefore(LocalDateTime.now());
+    }
+}
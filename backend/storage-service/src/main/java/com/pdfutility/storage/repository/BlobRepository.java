@@ -0,0 +1,35 @@
+package com.pdfutility.storage.repository;
+
+import com.pdfutility.storage.model.Blob;
+import org.springframework.data.r2dbc.repository.Modifying;
+import org.springframework.data.r2dbc.repository.Query;
+import org.springframework.data.repository.reactive.ReactiveCrudRepository;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Mono;
+
+/**
+ * Blob Repository - R2DBC (Reactive).
+ * Reference counts are only changed through single-statement updates so concurrent uploads
+ * and deletes of the same content never lose an increment.
+ */
+@Repository
+public interface BlobRepository extends ReactiveCrudRepository<Blob, String> {
+
+    @Query("""
+            INSERT INTO blobs (checksum, size_bytes, storage_provider, storage_path, ref_count, created_at, updated_at)
+            VALUES (:checksum, :sizeBytes, :storageProvider, :storagePath, 1, NOW(), NOW())
+            ON CONFLICT (checksum) DO UPDATE SET ref_count = blobs.ref_count + 1, updated_at = NOW()
+            RETURNING *
+            """)
+    Mono<Blob> insertOrAcquire(String checksum, Long sizeBytes, String storageProvider, String storagePath);
+
+    @Query("UPDATE blobs SET ref_count = ref_count + 1, updated_at = NOW() WHERE checksum = :checksum RETURNING *")
+    Mono<Blob> acquire(String checksum);
+
+    @Query("UPDATE blobs SET ref_count = ref_count - 1, updated_at = NOW() WHERE checksum = :checksum RETURNING *")
+    Mono<Blob> release(String checksum);
+
+    @Modifying
+    @Query("DELETE FROM blobs WHERE checksum = :checksum AND ref_count <= 0")
+    Mono<Integer> deleteIfUnreferenced(String checksum);
+}
@@ -29,6 +29,9 @@ public interface FileMetadataRepository extends ReactiveCrudRepository<FileMetad
     @Query("DELETE FROM files WHERE id = :id")
     Mono<Integer> deleteFileById(String id);
 
+    @Query("SELECT EXISTS (SELECT 1 FROM files WHERE user_id = :userId AND checksum = :checksum AND size_bytes = :sizeBytes)")
+    Mono<Boolean> existsByUserIdAndContent(String userId, String checksum, long sizeBytes);
+
     @Query("SELECT COALESCE(SUM(size_bytes), 0) FROM files WHERE user_id = :userId")
     Mono<Long> getTotalStorageUsedByUser(String userId);
 }
@@ -0,0 +1,42 @@
+package com.pdfutility.storage.repository;
+
+import com.pdfutility.storage.model.UploadSession;
+import org.springframework.data.r2dbc.repository.Modifying;
+import org.springframework.data.r2dbc.repository.Query;
+import org.springframework.data.repository.reactive.ReactiveCrudRepository;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDateTime;
+
+/**
+ * Upload Session Repository - R2DBC (Reactive).
+ */
+@Repository
+public interface UploadSessionRepository extends ReactiveCrudRepository<UploadSession, String> {
+
+    @Query("UPDATE upload_sessions SET status = :to, updated_at = NOW() WHERE id = :id AND status = :from RETURNING *")
+    Mono<UploadSession> transition(String id, String from, String to);
+
+    @Query("SELECT * FROM upload_sessions WHERE expires_at < :now")
+    Flux<UploadSession> findExpired(LocalDateTime now);
+
+    @Query("SELECT chunk_index FROM upload_chunks WHERE session_id = :sessionId ORDER BY chunk_index")
+    Flux<Integer> findReceivedChunks(String sessionId);
+
+    @Query("SELECT COUNT(*) FROM upload_chunks WHERE session_id = :sessionId")
+    Mono<Long> countReceivedChunks(String sessionId);
+
+    @Modifying
+    @Query("""
+            INSERT INTO upload_chunks (session_id, chunk_index, size_bytes, received_at)
+            VALUES (:sessionId, :chunkIndex, :sizeBytes, NOW())
+            ON CONFLICT (session_id, chunk_index) DO UPDATE SET size_bytes = :sizeBytes, received_at = NOW()
+            """)
+    Mono<Integer> markChunkReceived(String sessionId, int chunkIndex, long sizeBytes);
+
+    @Modifying
+    @Query("DELETE FROM upload_sessions WHERE id = :id")
+    Mono<Integer> deleteSessionById(String id);
+}
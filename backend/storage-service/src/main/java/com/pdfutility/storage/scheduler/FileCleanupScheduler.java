@@ -1,5 +1,6 @@
 package com.pdfutility.storage.scheduler;
 
+import com.pdfutility.storage.service.ChunkedUploadService;
 import com.pdfutility.storage.service.FileStorageService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -17,6 +18,7 @@ import org.springframework.stereotype.Component;
 public class FileCleanupScheduler {
 
     private final FileStorageService fileStorageService;
+    private final ChunkedUploadService chunkedUploadService;
 
     /**
      * Run cleanup every hour.
@@ -31,4 +33,15 @@ public class FileCleanupScheduler {
                 .doOnSuccess(count -> log.info("Cleanup completed. Removed {} expired files.", count))
                 .subscribe();
     }
+
+    /**
+     * Drop abandoned upload sessions every hour.
+     */
+    @Scheduled(fixedRate = 3600000) // Every hour
+    public void cleanupExpiredUploads() {
+        chunkedUploadService.cleanupExpiredSessions()
+                .count()
+                .doOnSuccess(count -> log.info("Upload cleanup completed. Removed {} expired sessions.", count))
+                .subscribe();
+    }
 }
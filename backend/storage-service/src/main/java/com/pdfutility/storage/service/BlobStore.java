@@ -0,0 +1,127 @@
+package com.pdfutility.storage.service;
+
+import com.pdfutility.storage.model.Blob;
+import com.pdfutility.storage.repository.BlobRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.nio.ByteBuffer;
+import java.util.Base64;
+import java.util.HexFormat;
+import java.util.UUID;
+
+/**
+ * Content-addressable blob store.
+ * Content is stored once per SHA-256 under "blobs/" and shared by every file row with the same checksum;
+ * the blob is only removed from the provider when its last reference is released.
+ * Each write of a blob gets its own path, so removing a released blob can never hit content stored again
+ * for the same checksum after its row was deleted.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class BlobStore {
+
+    private static final String BLOB_PREFIX = "blobs/";
+    private static final String STAGING_PREFIX = "staging/";
+
+    private final BlobRepository blobRepository;
+    private final StorageProvider storageProvider;
+
+    /**
+     * Store streamed content. The checksum is only known once the stream completes, so content is
+     * written to a staging path first and then either promoted to its blob path or discarded as a duplicate.
+     *
+     * @param content File content, consumed by the provider
+     * @param contentType Content type
+     * @param digest Digest that observes the content while it is written
+     * @return Referenced blob
+     */
+    public Mono<Blob> store(Flux<DataBuffer> content, String contentType, ContentDigest digest) {
+        String stagingPath = STAGING_PREFIX + UUID.randomUUID();
+
+        return storageProvider.store(stagingPath, digest.observe(content), contentType)
+                .then(Mono.defer(() -> {
+                    String checksum = digest.checksum();
+                    return blobRepository.acquire(checksum)
+                            .flatMap(existing -> storageProvider.delete(stagingPath)
+                                    .doOnSuccess(v -> log.debug("Duplicate content for blob {}, staging copy discarded", checksum))
+                                    .thenReturn(existing))
+                            .switchIfEmpty(Mono.defer(() -> storageProvider.move(stagingPath, blobPath(checksum))
+                                    .flatMap(path -> register(checksum, digest.sizeBytes(), path))));
+                }))
+                .onErrorResume(e -> storageProvider.delete(stagingPath)
+                        .onErrorResume(cleanupError -> Mono.empty())
+                        .then(Mono.error(e)));
+    }
+
+    /**
+     * Store in-memory content. The checksum is computed up front, so duplicates skip the write entirely.
+     */
+    public Mono<Blob> store(ByteBuffer content, String contentType, String checksum) {
+        long sizeBytes = content.remaining();
+        return blobRepository.acquire(checksum)
+                .doOnNext(existing -> log.debug("Duplicate content for blob {}, write skipped", checksum))
+                .switchIfEmpty(Mono.defer(() -> storageProvider.store(blobPath(checksum), content, contentType)
+                        .flatMap(path -> register(checksum, sizeBytes, path))));
+    }
+
+    /**
+     * Insert the row for content just written to {@code path}. A concurrent store of the same content may
+     * have inserted it first; that blob is referenced instead and this copy removed.
+     */
+    private Mono<Blob> register(String checksum, long sizeBytes, String path) {
+        return blobRepository.insertOrAcquire(checksum, sizeBytes, storageProvider.getProviderName(), path)
+                .flatMap(blob -> path.equals(blob.storagePath())
+                        ? Mono.just(blob)
+                        : storageProvider.delete(path)
+                                .doOnSuccess(v -> log.debug("Blob {} stored concurrently, copy {} discarded", checksum, path))
+                                .thenReturn(blob));
+    }
+
+    /**
+     * Take another reference on existing content without transferring it.
+     * The size must match as well, so a client cannot claim content by checksum alone.
+     *
+     * @return Referenced blob, or empty if no blob with this checksum and size is stored
+     */
+    public Mono<Blob> acquire(String checksum, long sizeBytes) {
+        return blobRepository.findById(checksum)
+                .filter(blob -> blob.sizeBytes() == sizeBytes)
+                .flatMap(blob -> blobRepository.acquire(checksum));
+    }
+
+    /**
+     * Drop a reference. The blob row is deleted only while its count is still zero, so a concurrent
+     * acquire between the decrement and the delete keeps the content alive. Content stored again after
+     * the delete lives under a new path, so removing this blob's path cannot touch it.
+     */
+    public Mono<Void> release(String checksum) {
+        return blobRepository.release(checksum)
+                .filter(blob -> blob.refCount() <= 0)
+                .flatMap(blob -> blobRepository.deleteIfUnreferenced(checksum)
+                        .filter(deleted -> deleted > 0)
+                        .flatMap(deleted -> storageProvider.delete(blob.storagePath()))
+                        .doOnSuccess(v -> log.debug("Blob released: {}", checksum)))
+                .then();
+    }
+
+    /**
+     * Whether a storage path points into the blob store rather than at a legacy per-upload file.
+     */
+    public boolean isBlobPath(String storagePath) {
+        return storagePath != null && storagePath.startsWith(BLOB_PREFIX);
+    }
+
+    /**
+     * Path for a new write of a blob: sharded by checksum, suffixed with a generation unique to this write.
+     */
+    private String blobPath(String checksum) {
+        String hex = HexFormat.of().formatHex(Base64.getDecoder().decode(checksum));
+        return BLOB_PREFIX + hex.substring(0, 2) + "/" + hex.substring(2, 4) + "/" + hex + "-" + UUID.randomUUID();
+    }
+}
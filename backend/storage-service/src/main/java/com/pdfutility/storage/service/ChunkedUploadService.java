@@ -0,0 +1,311 @@
+package com.pdfutility.storage.service;
+
+import com.pdfutility.common.exception.ResourceNotFoundException;
+import com.pdfutility.common.exception.StorageException;
+import com.pdfutility.storage.dto.StorageDto.*;
+import com.pdfutility.storage.model.UploadSession;
+import com.pdfutility.storage.repository.UploadSessionRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferFactory;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.data.r2dbc.core.R2dbcEntityTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.util.unit.DataSize;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.AsynchronousFileChannel;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Resumable, parallel chunked uploads.
+ * A session fixes the file size and chunk size up front; chunks may then arrive in any order and
+ * concurrently, each written straight to its offset in a sparse temp file. Commit streams the
+ * assembled file into the blob store and verifies the checksum on the way.
+ * The temp file lives on this node, and so does the guard that keeps commit from reading it while chunks
+ * are still being written.
+ */
+@Slf4j
+@Service
+public class ChunkedUploadService {
+
+    private static final int COMMITTING = -1;
+
+    private final UploadSessionRepository sessionRepository;
+    private final R2dbcEntityTemplate entityTemplate;
+    private final FileStorageService fileStorageService;
+    private final Path tempPath;
+    private final long defaultChunkSize;
+    private final long minChunkSize;
+    private final long maxFileSize;
+    private final Duration sessionExpiration;
+    private final DataBufferFactory bufferFactory = new DefaultDataBufferFactory();
+
+    /**
+     * Chunk writes in flight per session, or {@link #COMMITTING} while the session is being committed.
+     */
+    private final ConcurrentMap<String, Integer> activeWrites = new ConcurrentHashMap<>();
+
+    public ChunkedUploadService(UploadSessionRepository sessionRepository,
+                                R2dbcEntityTemplate entityTemplate,
+                                FileStorageService fileStorageService,
+                                @Value("${storage.local.temp-path:./temp}") String tempPath,
+                                @Value("${storage.upload.chunk-size:8MB}") DataSize defaultChunkSize,
+                                @Value("${storage.upload.min-chunk-size:1MB}") DataSize minChunkSize,
+                                @Value("${storage.max-file-size:100MB}") DataSize maxFileSize,
+                                @Value("${storage.upload.session-expiration:24h}") Duration sessionExpiration) {
+        this.sessionRepository = sessionRepository;
+        this.entityTemplate = entityTemplate;
+        this.fileStorageService = fileStorageService;
+        this.tempPath = Paths.get(tempPath, "uploads").toAbsolutePath();
+        this.defaultChunkSize = defaultChunkSize.toBytes();
+        this.minChunkSize = minChunkSize.toBytes();
+        this.maxFileSize = maxFileSize.toBytes();
+        this.sessionExpiration = sessionExpiration;
+    }
+
+    /**
+     * Create an upload session and its sparse temp file.
+     */
+    public Mono<UploadSessionResponse> createSession(UploadSessionRequest request, String userId) {
+        if (request.getFileName() == null || request.getSizeBytes() == null || request.getSizeBytes() < 0) {
+            return Mono.error(new StorageException("fileName and sizeBytes are required"));
+        }
+        if (request.getSizeBytes() > maxFileSize) {
+            return Mono.error(new StorageException("File exceeds the maximum size of " + maxFileSize + " bytes"));
+        }
+        long chunkSize = request.getChunkSize() != null
+                ? Math.max(request.getChunkSize(), minChunkSize)
+                : defaultChunkSize;
+        String contentType = request.getContentType() != null ? request.getContentType() : "application/octet-stream";
+        String checksum = request.getChecksum() != null ? ContentDigest.normalize(request.getChecksum()) : null;
+
+        UploadSession session = UploadSession.create(userId, request.getFileName(), contentType,
+                request.getSizeBytes(), chunkSize, checksum, Boolean.TRUE.equals(request.getTemporary()),
+                LocalDateTime.now().plus(sessionExpiration));
+
+        return fileStorageService.validateFileName(request.getFileName())
+                .then(Mono.fromCallable(() -> createSparseFile(session))
+                        .subscribeOn(Schedulers.boundedElastic()))
+                .then(entityTemplate.insert(session))
+                .map(saved -> mapToResponse(saved, List.of()))
+                .doOnSuccess(response -> log.info("Upload session {} created: {} bytes in {} chunks for user: {}",
+                        response.getUploadId(), response.getSizeBytes(), response.getTotalChunks(), userId));
+    }
+
+    /**
+     * Write one chunk at its offset. Chunks are idempotent, so a retried PUT simply overwrites the same range.
+     * A chunk longer or shorter than its range is rejected and not marked received.
+     */
+    public Mono<UploadSessionResponse> writeChunk(String uploadId, int index, Flux<DataBuffer> content, String userId) {
+        return findOpenSession(uploadId, userId)
+                .flatMap(session -> {
+                    if (index < 0 || index >= session.totalChunks()) {
+                        return Mono.error(new StorageException("Chunk index out of range: " + index));
+                    }
+                    long offset = session.chunkOffset(index);
+                    long expected = session.chunkLength(index);
+                    AtomicLong received = new AtomicLong();
+
+                    // Never write past the chunk's range: the buffer that would overrun it fails the chunk instead
+                    Flux<DataBuffer> counted = content.handle((buffer, sink) -> {
+                        if (received.addAndGet(buffer.readableByteCount()) > expected) {
+                            DataBufferUtils.release(buffer);
+                            sink.error(new StorageException("Chunk " + index + " is larger than its "
+                                    + expected + " bytes"));
+                        } else {
+                            sink.next(buffer);
+                        }
+                    });
+
+                    Mono<Integer> write = writeAt(uploadId, counted, offset)
+                            .then(Mono.defer(() -> received.get() == expected
+                                    ? sessionRepository.markChunkReceived(uploadId, index, expected)
+                                    : Mono.error(new StorageException("Chunk " + index + " is incomplete: received "
+                                            + received.get() + " of " + expected + " bytes"))));
+
+                    return Mono.using(() -> beginWrite(uploadId),
+                                    writing -> writing ? write : Mono.error(new StorageException("Upload is being committed")),
+                                    writing -> {
+                                        if (writing) {
+                                            endWrite(uploadId);
+                                        }
+                                    })
+                            .then(getSession(uploadId, userId));
+                });
+    }
+
+    /**
+     * Current state of a session, including which chunks have already been received.
+     */
+    public Mono<UploadSessionResponse> getSession(String uploadId, String userId) {
+        return findSession(uploadId, userId)
+                .flatMap(session -> sessionRepository.findReceivedChunks(uploadId)
+                        .collectList()
+                        .map(received -> mapToResponse(session, received)));
+    }
+
+    /**
+     * Assemble the upload. All chunks must be present; the checksum from the commit request
+     * (or the one announced at session creation) is verified while the file is stored.
+     * Commit is refused while chunks are being written, and chunk writes are refused until it is over.
+     */
+    public Mono<FileUploadResponse> commit(String uploadId, UploadCommitRequest request, String userId) {
+        return findOpenSession(uploadId, userId)
+                .flatMap(session -> Mono.using(() -> beginCommit(uploadId),
+                        committing -> committing
+                                ? assemble(session, request, userId)
+                                : Mono.error(new StorageException("Chunks are still being written")),
+                        committing -> {
+                            if (committing) {
+                                activeWrites.remove(uploadId, COMMITTING);
+                            }
+                        }))
+                .doOnSuccess(file -> log.info("Upload session {} committed as file {}", uploadId, file.getFileId()));
+    }
+
+    private Mono<FileUploadResponse> assemble(UploadSession open, UploadCommitRequest request, String userId) {
+        String uploadId = open.id();
+        return sessionRepository.countReceivedChunks(uploadId)
+                .flatMap(received -> received < open.totalChunks()
+                        ? Mono.error(new StorageException("Upload incomplete: " + received + " of "
+                                + open.totalChunks() + " chunks received"))
+                        : sessionRepository.transition(uploadId, UploadSession.STATUS_OPEN,
+                                UploadSession.STATUS_COMMITTING)
+                                .switchIfEmpty(Mono.error(new StorageException("Upload is already being committed"))))
+                .flatMap(session -> {
+                    String expected = request != null && request.getChecksum() != null
+                            ? ContentDigest.normalize(request.getChecksum())
+                            : session.checksum();
+                    Flux<DataBuffer> content = DataBufferUtils.readAsynchronousFileChannel(
+                            () -> AsynchronousFileChannel.open(sessionFile(uploadId), StandardOpenOption.READ),
+                            bufferFactory, (int) Math.min(session.chunkSize(), 64 * 1024));
+
+                    return fileStorageService.storeContent(content, session.fileName(), session.contentType(),
+                                    userId, Boolean.TRUE.equals(session.isTemporary()), expected)
+                            .flatMap(file -> discard(uploadId).thenReturn(file))
+                            .onErrorResume(e -> sessionRepository.transition(uploadId,
+                                            UploadSession.STATUS_COMMITTING, UploadSession.STATUS_OPEN)
+                                    .then(Mono.error(e)));
+                });
+    }
+
+    /**
+     * Abort a session and drop its temp file.
+     */
+    public Mono<Void> abort(String uploadId, String userId) {
+        return findSession(uploadId, userId)
+                .flatMap(session -> discard(uploadId))
+                .doOnSuccess(v -> log.info("Upload session {} aborted", uploadId));
+    }
+
+    /**
+     * Remove sessions that were neither committed nor aborted in time.
+     */
+    public Flux<String> cleanupExpiredSessions() {
+        return sessionRepository.findExpired(LocalDateTime.now())
+                .flatMap(session -> discard(session.id()).thenReturn(session.id()))
+                .doOnNext(id -> log.info("Cleaned up expired upload session: {}", id));
+    }
+
+    // ========== Helper Methods ==========
+
+    private Mono<UploadSession> findSession(String uploadId, String userId) {
+        return sessionRepository.findById(uploadId)
+                .filter(session -> session.userId().equals(userId))
+                .switchIfEmpty(Mono.error(new ResourceNotFoundException("Upload session", uploadId)));
+    }
+
+    private Mono<UploadSession> findOpenSession(String uploadId, String userId) {
+        return findSession(uploadId, userId)
+                .flatMap(session -> {
+                    if (session.isExpired()) {
+                        return Mono.error(new StorageException("Upload session has expired"));
+                    }
+                    if (!UploadSession.STATUS_OPEN.equals(session.status())) {
+                        return Mono.error(new StorageException("Upload session is not open"));
+                    }
+                    return Mono.just(session);
+                });
+    }
+
+    private Mono<Void> writeAt(String uploadId, Flux<DataBuffer> content, long offset) {
+        return Mono.usingWhen(
+                Mono.fromCallable(() -> AsynchronousFileChannel.open(sessionFile(uploadId), StandardOpenOption.WRITE)),
+                channel -> DataBufferUtils.write(content, channel, offset)
+                        .map(DataBufferUtils::release)
+                        .then(),
+                channel -> Mono.fromCallable(() -> {
+                    channel.close();
+                    return true;
+                }));
+    }
+
+    private boolean beginWrite(String uploadId) {
+        return activeWrites.merge(uploadId, 1, (count, one) -> count == COMMITTING ? COMMITTING : count + 1) > 0;
+    }
+
+    private void endWrite(String uploadId) {
+        activeWrites.computeIfPresent(uploadId, (id, count) -> count > 1 ? count - 1 : null);
+    }
+
+    private boolean beginCommit(String uploadId) {
+        return activeWrites.putIfAbsent(uploadId, COMMITTING) == null;
+    }
+
+    private Mono<Void> discard(String uploadId) {
+        return sessionRepository.deleteSessionById(uploadId)
+                .then(Mono.fromCallable(() -> Files.deleteIfExists(sessionFile(uploadId)))
+                        .subscribeOn(Schedulers.boundedElastic()))
+                .then();
+    }
+
+    /**
+     * Create the temp file as sparse and extend it to the final size, so chunks can land at any offset
+     * without the file system allocating the gaps.
+     */
+    private Path createSparseFile(UploadSession session) throws IOException {
+        Files.createDirectories(tempPath);
+        Path file = sessionFile(session.id());
+        try (SeekableByteChannel channel = Files.newByteChannel(file,
+                StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE, StandardOpenOption.SPARSE)) {
+            if (session.sizeBytes() > 0) {
+                channel.position(session.sizeBytes() - 1);
+                channel.write(ByteBuffer.wrap(new byte[1]));
+            }
+        }
+        return file;
+    }
+
+    private Path sessionFile(String uploadId) {
+        return tempPath.resolve(uploadId + ".upload");
+    }
+
+    private UploadSessionResponse mapToResponse(UploadSession session, List<Integer> receivedChunks) {
+        return UploadSessionResponse.builder()
+                .uploadId(session.id())
+                .fileName(session.fileName())
+                .sizeBytes(session.sizeBytes())
+                .chunkSize(session.chunkSize())
+                .totalChunks(session.totalChunks())
+                .receivedChunks(receivedChunks)
+                .expiresAt(session.expiresAt())
+                .build();
+    }
+}
@@ -0,0 +1,83 @@
+package com.pdfutility.storage.service;
+
+import com.pdfutility.common.exception.StorageException;
+import org.springframework.core.io.buffer.DataBuffer;
+import reactor.core.publisher.Flux;
+
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.HexFormat;
+
+/**
+ * Incremental SHA-256 checksum and size of content that is streamed through the service.
+ * Buffers are observed as they pass, so the content never has to be held in memory as a whole.
+ */
+public final class ContentDigest {
+
+    private final MessageDigest digest;
+    private long sizeBytes;
+    private String checksum;
+
+    private ContentDigest(MessageDigest digest) {
+        this.digest = digest;
+    }
+
+    public static ContentDigest sha256() {
+        try {
+            return new ContentDigest(MessageDigest.getInstance("SHA-256"));
+        } catch (NoSuchAlgorithmException e) {
+            throw new StorageException("SHA-256 digest not available", e);
+        }
+    }
+
+    /**
+     * Observe a stream of buffers. Digest and size are updated before each buffer is handed downstream;
+     * the buffers themselves are neither copied nor consumed.
+     */
+    public Flux<DataBuffer> observe(Flux<DataBuffer> content) {
+        return content.doOnNext(this::update);
+    }
+
+    /**
+     * Observe a single in-memory buffer without changing its position.
+     */
+    public void update(ByteBuffer content) {
+        ByteBuffer view = content.duplicate();
+        sizeBytes += view.remaining();
+        digest.update(view);
+    }
+
+    private void update(DataBuffer buffer) {
+        sizeBytes += buffer.readableByteCount();
+        try (DataBuffer.ByteBufferIterator iterator = buffer.readableByteBuffers()) {
+            iterator.forEachRemaining(digest::update);
+        }
+    }
+
+    /**
+     * Base64 encoded SHA-256 of all observed content. Only valid once the observed stream has completed.
+     */
+    public String checksum() {
+        if (checksum == null) {
+            checksum = Base64.getEncoder().encodeToString(digest.digest());
+        }
+        return checksum;
+    }
+
+    /**
+     * Normalize a client supplied SHA-256 to the Base64 form stored by the service.
+     * Hex encoded digests are converted; anything else is expected to be Base64 already.
+     */
+    public static String normalize(String checksum) {
+        if (checksum.length() == 64 && checksum.chars().allMatch(c -> Character.digit(c, 16) >= 0)) {
+            return Base64.getEncoder().encodeToString(HexFormat.of().parseHex(checksum));
+        }
+        return checksum;
+    }
+
+    public long sizeBytes() {
+        return sizeBytes;
+    }
+}
@@ -8,6 +8,7 @@ import com.pdfutility.storage.repository.FileMetadataRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.buffer.DataBuffer;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.http.codec.multipart.FilePart;
 import org.springframework.stereotype.Service;
@@ -15,11 +16,9 @@ import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
 import java.nio.ByteBuffer;
-import java.security.MessageDigest;
-import java.security.NoSuchAlgorithmException;
+import java.nio.file.Path;
 import java.time.Duration;
 import java.time.LocalDateTime;
-import java.util.Base64;
 import java.util.List;
 
 /**
@@ -32,6 +31,7 @@ public class FileStorageService {
 
     private final FileMetadataRepository fileMetadataRepository;
     private final StorageProvider storageProvider;
+    private final BlobStore blobStore;
 
     @Value("${storage.temp-file-expiration:24h}")
     private Duration tempFileExpiration;
@@ -40,7 +40,9 @@ public class FileStorageService {
     private List<String> allowedExtensions;
 
     /**
-     * Upload a file.
+     * Upload a file. The multipart content is streamed to the storage provider chunk by chunk,
+     * so heap use per upload is bounded by a few buffers rather than by the file size.
+     * Content that is already stored is deduplicated into the existing blob.
      */
     public Mono<FileUploadResponse> uploadFile(FilePart filePart, String userId, boolean isTemporary) {
         String originalName = filePart.filename();
@@ -49,50 +51,137 @@ public class FileStorageService {
                 : "application/octet-stream";
 
         // Validate file extension
-        if (!isAllowedExtension(originalName)) {
-            return Mono.error(new StorageException("File type not allowed: " + getExtension(originalName)));
-        }
+        return validateFileName(originalName)
+                .then(storeContent(filePart.content(), originalName, contentType, userId, isTemporary, null))
+                .doOnSuccess(response -> log.info("File streamed: {} ({} bytes) for user: {}",
+                        response.getFileId(), response.getSizeBytes(), userId));
+    }
+
+    /**
+     * Store streamed content as a new file. Checksum and size are computed as the bytes pass;
+     * when an expected checksum is given, a mismatch releases the content and fails the upload.
+     */
+    public Mono<FileUploadResponse> storeContent(Flux<DataBuffer> content, String fileName, String contentType,
+                                                 String userId, boolean isTemporary, String expectedChecksum) {
+        LocalDateTime expiresAt = isTemporary
+                ? LocalDateTime.now().plus(tempFileExpiration)
+                : null;
+        ContentDigest digest = ContentDigest.sha256();
 
-        return filePart.content()
-                .reduce(ByteBuffer.allocate(0), (acc, buffer) -> {
-                    ByteBuffer newBuffer = ByteBuffer.allocate(acc.remaining() + buffer.readableByteCount());
-                    newBuffer.put(acc);
-                    byte[] bytes = new byte[buffer.readableByteCount()];
-                    buffer.read(bytes);
-                    newBuffer.put(bytes);
-                    newBuffer.flip();
-                    return newBuffer;
+        return blobStore.store(content, contentType, digest)
+                .flatMap(blob -> {
+                    if (expectedChecksum != null && !expectedChecksum.equals(blob.checksum())) {
+                        return blobStore.release(blob.checksum())
+                                .then(Mono.error(new StorageException("Checksum mismatch: expected "
+                                        + expectedChecksum + " but received " + blob.checksum())));
+                    }
+                    FileMetadata metadata = FileMetadata.create(
+                            userId, fileName, contentType, blob.sizeBytes(), blob.checksum(),
+                            blob.storageProvider(), blob.storagePath(), isTemporary, expiresAt);
+
+                    return fileMetadataRepository.save(metadata)
+                            .onErrorResume(e -> blobStore.release(blob.checksum())
+                                    .onErrorResume(cleanupError -> Mono.empty())
+                                    .then(Mono.error(e)));
+                })
+                .map(this::mapToUploadResponse);
+    }
+
+    /**
+     * Store a new file made of an existing file's content followed by the streamed tail, e.g. an incremental
+     * update of a PDF. Only the tail crosses the network; the base is read from storage. The base size guards
+     * against appending to other content than the client started from, and the expected checksum, of the
+     * whole result, is verified as for any upload.
+     */
+    public Mono<FileUploadResponse> appendContent(String baseFileId, long baseSize, Flux<DataBuffer> tail,
+                                                  String fileName, String userId, String expectedChecksum) {
+        return validateFileName(fileName)
+                .then(openFile(baseFileId))
+                .flatMap(base -> {
+                    if (base.info().getSizeBytes() == null || base.info().getSizeBytes() != baseSize) {
+                        return Mono.error(new StorageException("File " + baseFileId + " has "
+                                + base.info().getSizeBytes() + " bytes, not " + baseSize));
+                    }
+                    return storeContent(Flux.concat(base.content(), tail), fileName, base.info().getContentType(),
+                            userId, false, expectedChecksum != null ? ContentDigest.normalize(expectedChecksum) : null);
                 })
-                .flatMap(content -> uploadContent(content, originalName, contentType, userId, isTemporary));
+                .doOnSuccess(response -> log.info("File {} stored as {} plus {} bytes for user: {}",
+                        response.getFileId(), baseFileId, response.getSizeBytes() - baseSize, userId));
     }
 
     /**
-     * Upload raw content.
+     * Upload raw content. Duplicate content only adds a reference to the existing blob.
      */
     public Mono<FileUploadResponse> uploadContent(ByteBuffer content, String fileName, 
                                                     String contentType, String userId, 
                                                     boolean isTemporary) {
-        String checksum = calculateChecksum(content.duplicate());
-        long sizeBytes = content.remaining();
+        ContentDigest digest = ContentDigest.sha256();
+        digest.update(content);
+        String checksum = digest.checksum();
+        long sizeBytes = digest.sizeBytes();
         LocalDateTime expiresAt = isTemporary 
                 ? LocalDateTime.now().plus(tempFileExpiration) 
                 : null;
 
-        // Create storage path
-        String storagePath = generateStoragePath(userId, fileName);
-
-        return storageProvider.store(storagePath, content, contentType)
-                .flatMap(path -> {
+        return blobStore.store(content, contentType, checksum)
+                .flatMap(blob -> {
                     FileMetadata metadata = FileMetadata.create(
                             userId, fileName, contentType, sizeBytes, checksum,
-                            storageProvider.getProviderName(), storagePath, isTemporary, expiresAt);
+                            blob.storageProvider(), blob.storagePath(), isTemporary, expiresAt);
 
-                    return fileMetadataRepository.save(metadata);
+                    return fileMetadataRepository.save(metadata)
+                            .onErrorResume(e -> blobStore.release(checksum)
+                                    .onErrorResume(cleanupError -> Mono.empty())
+                                    .then(Mono.error(e)));
                 })
                 .map(this::mapToUploadResponse)
                 .doOnSuccess(response -> log.info("File uploaded: {} for user: {}", response.getFileId(), userId));
     }
 
+    /**
+     * Hash-first upload. If the caller already has a file with the announced checksum and size,
+     * the new file is created from its content without any bytes being transferred.
+     * Other users' content is never linked this way: a checksum is not proof of having the content,
+     * and answering for any stored content would tell callers whether somebody else holds a document.
+     */
+    public Mono<UploadNegotiationResponse> negotiateUpload(UploadNegotiationRequest request, String userId) {
+        if (request.getChecksum() == null || request.getSizeBytes() == null || request.getFileName() == null) {
+            return Mono.error(new StorageException("checksum, sizeBytes and fileName are required"));
+        }
+
+        String checksum = ContentDigest.normalize(request.getChecksum());
+        String contentType = request.getContentType() != null ? request.getContentType() : "application/octet-stream";
+        boolean isTemporary = Boolean.TRUE.equals(request.getTemporary());
+        LocalDateTime expiresAt = isTemporary
+                ? LocalDateTime.now().plus(tempFileExpiration)
+                : null;
+
+        return validateFileName(request.getFileName())
+                .then(fileMetadataRepository.existsByUserIdAndContent(userId, checksum, request.getSizeBytes()))
+                .filter(Boolean::booleanValue)
+                .flatMap(owned -> blobStore.acquire(checksum, request.getSizeBytes()))
+                .flatMap(blob -> {
+                    FileMetadata metadata = FileMetadata.create(
+                            userId, request.getFileName(), contentType, blob.sizeBytes(), checksum,
+                            blob.storageProvider(), blob.storagePath(), isTemporary, expiresAt);
+
+                    return fileMetadataRepository.save(metadata)
+                            .onErrorResume(e -> blobStore.release(checksum)
+                                    .onErrorResume(cleanupError -> Mono.empty())
+                                    .then(Mono.error(e)));
+                })
+                .map(metadata -> UploadNegotiationResponse.builder()
+                        .contentKnown(true)
+                        .file(mapToUploadResponse(metadata))
+                        .build())
+                .doOnNext(response -> log.info("File {} created from known content for user: {}",
+                        response.getFile().getFileId(), userId))
+                .defaultIfEmpty(UploadNegotiationResponse.builder()
+                        .contentKnown(false)
+                        .uploadUrl("/api/v1/files")
+                        .build());
+    }
+
     /**
      * Download a file.
      */
@@ -107,6 +196,25 @@ public class FileStorageService {
                 });
     }
 
+    /**
+     * Open a file for serving. Carries the local path when the provider has one, so the
+     * web layer can hand the file to the socket with a zero-copy transfer.
+     */
+    public Mono<StoredContent> openFile(String fileId) {
+        return fileMetadataRepository.findById(fileId)
+                .switchIfEmpty(Mono.error(new ResourceNotFoundException("File", fileId)))
+                .flatMap(metadata -> {
+                    if (metadata.isExpired()) {
+                        return Mono.error(new StorageException("File has expired"));
+                    }
+                    String storagePath = metadata.storagePath();
+                    return Mono.just(new StoredContent(
+                            mapToInfoResponse(metadata),
+                            storageProvider.localFile(storagePath).orElse(null),
+                            (position, length) -> storageProvider.retrieve(storagePath, position, length)));
+                });
+    }
+
     /**
      * Get file metadata.
      */
@@ -124,9 +232,9 @@ public class FileStorageService {
                 .switchIfEmpty(Mono.error(new ResourceNotFoundException("File", fileId)))
                 .filter(metadata -> metadata.userId().equals(userId))
                 .switchIfEmpty(Mono.error(new StorageException("Access denied")))
-                .flatMap(metadata -> 
-                    storageProvider.delete(metadata.storagePath())
-                            .then(fileMetadataRepository.deleteFileById(fileId)))
+                .flatMap(metadata ->
+                    fileMetadataRepository.deleteFileById(fileId)
+                            .then(releaseContent(metadata)))
                 .then()
                 .doOnSuccess(v -> log.info("File deleted: {} by user: {}", fileId, userId));
     }
@@ -181,23 +289,59 @@ public class FileStorageService {
      */
     public Flux<String> cleanupExpiredFiles() {
         return fileMetadataRepository.findExpiredTemporaryFiles(LocalDateTime.now())
-                .flatMap(metadata -> 
-                    storageProvider.delete(metadata.storagePath())
-                            .then(fileMetadataRepository.deleteFileById(metadata.id()))
+                .flatMap(metadata ->
+                    fileMetadataRepository.deleteFileById(metadata.id())
+                            .then(releaseContent(metadata))
                             .thenReturn(metadata.id()))
                 .doOnNext(id -> log.info("Cleaned up expired file: {}", id));
     }
 
+    /**
+     * Content of a stored file, either as a local path or as lazily streamed byte ranges.
+     */
+    public record StoredContent(
+            FileInfoResponse info,
+            Path localPath,
+            RangeReader reader
+    ) {
+        public Flux<DataBuffer> content() {
+            return reader.read(0, StorageProvider.UNKNOWN_SIZE);
+        }
+
+        public Flux<DataBuffer> content(long position, long length) {
+            return reader.read(position, length);
+        }
+    }
+
+    /**
+     * Reads a byte range of a stored file.
+     */
+    @FunctionalInterface
+    public interface RangeReader {
+        Flux<DataBuffer> read(long position, long length);
+    }
+
     // ========== Helper Methods ==========
 
-    private String generateStoragePath(String userId, String fileName) {
-        String date = LocalDateTime.now().toLocalDate().toString();
-        String uniqueName = System.currentTimeMillis() + "_" + sanitizeFileName(fileName);
-        return userId + "/" + date + "/" + uniqueName;
+    /**
+     * Drop a file row's claim on its content. Rows written before the blob store
+     * own their file outright, so it is deleted directly.
+     */
+    private Mono<Void> releaseContent(FileMetadata metadata) {
+        if (blobStore.isBlobPath(metadata.storagePath())) {
+            return blobStore.release(metadata.checksum());
+        }
+        return storageProvider.delete(metadata.storagePath());
     }
 
-    private String sanitizeFileName(String fileName) {
-        return fileName.replaceAll("[^a-zA-Z0-9.-]", "_");
+    /**
+     * Reject file names whose extension is not allowed.
+     */
+    public Mono<Void> validateFileName(String fileName) {
+        if (!isAllowedExtension(fileName)) {
+            return Mono.error(new StorageException("File type not allowed: " + getExtension(fileName)));
+        }
+        return Mono.empty();
     }
 
     private boolean isAllowedExtension(String fileName) {
@@ -210,16 +354,6 @@ public class FileStorageService {
         return lastDot > 0 ? fileName.substring(lastDot + 1) : "";
     }
 
-    private String calculateChecksum(ByteBuffer content) {
-        try {
-            MessageDigest digest = MessageDigest.getInstance("SHA-256");
-            digest.update(content);
-            return Base64.getEncoder().encodeToString(digest.digest());
-        } catch (NoSuchAlgorithmException e) {
-            return null;
-        }
-    }
-
     private String formatBytes(long bytes) {
         if (bytes < 1024) return bytes + " B";
         if (bytes < 1024 * 1024) return String.format("%.2f KB", bytes / 1024.0);
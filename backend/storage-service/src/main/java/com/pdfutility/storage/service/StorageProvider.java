@@ -1,31 +1,120 @@
 package com.pdfutility.storage.service;
 
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
 import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.Optional;
 
 /**
  * Storage Provider Interface - abstraction for different storage backends.
+ * The streaming methods are the SPI; the ByteBuffer variants are adapters kept for small payloads.
  */
 public interface StorageProvider {
 
     /**
-     * Store a file.
+     * Size hint used when the content length is not known up front.
+     */
+    long UNKNOWN_SIZE = -1;
+
+    /**
+     * Store a file from a stream of buffers.
+     *
+     * @param path Storage path
+     * @param content File content, consumed and released by the provider
+     * @param contentType Content type
+     * @param sizeHint Expected content length in bytes, or {@link #UNKNOWN_SIZE}
+     * @return Storage result with path
+     */
+    Mono<String> store(String path, Flux<DataBuffer> content, String contentType, long sizeHint);
+
+    /**
+     * Retrieve a byte range of a file as a stream of buffers.
+     *
+     * @param path Storage path
+     * @param position Offset of the first byte to read
+     * @param length Number of bytes to read, or {@link #UNKNOWN_SIZE} to read to the end
+     * @return File content, to be released by the subscriber
+     */
+    Flux<DataBuffer> retrieve(String path, long position, long length);
+
+    /**
+     * Get the stored size of a file.
+     *
+     * @param path Storage path
+     * @return Size in bytes
+     */
+    Mono<Long> size(String path);
+
+    /**
+     * Store a file from a stream of buffers of unknown length.
+     *
+     * @param path Storage path
+     * @param content File content, consumed and released by the provider
+     * @param contentType Content type
+     * @return Storage result with path
+     */
+    default Mono<String> store(String path, Flux<DataBuffer> content, String contentType) {
+        return store(path, content, contentType, UNKNOWN_SIZE);
+    }
+
+    /**
+     * Store a file held in memory.
      *
      * @param path Storage path
      * @param content File content
      * @param contentType Content type
      * @return Storage result with path
      */
-    Mono<String> store(String path, ByteBuffer content, String contentType);
+    default Mono<String> store(String path, ByteBuffer content, String contentType) {
+        long size = content.remaining();
+        return store(path, Flux.just(DefaultDataBufferFactory.sharedInstance.wrap(content)), contentType, size);
+    }
 
     /**
-     * Retrieve a file.
+     * Retrieve a whole file into memory.
      *
      * @param path Storage path
      * @return File content
      */
-    Mono<ByteBuffer> retrieve(String path);
+    default Mono<ByteBuffer> retrieve(String path) {
+        return DataBufferUtils.join(retrieve(path, 0, UNKNOWN_SIZE))
+                .map(buffer -> {
+                    ByteBuffer bytes = ByteBuffer.allocate(buffer.readableByteCount());
+                    buffer.toByteBuffer(bytes);
+                    DataBufferUtils.release(buffer);
+                    return bytes;
+                })
+                .defaultIfEmpty(ByteBuffer.allocate(0));
+    }
+
+    /**
+     * Resolve a stored file to a path on the local file system, if the backend keeps one.
+     * Callers use it to serve content with zero-copy transfers instead of streaming through the heap.
+     *
+     * @param path Storage path
+     * @return Local file path, or empty for remote backends
+     */
+    default Optional<Path> localFile(String path) {
+        return Optional.empty();
+    }
+
+    /**
+     * Move a stored file to another path, replacing any file already there.
+     * The default copies through the stream SPI; backends with a native rename should override it.
+     *
+     * @param source Current storage path
+     * @param target New storage path
+     * @return Storage result with the new path
+     */
+    default Mono<String> move(String source, String target) {
+        return store(target, retrieve(source, 0, UNKNOWN_SIZE), null, UNKNOWN_SIZE)
+                .flatMap(path -> delete(source).thenReturn(path));
+    }
 
     /**
      * Delete a file.
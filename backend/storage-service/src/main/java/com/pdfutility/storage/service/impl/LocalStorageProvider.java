@@ -5,19 +5,29 @@ import com.pdfutility.storage.service.StorageProvider;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferFactory;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
 import org.springframework.stereotype.Service;
+import org.springframework.util.unit.DataSize;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 import reactor.core.scheduler.Schedulers;
 
 import java.io.IOException;
-import java.nio.ByteBuffer;
+import java.nio.channels.AsynchronousFileChannel;
 import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
 import java.nio.file.StandardOpenOption;
+import java.util.Optional;
 
 /**
  * Local file system storage provider.
+ * Reads and writes go through AsynchronousFileChannel in fixed-size chunks.
  */
 @Slf4j
 @Service
@@ -25,9 +35,13 @@ import java.nio.file.StandardOpenOption;
 public class LocalStorageProvider implements StorageProvider {
 
     private final Path basePath;
+    private final int bufferSize;
+    private final DataBufferFactory bufferFactory = new DefaultDataBufferFactory();
 
-    public LocalStorageProvider(@Value("${storage.local.base-path:./uploads}") String basePath) {
+    public LocalStorageProvider(@Value("${storage.local.base-path:./uploads}") String basePath,
+                                @Value("${storage.local.buffer-size:64KB}") DataSize bufferSize) {
         this.basePath = Paths.get(basePath).toAbsolutePath();
+        this.bufferSize = (int) bufferSize.toBytes();
         initializeStorage();
     }
 
@@ -40,42 +54,76 @@ public class LocalStorageProvider implements StorageProvider {
         }
     }
 
+    /**
+     * Streams the buffers into a sibling ".part" file through an AsynchronousFileChannel
+     * and moves it into place once the upload completes, so readers never see a partial file.
+     */
     @Override
-    public Mono<String> store(String path, ByteBuffer content, String contentType) {
-        return Mono.fromCallable(() -> {
-            Path fullPath = basePath.resolve(path);
-            Files.createDirectories(fullPath.getParent());
-            
-            byte[] bytes = new byte[content.remaining()];
-            content.get(bytes);
-            
-            Files.write(fullPath, bytes, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING);
-            log.debug("File stored at: {}", fullPath);
-            
-            return path;
-        })
-        .subscribeOn(Schedulers.boundedElastic())
-        .onErrorMap(e -> new StorageException("Failed to store file: " + path, e));
+    public Mono<String> store(String path, Flux<DataBuffer> content, String contentType, long sizeHint) {
+        Path fullPath = basePath.resolve(path);
+        Path partPath = fullPath.resolveSibling(fullPath.getFileName() + ".part");
+
+        return Mono.fromCallable(() -> Files.createDirectories(fullPath.getParent()))
+                .subscribeOn(Schedulers.boundedElastic())
+                .then(DataBufferUtils.write(content, partPath,
+                        StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE))
+                .then(Mono.fromCallable(() -> Files.move(partPath, fullPath,
+                                StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE))
+                        .subscribeOn(Schedulers.boundedElastic()))
+                .doOnSuccess(p -> log.debug("File stored at: {}", fullPath))
+                .thenReturn(path)
+                .onErrorResume(e -> Mono.fromCallable(() -> Files.deleteIfExists(partPath))
+                        .subscribeOn(Schedulers.boundedElastic())
+                        .onErrorResume(cleanupError -> Mono.just(false))
+                        .then(Mono.error(new StorageException("Failed to store file: " + path, e))));
     }
 
     @Override
-    public Mono<ByteBuffer> retrieve(String path) {
-        return Mono.fromCallable(() -> {
-            Path fullPath = basePath.resolve(path);
-            if (!Files.exists(fullPath)) {
-                throw new StorageException("File not found: " + path);
-            }
-            
-            byte[] bytes = Files.readAllBytes(fullPath);
-            return ByteBuffer.wrap(bytes);
-        })
-        .subscribeOn(Schedulers.boundedElastic())
-        .onErrorMap(e -> {
+    public Flux<DataBuffer> retrieve(String path, long position, long length) {
+        Path fullPath = basePath.resolve(path);
+
+        Flux<DataBuffer> content = DataBufferUtils.readAsynchronousFileChannel(
+                () -> AsynchronousFileChannel.open(fullPath, StandardOpenOption.READ),
+                position, bufferFactory, bufferSize);
+        if (length != UNKNOWN_SIZE) {
+            content = DataBufferUtils.takeUntilByteCount(content, length);
+        }
+
+        return content.onErrorMap(e -> {
+            if (e instanceof NoSuchFileException) return new StorageException("File not found: " + path);
             if (e instanceof StorageException) return e;
             return new StorageException("Failed to retrieve file: " + path, e);
         });
     }
 
+    @Override
+    public Mono<Long> size(String path) {
+        return Mono.fromCallable(() -> Files.size(basePath.resolve(path)))
+                .subscribeOn(Schedulers.boundedElastic())
+                .onErrorMap(e -> new StorageException("Failed to read file size: " + path, e));
+    }
+
+    @Override
+    public Optional<Path> localFile(String path) {
+        return Optional.of(basePath.resolve(path));
+    }
+
+    @Override
+    public Mono<String> move(String source, String target) {
+        Path sourcePath = basePath.resolve(source);
+        Path targetPath = basePath.resolve(target);
+
+        return Mono.fromCallable(() -> {
+                    Files.createDirectories(targetPath.getParent());
+                    return Files.move(sourcePath, targetPath,
+                            StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                })
+                .subscribeOn(Schedulers.boundedElastic())
+                .doOnSuccess(p -> log.debug("File moved: {} -> {}", sourcePath, targetPath))
+                .thenReturn(target)
+                .onErrorMap(e -> new StorageException("Failed to move file: " + source, e));
+    }
+
     @Override
     public Mono<Void> delete(String path) {
         return Mono.fromRunnable(() -> {
@@ -0,0 +1,57 @@
+package com.pdfutility.storage.controller;
+
+import com.pdfutility.storage.controller.FileContentWriter.Region;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpRange;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class FileContentWriterTest {
+
+    private static List<Region> regions(String header, long size) {
+        return FileContentWriter.toRegions(HttpRange.parseRanges(header), size);
+    }
+
+    @Test
+    void resolvesBoundedOpenAndSuffixRanges() {
+        assertThat(regions("bytes=10-19", 100)).containsExactly(new Region(10, 10));
+        assertThat(regions("bytes=90-", 100)).containsExactly(new Region(90, 10));
+        assertThat(regions("bytes=-5", 100)).containsExactly(new Region(95, 5));
+    }
+
+    @Test
+    void clampsRangeEndToFileSize() {
+        assertThat(regions("bytes=50-500", 100)).containsExactly(new Region(50, 50));
+    }
+
+    @Test
+    void dropsUnsatisfiableRanges() {
+        assertThat(regions("bytes=100-200", 100)).isEmpty();
+        assertThat(regions("bytes=0-9,150-", 100)).containsExactly(new Region(0, 10));
+        assertThat(regions("bytes=0-9", 0)).isEmpty();
+    }
+
+    @Test
+    void keepsDisjointRangesInFileOrder() {
+        assertThat(regions("bytes=50-59,0-9", 100))
+                .containsExactly(new Region(0, 10), new Region(50, 10));
+    }
+
+    @Test
+    void coalescesOverlappingAndAdjacentRanges() {
+        assertThat(regions("bytes=0-9,5-14,15-19", 100)).containsExactly(new Region(0, 20));
+        assertThat(regions("bytes=20-29,0-49", 100)).containsExactly(new Region(0, 50));
+    }
+
+    @Test
+    void repeatedWholeFileRangesCollapseToOne() {
+        assertThat(regions("bytes=0-,0-,0-,0-", 100)).containsExactly(new Region(0, 100));
+    }
+
+    @Test
+    void contentRangeUsesInclusiveEnd() {
+        assertThat(new Region(10, 10).contentRange(100)).isEqualTo("bytes 10-19/100");
+    }
+}